@@ -0,0 +1,92 @@
+package de.sciss.neuralgas;
+
+/**
+ * A table for drawing indices with given weights in constant time,
+ * using the alias method of Walker. The table is built in linear time
+ * in the array of the weights and the array of the aliases, without
+ * further temporary arrays.
+ *
+ * @author Hanns Holger Rutz
+ */
+final class AliasTable {
+    private final int     size;
+    private final float[] prob;     // probability to keep an index, otherwise its alias is taken
+    private final int[]   alias;
+
+    /**
+     * Build the table. The weights must not be negative, and their sum must be positive.
+     *
+     * @param weights    The weight of each index, overwritten by the table
+     * @param size       The number of indices
+     */
+    AliasTable(float[] weights, int size) {
+        this.size   = size;
+        prob        = weights;
+        alias       = new int[size];
+
+        double sum = 0.0;
+        for (int i = 0; i < size; i++)
+            sum += weights[i];
+
+        // Two scans run over the entries, one for the small (below 1) and one
+        // for the large entries, so no stacks are needed. Each small entry takes
+        // its missing probability from the current large one. If that becomes
+        // small, it is handled right away when the small scan has already passed
+        // it, otherwise the small scan reaches it later. Entries which are never
+        // handled keep themselves as their alias.
+        final double mul = size / sum;
+        for (int i = 0; i < size; i++) {
+            prob [i] = (float) (prob[i] * mul);
+            alias[i] = i;
+        }
+        int nextSmall = nextSmall(0);
+        int large     = nextLarge(0);
+        int small     = nextSmall;
+        while ((small < size) && (large < size)) {
+            alias[small]    = large;
+            prob [large]    = (float) (((double) prob[large] + prob[small]) - 1.0);
+            if (prob[large] < 1.0f && large < nextSmall) {
+                small       = large;
+                large       = nextLarge(large + 1);
+            } else {
+                if (prob[large] < 1.0f)
+                    large   = nextLarge(large + 1);
+                nextSmall   = nextSmall(nextSmall + 1);
+                small       = nextSmall;
+            }
+        }
+    }
+
+    private int nextSmall(int i) {
+        while ((i < size) && (prob[i] >= 1.0f))
+            i++;
+        return i;
+    }
+
+    private int nextLarge(int i) {
+        while ((i < size) && (prob[i] < 1.0f))
+            i++;
+        return i;
+    }
+
+    /**
+     * Returns the number of indices.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Draw an index.
+     *
+     * @param u          A random number between 0 and 1
+     * @return           The index
+     */
+    int next(double u) {
+        final double v  = u * size;
+        int i           = (int) v;
+        if (i >= size)
+            i = size - 1;
+        return (v - i < prob[i]) ? i : alias[i];
+    }
+}
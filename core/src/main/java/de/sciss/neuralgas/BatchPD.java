@@ -0,0 +1,28 @@
+package de.sciss.neuralgas;
+
+/**
+ * A probability distribution which can generate many signals at once.
+ * The learning steps take all signals of a step from <TT>fill</TT> if the
+ * distribution implements this interface, and otherwise call <TT>getSignal</TT>
+ * for each of them (see <TT>ComputeGNG.fillSignals</TT>).
+ * <p>
+ * An implementation can generate its single signals with
+ * <TT>ComputeGNG.fillSignal</TT>, so that the logic is only written once.
+ *
+ * @author Hanns Holger Rutz
+ */
+public interface BatchPD extends PD {
+    /**
+     * Generate the next <TT>len</TT> signals of the distribution at once.
+     *  The result is the same as calling <TT>getSignal</TT> for each signal
+     *  while counting <TT>compute.numSignals</TT> up, i.e. the i-th signal
+     *  belongs to the signal count <TT>compute.numSignals + 1 + i</TT>.
+     *
+     * @param compute    The computation providing the panel size and the random numbers
+     * @param xs         The array for the x-positions of the signals
+     * @param ys         The array for the y-positions of the signals
+     * @param off        The index of the first signal in the arrays
+     * @param len        The number of signals
+     */
+    void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len);
+}
@@ -0,0 +1,128 @@
+package de.sciss.neuralgas;
+
+/**
+ * The beach line of the Voronoi sweep as a balanced search tree over the half-edges.
+ * The tree is a treap without keys: the in-order sequence of the nodes is
+ * the left-to-right order of the half-edges, and each node is placed by
+ * inserting it after its left neighbor. Finding the half-edge left of a new
+ * site thus takes O(log n) expected time instead of a walk along the list.
+ * The sentinels at both ends of the list are not part of the tree.
+ *
+ * @author Hanns Holger Rutz
+ */
+final class BeachLineVoronoi {
+    private HalfEdgeVoronoi root = null;
+    private int seed = 0x2545F491;
+
+    void clear() {
+        root = null;
+    }
+
+    // xorshift random numbers for the priorities
+    private int nextPriority() {
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+
+    /**
+     * Insert a half-edge.
+     *
+     * @param pred       The half-edge to the left, or null to insert at the left end
+     * @param he         The half-edge to insert
+     */
+    void insertAfter(HalfEdgeVoronoi pred, HalfEdgeVoronoi he) {
+        he.treeLeft     = null;
+        he.treeRight    = null;
+        he.treePrio     = nextPriority();
+        if (root == null) {
+            he.treeParent   = null;
+            root            = he;
+            return;
+        }
+        HalfEdgeVoronoi n;
+        if (pred == null) {
+            n = root;
+            while (n.treeLeft != null) n = n.treeLeft;
+            n.treeLeft = he;
+        } else if (pred.treeRight == null) {
+            n = pred;
+            n.treeRight = he;
+        } else {
+            n = pred.treeRight;
+            while (n.treeLeft != null) n = n.treeLeft;
+            n.treeLeft = he;
+        }
+        he.treeParent = n;
+        while ((he.treeParent != null) && (he.treePrio > he.treeParent.treePrio))
+            rotateUp(he);
+    }
+
+    /**
+     * Remove a half-edge.
+     */
+    void remove(HalfEdgeVoronoi he) {
+        // rotate the node down to a leaf
+        while ((he.treeLeft != null) || (he.treeRight != null)) {
+            final HalfEdgeVoronoi l = he.treeLeft;
+            final HalfEdgeVoronoi r = he.treeRight;
+            rotateUp((r == null || (l != null && l.treePrio > r.treePrio)) ? l : r);
+        }
+        final HalfEdgeVoronoi p = he.treeParent;
+        if (p == null)
+            root = null;
+        else if (p.treeLeft == he)
+            p.treeLeft = null;
+        else
+            p.treeRight = null;
+        he.treeParent = null;
+    }
+
+    // makes the node the parent of its parent
+    private void rotateUp(HalfEdgeVoronoi x) {
+        final HalfEdgeVoronoi p = x.treeParent;
+        final HalfEdgeVoronoi g = p.treeParent;
+        if (p.treeLeft == x) {
+            p.treeLeft = x.treeRight;
+            if (x.treeRight != null) x.treeRight.treeParent = p;
+            x.treeRight = p;
+        } else {
+            p.treeRight = x.treeLeft;
+            if (x.treeLeft != null) x.treeLeft.treeParent = p;
+            x.treeLeft = p;
+        }
+        p.treeParent = x;
+        x.treeParent = g;
+        if (g == null)
+            root = x;
+        else if (g.treeLeft == p)
+            g.treeLeft = x;
+        else
+            g.treeRight = x;
+    }
+
+    /**
+     * Returns the rightmost half-edge which a point is right of.
+     *
+     * @param v          The diagram, providing the test
+     * @param p          The point
+     * @param leftEnd    The left sentinel, returned if the point is left of all half-edges
+     * @see Voronoi#isRightOf
+     */
+    HalfEdgeVoronoi leftBnd(Voronoi v, PointFloat2D p, HalfEdgeVoronoi leftEnd) {
+        HalfEdgeVoronoi res = leftEnd;
+        HalfEdgeVoronoi n   = root;
+        while (n != null) {
+            if (v.isRightOf(n, p)) {
+                res = n;
+                n   = n.treeRight;
+            } else {
+                n   = n.treeLeft;
+            }
+        }
+        return res;
+    }
+}
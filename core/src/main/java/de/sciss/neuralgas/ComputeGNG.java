@@ -23,9 +23,12 @@ package de.sciss.neuralgas;
 
 import java.awt.Dimension;
 import java.awt.geom.Point2D;
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A class which implements the network algorithms.
@@ -35,19 +38,26 @@ import java.util.Random;
  */
 public class ComputeGNG {
     void log(String prefix, String txt) {
-        System.out.println(timeStamp()+" C: "+prefix+txt);
+        if (logB)
+            System.out.println(timeStamp()+" C: "+prefix+txt);
     }
     void log(String txt) {
         log("####### ", txt);
     }
 
-    final static private SimpleDateFormat format = new SimpleDateFormat("yyyy.MM.dd HH.mm.ss");
+    /**
+     * The flag for printing log messages. Many models running in parallel
+     *  should turn this off, as they all print to the same stream.
+     * This variable can be set by the user.
+     */
+    public boolean logB = true;
 
-    public synchronized String timeStamp() {
-        long lDateTime = new Date().getTime();
-        String str;
-        str = format.format(new java.util.Date())+"."+String.format("%03d",lDateTime%1000);
-        return str;
+    /**
+     * Returns the current time in the format of the log messages.
+     *  No state is shared between calls, so models on different threads do not block each other.
+     */
+    public String timeStamp() {
+        return String.format("%1$tY.%1$tm.%1$td %1$tH.%1$tM.%1$tS.%1$tL", new Date());
     }
 
     /**
@@ -56,28 +66,48 @@ public class ComputeGNG {
     protected final boolean DEBUG = false;
 
     /**
-     * The maximum number of nodes.
+     * The former maximum number of nodes.
+     *
+     * @deprecated The node and edge arrays grow as needed, the number of nodes
+     *  is only limited by <TT>maxNodes</TT>.
      */
+    @Deprecated
     public static final int MAX_NODES = 30000;
 
     /**
-     * The maximum number of edges (3 * maximum number of nodes).
+     * The former maximum number of edges (6 * maximum number of nodes).
+     *
+     * @deprecated The edge arrays grow as needed.
      */
+    @Deprecated
     protected final int MAX_EDGES = 6 * MAX_NODES;
 
     /**
-     * The maximum step-size.
+     * The former maximum step-size.
+     *
+     * @deprecated The signal arrays of a step grow with <TT>stepSize</TT>.
      */
+    @Deprecated
     protected final int MAX_STEP_SIZE = 500;
 
+    /**
+     * The initial size of the node and edge arrays.
+     *
+     * @see ComputeGNG#ensureCapacity
+     */
+    protected static final int INITIAL_CAPACITY = 16;
+
     /**
      * The size of the DiscreteMixture signal set.
      */
     protected final int MIXTURE_SIZE = 500;
 
     /**
-     * The maximum number of discrete numSignals.
+     * The former maximum number of discrete numSignals.
+     *
+     * @deprecated The discrete signal arrays grow as needed.
      */
+    @Deprecated
     protected final int MAX_DISCRETE_SIGNALS = 20000;
 
     /**
@@ -125,6 +155,10 @@ public class ComputeGNG {
      */
     public float SignalY = 0f;
 
+    // a single signal generated with fill
+    private final float oneSignalX[] = new float[1];
+    private final float oneSignalY[] = new float[1];
+
     /**
      * The initial width of the drawing area.
      * This value can only be changed by resizing the applet-viewer.
@@ -143,56 +177,168 @@ public class ComputeGNG {
     public int nNodes = 0;
 
     /**
-     * The array of the actual used nodes.
+     * The array of the actual used nodes. The array grows as nodes are added.
      */
-    public NodeGNG nodes[] = new NodeGNG[MAX_NODES];
+    public NodeGNG nodes[] = new NodeGNG[INITIAL_CAPACITY];
 
     /**
      * The sorted array of indices of nodes.
      * The indices of the nodes are sorted by their distance from the actual
      * signal. sNodes[1] is the index of the nearest node.
      */
-    protected int sNodes[] = new int[MAX_NODES + 1];
+    protected int sNodes[] = new int[INITIAL_CAPACITY + 1];
 
     /**
-     * The array of the nodes in the grid.
+     * The array of the nodes in the grid. The array grows with the grid.
      */
-    public GridNodeGNG grid[][] = new GridNodeGNG[MAX_GRID_X][MAX_GRID_Y];
+    public GridNodeGNG grid[][] = new GridNodeGNG[0][];
 
     /**
      * The array of the last computed numSignals (x-coordinate).
+     *  It is allocated by the first step and grows with <TT>stepSize</TT>.
      */
-    public float lastSignalsX[] = new float[MAX_STEP_SIZE];
+    public float lastSignalsX[] = new float[0];
 
     /**
      * The array of the last computed numSignals (y-coordinate).
      */
-    public float lastSignalsY[] = new float[MAX_STEP_SIZE];
+    public float lastSignalsY[] = new float[0];
 
     /**
      * The array of the discrete numSignals (x-coordinate).
      */
-    public float discreteSignalsX[] = new float[MAX_DISCRETE_SIGNALS];
+    public float discreteSignalsX[] = new float[0];
 
     /**
      * The array of the discrete numSignals (y-coordinate).
      */
-    public float discreteSignalsY[] = new float[MAX_DISCRETE_SIGNALS];
+    public float discreteSignalsY[] = new float[0];
+
+    /**
+     * The number of discrete numSignals generated by the last call of
+     *  <TT>initDiscreteSignals</TT>. The arrays may be longer.
+     */
+    protected int numDiscreteSignalsValid = 0;
+
+    /**
+     * The distribution of the last call of <TT>initDiscreteSignals</TT>.
+     */
+    protected PD discreteSignalsPD = null;
 
     /**
      * The array of the best distance (discrete numSignals).
      */
-    protected float discreteSignalsD1[] = new float[MAX_DISCRETE_SIGNALS];
+    protected float discreteSignalsD1[] = new float[0];
 
     /**
      * The array of the second best distance (discrete numSignals).
      */
-    protected float discreteSignalsD2[] = new float[MAX_DISCRETE_SIGNALS];
+    protected float discreteSignalsD2[] = new float[0];
 
     /**
      * The array of the second best distance (discrete numSignals).
      */
-    protected PointFloat2D C_best[] = new PointFloat2D[MAX_NODES];
+    protected PointFloat2D C_best[] = new PointFloat2D[INITIAL_CAPACITY];
+
+    /**
+     * The array of the nearest node of each discrete signal (LBG).
+     */
+    protected int discreteSignalsWinner[] = new int[0];
+
+    /**
+     * The discrete signals sorted by their nearest node (LBG). The signals
+     *  of node <TT>i</TT> are found from <TT>nodeSignalsOffset[i]</TT> to
+     *  <TT>nodeSignalsOffset[i+1]</TT>.
+     */
+    protected int discreteSignalsSorted[] = new int[0];
+
+    /**
+     * The start of the signals of each node in <TT>discreteSignalsSorted</TT> (LBG).
+     */
+    protected int nodeSignalsOffset[] = new int[1];
+
+    /**
+     * The positions of the nodes at the start of an epoch (LBG).
+     */
+    protected float codebookX[] = new float[0];
+    protected float codebookY[] = new float[0];
+
+    /**
+     * The error and utility of each node in the last epoch (LBG).
+     */
+    protected float codebookError[]     = new float[0];
+    protected float codebookUtility[]   = new float[0];
+
+    /**
+     * The flag for parallel learning (LBG, LBG-U). This variable can be set by the user.
+     *  The signals of an epoch are assigned to their nearest nodes and the nodes
+     *  are moved to their centroids by several threads; all sums are formed
+     *  in the same order as without threads, so the result is the same.
+     */
+    public boolean parallelB = false;
+
+    /**
+     * The pool used for parallel learning. This variable can be set by the user.
+     *  If null, a pool shared by all instances is used.
+     */
+    public ForkJoinPool forkJoinPool = null;
+
+    // the pool shared by all instances, created on first use
+    private static final class DefaultPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    /**
+     * The flag for partial ranking (NG, NGwCHL). This variable can be set by the user.
+     *  If true, only the nodes whose neighborhood factor <TT>exp(-k/lambda(t))</TT>
+     *  is at least <TT>rankTolerance</TT> are ranked and adapted, instead of
+     *  ordering all nodes in a heap.
+     */
+    public boolean partialRankB = false;
+
+    /**
+     * The smallest neighborhood factor taken into account with partial ranking
+     *  (NG, NGwCHL). This variable can be set by the user.
+     */
+    public float rankTolerance = 1.0e-4f;
+
+    /**
+     * The nearest nodes in the order of their rank (partial ranking).
+     */
+    protected int rankNodes[] = new int[0];
+
+    /**
+     * The number of signals drawn at once (GNG, GNG-U), or 1 to process
+     *  one signal after the other. This variable can be set by the user.
+     *  In a mini-batch the winners and runner-ups of all signals are searched
+     *  among the node positions at the start of the batch (in parallel if
+     *  <TT>parallelB</TT> is set). The adaptations, errors and edges are then
+     *  updated in the order of the signals, and nodes are inserted and deleted
+     *  at the end of the batch, so the result only depends on the seed and
+     *  the batch size. A batch never extends across a multiple of <TT>lambdaGNG</TT>.
+     *  Pruning thus happens once per batch: at most one node is deleted, either
+     *  a node without neighbors (GNG) or, with GNG-U, the node of minimum utility,
+     *  chosen by the errors and utilities before the last signal of the batch.
+     *  Signal by signal, a node can be deleted after every signal.
+     */
+    public int miniBatchSize = 1;
+
+    /**
+     * The signals, winners and runner-ups of the current mini-batch.
+     */
+    protected float batchSignalsX[]   = new float[0];
+    protected float batchSignalsY[]   = new float[0];
+    protected int   batchFirst[]      = new int  [0];
+    protected int   batchSecond[]     = new int  [0];
+    protected float batchD1[]         = new float[0];
+    protected float batchD2[]         = new float[0];
+    protected float batchWeight[]     = new float[0];
+    protected float batchWeightU[]    = new float[0];
+
+    /**
+     * The minimum number of distance calculations of an epoch to run it in parallel.
+     */
+    protected static final long PARALLEL_MIN_WORK = 1L << 16;
 
     /**
      * The current number of discrete numSignals.
@@ -205,9 +351,9 @@ public class ComputeGNG {
     public int nEdges = 0;
 
     /**
-     * The array of the actual used edges.
+     * The array of the actual used edges. The array grows as edges are added.
      */
-    public EdgeGNG edges[] = new EdgeGNG[MAX_EDGES];
+    public EdgeGNG edges[] = new EdgeGNG[INITIAL_CAPACITY];
 
     /**
      * The flag for random init. The nodes will be placed only in the specified
@@ -266,6 +412,144 @@ public class ComputeGNG {
      */
     public boolean GNG_U_B = false;
 
+    /**
+     * The flag for using a spatial index to find the winner and the second
+     *  (GNG, GNG-U, CHL, HCL). This variable can be set by the user.
+     */
+    public boolean spatialIndexB = false;
+
+    /**
+     * The spatial index of the nodes (used if <TT>spatialIndexB</TT> is set).
+     */
+    protected final SpatialIndexGNG spatialIndex = new SpatialIndexGNG();
+
+    /**
+     * The flag for lazy decay of error, utility and tau (GNG, GNG-U).
+     *  This variable can be set by the user. If true, the values of a node
+     *  are only decayed when they are read or changed, and the nodes with
+     *  maximum error and minimum utility are kept in heaps. Together with
+     *  <TT>spatialIndexB</TT> a step does not visit all nodes any longer.
+     *  While learning, the fields <TT>error</TT>, <TT>utility</TT> and
+     *  <TT>tau</TT> of a node may lag behind; use <TT>syncDecay</TT> to
+     *  bring them up to date.
+     */
+    public boolean lazyDecayB = false;
+
+    /**
+     * True, if the lazy decay structures are valid.
+     */
+    protected boolean lazyDecayActive = false;
+
+    /**
+     * The nodes ordered by error (lazy decay). The key is the logarithm of
+     *  the error extrapolated to signal count zero, so it does not change
+     *  while the node is not touched.
+     */
+    protected final NodeHeapGNG errorHeap = new NodeHeapGNG(true);
+
+    /**
+     * The nodes ordered by utility (lazy decay).
+     */
+    protected final NodeHeapGNG utilityHeap = new NodeHeapGNG(false);
+
+    /**
+     * The nodes which may have lost their last neighbor (lazy decay).
+     *  Entries are checked when they are read.
+     */
+    protected int isolatedNodes[] = new int[16];
+
+    /**
+     * The number of entries in <TT>isolatedNodes</TT>.
+     */
+    protected int nIsolated = 0;
+
+    /**
+     * The nodes marked as winner, second or moved in the last step (lazy decay).
+     */
+    protected NodeGNG flaggedNodes[] = new NodeGNG[16];
+
+    /**
+     * The number of entries in <TT>flaggedNodes</TT>.
+     */
+    protected int nFlagged = 0;
+
+    /**
+     * The node inserted last (GNG).
+     */
+    protected NodeGNG lastInserted = null;
+
+    private double logDecayFactor;
+    private double logDecayFactorUtility;
+
+    /**
+     * The number of old positions kept as motion trace of each node,
+     *  or 0 to record no traces. This variable can be set by the user.
+     *
+     * @see NodeGNG#getTrace(float[])
+     */
+    public int traceLength = 0;
+
+    /**
+     * The trace length the current nodes have been set to.
+     */
+    private int nodesTraceLength = 0;
+
+    /**
+     * The flag for the structure-of-arrays node store (GNG, GNG-U).
+     *  This variable can be set by the user. If true, learning runs on
+     *  primitive arrays instead of the <TT>NodeGNG</TT> and <TT>EdgeGNG</TT>
+     *  objects, which are only updated as views (see <TT>nodeViewsB</TT>).
+     *  The spatial index, lazy decay and node traces are not used with the arrays.
+     */
+    public boolean nodeArraysB = false;
+
+    /**
+     * The flag for updating the node and edge objects after each call to
+     *  <TT>learn</TT> when the arrays are used. This variable can be set by the user.
+     *  If false, <TT>nodes</TT> and <TT>edges</TT> are out of date until
+     *  <TT>syncNodeViews</TT> is called; <TT>nNodes</TT> and <TT>nEdges</TT>
+     *  are always valid.
+     */
+    public boolean nodeViewsB = true;
+
+    /**
+     * The structure-of-arrays node store (used if <TT>nodeArraysB</TT> is set).
+     */
+    protected final NodeArraysGNG nodeArrays = new NodeArraysGNG();
+
+    /**
+     * True, if the arrays hold the current nodes and edges.
+     */
+    protected boolean nodeArraysActive = false;
+
+    /**
+     * True, if <TT>nodes</TT> and <TT>edges</TT> agree with the arrays.
+     */
+    protected boolean nodeViewsValid = true;
+
+    /**
+     * The flag for publishing a snapshot after <TT>learn</TT>, so that a drawing thread
+     *  can take it with <TT>acquireSnapshot</TT> without waiting for the learning thread.
+     *  A new snapshot is only made once the previous one has been taken.
+     * This variable can be set by the user.
+     */
+    public boolean snapshotB = false;
+
+    // Three snapshots are passed around: the one being written, the published one
+    // and the one being read. The writer and the reader each swap theirs for the
+    // published one, so none of them is written while it is read.
+    private final AtomicReference<SnapshotGNG> snapshotReady = new AtomicReference<SnapshotGNG>();
+    private SnapshotGNG snapshotBack    = null;  // owned by the writer
+    private SnapshotGNG snapshotFront   = null;  // owned by the reader
+
+    private int nodeViewsCount;
+    private int edgeViewsCount;
+    private int nodeArraysWidth;
+    private int nodeArraysHeight;
+    private int arraysWinner    = -1;
+    private int arraysSecond    = -1;
+    private int arraysInserted  = -1;
+
     /**
      * The flag for changed number of nodes.
      */
@@ -379,6 +663,9 @@ public class ComputeGNG {
     private float betaGNG = 0.0005f;
 
     public void setBetaGNG(float value) {
+        // the heap keys depend on the decay factors
+        if (lazyDecayActive)
+            stopLazyDecay();
         betaGNG             = value;
         decayFactorUtility  = 1.0f - betaGNG;
         decayFactor         = 1.0f - betaGNG;
@@ -465,6 +752,22 @@ public class ComputeGNG {
      */
     public float sigma = 0.9f;
 
+    /**
+     * The smallest neighborhood factor for which grid nodes are adapted
+     *  (GG, GR, SOM). Nodes beyond the corresponding grid distance are
+     *  skipped. If 0, all nodes are adapted.
+     *  This variable can be set by the user.
+     */
+    public float kernelCutoff = 0.0f;
+
+    /**
+     * The neighborhood factor for each grid distance (GG, GR, SOM).
+     */
+    protected float gridKernel[] = new float[0];
+
+    private float gridKernelSigma   = Float.NaN;
+    private int gridKernelNum       = 0;
+
     /**
      * The value sigma_i for the SOM algorithm.
      *  This variable can be set by the user.
@@ -504,11 +807,98 @@ public class ComputeGNG {
     }
 
     public void reset() {
+        if (spatialIndex.isActive())
+            spatialIndex.clear(nodes, nNodes);
+        clearLazyDecay();
+        nodeArraysActive    = false;
+        nodeViewsValid      = true;
         numSignals  = 0;
         nNodes      = 0;
         nEdges      = 0;
     }
 
+    /**
+     * Make room for the given number of nodes and their edges. The arrays grow
+     *  anyway when nodes and edges are added, but a caller who knows the size of
+     *  the network in advance avoids the copying.
+     *
+     * @param numNodes   The number of nodes
+     */
+    public void ensureCapacity(int numNodes) {
+        ensureNodeCapacity(numNodes);
+        ensureEdgeCapacity(numNodes * 3);
+    }
+
+    /**
+     * Make room for the given number of nodes. The arrays at least double in size.
+     *
+     * @param n          The number of nodes
+     */
+    protected void ensureNodeCapacity(int n) {
+        final int old = nodes.length;
+        if (n <= old)
+            return;
+        final int size = Math.max(n, old << 1);
+        nodes   = Arrays.copyOf(nodes , size);
+        sNodes  = Arrays.copyOf(sNodes, size + 1);
+        C_best  = Arrays.copyOf(C_best, size);
+    }
+
+    /**
+     * Make room for the given number of edges. The array at least doubles in size.
+     *
+     * @param n          The number of edges
+     */
+    protected void ensureEdgeCapacity(int n) {
+        final int old = edges.length;
+        if (n <= old)
+            return;
+        edges = Arrays.copyOf(edges, Math.max(n, old << 1));
+    }
+
+    /**
+     * Make room for the given number of columns and rows in the grid.
+     *
+     * @param width      The number of columns
+     * @param height     The number of rows
+     */
+    private void ensureGridCapacity(int width, int height) {
+        final int oldWidth = grid.length;
+        if (width > oldWidth)
+            grid = Arrays.copyOf(grid, Math.max(width, Math.min(oldWidth << 1, MAX_GRID_X)));
+        for (int i = 0; i < grid.length; i++) {
+            final GridNodeGNG column[] = grid[i];
+            if (column == null) {
+                grid[i] = new GridNodeGNG[height];
+            } else if (height > column.length) {
+                grid[i] = Arrays.copyOf(column, Math.max(height, Math.min(column.length << 1, MAX_GRID_Y)));
+            }
+        }
+    }
+
+    /**
+     * Make room for the given number of discrete signals.
+     *  The arrays used by LBG are allocated in <TT>learn</TT>.
+     *
+     * @param n          The number of discrete signals
+     */
+    protected void ensureDiscreteSignals(int n) {
+        if (n <= discreteSignalsX.length)
+            return;
+        discreteSignalsX        = Arrays.copyOf(discreteSignalsX, n);
+        discreteSignalsY        = Arrays.copyOf(discreteSignalsY, n);
+    }
+
+    /**
+     * Make room for the signals of one step.
+     */
+    private void ensureStepSignals() {
+        if (stepSize <= lastSignalsX.length)
+            return;
+        lastSignalsX    = new float[stepSize];
+        lastSignalsY    = new float[stepSize];
+    }
+
     /**
      * Add a node. The new node will be randomly placed within the
      *  given dimension or according to the current distribution.
@@ -517,10 +907,13 @@ public class ComputeGNG {
      * @return           The index of the new node
      */
     public int addNode(Dimension d) {
-        if ( (nNodes == MAX_NODES) || (nNodes >= maxNodes) )
+        leaveNodeArrays();
+        if (nNodes >= maxNodes)
             return -1;
+        ensureNodeCapacity(nNodes + 1);
 
         NodeGNG n = new NodeGNG();
+        n.setTraceLength(traceLength);
 
         if (rndInitB) {
             // init from Rectangle 0.8x0.8+(0.1,0.1)
@@ -538,6 +931,9 @@ public class ComputeGNG {
         if (algorithm.isDiscrete())
             n.hasMoved = true;
         nodes[nNodes] = n;
+        if (spatialIndex.isActive())
+            spatialIndex.add(n, nNodes);
+        lazyDecayAdd(nNodes);
         nNodesChangedB = true;
         return nNodes++;
     }
@@ -551,14 +947,20 @@ public class ComputeGNG {
      * @return           The index of the new node
      */
     public int addNode(int x, int y) {
-        if ( (nNodes == MAX_NODES) || (nNodes >= maxNodes) )
+        leaveNodeArrays();
+        if (nNodes >= maxNodes)
             return -1;
+        ensureNodeCapacity(nNodes + 1);
         NodeGNG n = new NodeGNG();
+        n.setTraceLength(traceLength);
         n.x = x;
         n.y = y;
         if (algorithm.isDiscrete()) // LBG
             n.hasMoved = true;
         nodes[nNodes] = n;
+        if (spatialIndex.isActive())
+            spatialIndex.add(n, nNodes);
+        lazyDecayAdd(nNodes);
         nNodesChangedB = true;
         return nNodes++;
     }
@@ -574,13 +976,18 @@ public class ComputeGNG {
      * @return           The index of the new node
      */
     protected int insertNode(int n1, int n2) {
-        if ( (nNodes == MAX_NODES) || (nNodes >= maxNodes) )
+        leaveNodeArrays();
+        if (nNodes >= maxNodes)
             return -1;
+        ensureNodeCapacity(nNodes + 1);
         if ( (n1 < 0) || (n2 < 0) )
             return -1;
         NodeGNG n = new NodeGNG();
+        n.setTraceLength(traceLength);
         float dx = (nodes[n1].x - nodes[n2].x) / 2.0f;  // XXX TODO --- could interpolate directly
         float dy = (nodes[n1].y - nodes[n2].y) / 2.0f;
+        decay(nodes[n1]);
+        decay(nodes[n2]);
         // reduce errors of neighbor nodes of the new unit
         nodes[n1].error *= (1.0f - alphaGNG);
         nodes[n2].error *= (1.0f - alphaGNG);
@@ -593,10 +1000,16 @@ public class ComputeGNG {
         n.x = nodes[n1].x - dx;     // XXX TODO --- could interpolate directly
         n.y = nodes[n1].y - dy;
         n.isMostRecentlyInserted = true;
+        lastInserted = n;
         nodes[nNodes] = n;
+        if (spatialIndex.isActive())
+            spatialIndex.add(n, nNodes);
         deleteEdge(n1, n2);
         addEdge(n1, nNodes); //n1<->new
         addEdge(n2, nNodes); //n2<->new
+        updateDecayKeys(n1);
+        updateDecayKeys(n2);
+        lazyDecayAdd(nNodes);
         nNodesChangedB = true;
 
         return nNodes++;
@@ -614,6 +1027,7 @@ public class ComputeGNG {
     protected int addGridNode(int x, int y, Dimension d) {
         if ( (x > MAX_GRID_X) || (y > MAX_GRID_Y) )
             return -1;
+        ensureGridCapacity(x + 1, y + 1);
 
         int n = addNode(d);
         nodes[n].x_grid = x;
@@ -758,6 +1172,7 @@ public class ComputeGNG {
     protected int insertRow(int y) {
         if ( (gridHeight == MAX_GRID_Y) || (nNodes + gridWidth > maxNodes) )
             return -1;
+        ensureGridCapacity(gridWidth, gridHeight + 1);
 
         int n = -1;
         int i, j;
@@ -809,6 +1224,7 @@ public class ComputeGNG {
         if ( (gridWidth == MAX_GRID_X) || (nNodes + gridHeight > maxNodes) )
             // max size or dimension reached: no further insert!
             return -1;
+        ensureGridCapacity(gridWidth + 1, gridHeight);
 
         int n = -1;
         int i, j;
@@ -860,6 +1276,7 @@ public class ComputeGNG {
      * @param n          The index of a node
      */
     protected void deleteNode(int n) {
+        leaveNodeArrays();
         NodeGNG node = nodes[n];
         int num = node.numNeighbors();
         int i;
@@ -867,122 +1284,480 @@ public class ComputeGNG {
         for (i = 0; i < num; i++)
             deleteEdge(n, node.neighbor(0));
 
+        spatialIndex.remove(node);
+        if (lazyDecayActive) {
+            errorHeap.remove(n);
+            utilityHeap.remove(n);
+        }
         nNodesChangedB = true;
         nNodes--;
         nodes[n] = nodes[nNodes];
         nodes[nNodes] = null;
+        if (n == nNodes)
+            return;
 
-        // Now rename all occurrences of nodes[nnodes] to nodes[n]
-        for (i = 0 ; i < nNodes ; i++)
-            nodes[i].replaceNeighbor(nNodes, n);
-        for (i = 0 ; i < nEdges ; i++)
-            edges[i].replace(nNodes, n);
+        spatialIndex.rename(nodes[n], n);
+        if (lazyDecayActive) {
+            errorHeap.rename(nNodes, n);
+            utilityHeap.rename(nNodes, n);
+            for (i = 0; i < nIsolated; i++)
+                if (isolatedNodes[i] == nNodes)
+                    isolatedNodes[i] = n;
+        }
 
-        return;
+        // Now rename all occurrences of nodes[nnodes] to nodes[n].
+        // Only the neighbors and incident edges of the moved node refer to it.
+        final NodeGNG moved = nodes[n];
+        num = moved.numNeighbors();
+        for (i = 0 ; i < num ; i++) {
+            nodes[moved.neighbor(i)].replaceNeighbor(nNodes, n);
+            final int e = moved.edge(i);
+            if (e != -1)
+                edges[e].replace(nNodes, n);
+        }
+        if (num > 0 && moved.edge(0) == -1) {
+            // incident edges unknown
+            for (i = 0 ; i < nEdges ; i++)
+                edges[i].replace(nNodes, n);
+        }
     }
 
     /**
-     * Connect two nodes or reset the age of their edge.
+     * Notify that the position of a node was changed directly, i.e. not
+     *  through <TT>NodeGNG.adapt</TT>, for example by dragging it with the mouse.
      *
-     * @param from          The index of the first node
-     * @param to            The index of the second node
+     * @param n          The node
      */
-    protected void addEdge(int from, int to) {
-        if (nNodes < 2)
-            return;
+    public void nodeMoved(NodeGNG n) {
+        // the arrays are imported again from the node objects
+        leaveNodeArrays();
+        if (n.index != null)
+            n.index.move(n);
+    }
 
-        if (nodes[from].isNeighbor(to)) {
-            // Find edge(from,to) and reset age
-            int i = findEdge(from, to);
+    /**
+     * Returns true, if the winner and the second are found through the spatial index.
+     *
+     * @see ComputeGNG#spatialIndexB
+     */
+    protected boolean usesSpatialIndex() {
+        return spatialIndexB && (nNodes > 0) &&
+                (algorithm.isGNGType() || algorithm == Algorithm.CHL || algorithm == Algorithm.HCL);
+    }
 
-            if (i != -1)
-                edges[i].age = 0;
-            return;
-        }
+    /**
+     * Returns true, if error, utility and tau are decayed lazily.
+     *
+     * @see ComputeGNG#lazyDecayB
+     */
+    protected boolean usesLazyDecay() {
+        return lazyDecayB && algorithm.isGNGType() && (decayFactor > 0.0f) && (decayFactorUtility > 0.0f);
+    }
 
-        if (nEdges == MAX_EDGES)
+    /**
+     * Bring error, utility and tau of all nodes up to date.
+     *  Does nothing if lazy decay is not used.
+     *
+     * @see ComputeGNG#lazyDecayB
+     */
+    public void syncDecay() {
+        if (!lazyDecayActive)
             return;
+        for (int i = 0; i < nNodes; i++)
+            decay(nodes[i]);
+    }
 
-        if ( (nodes[from].moreNeighbors()) && (nodes[to].moreNeighbors()) ) {
-            nodes[to].addNeighbor(from);
-            nodes[from].addNeighbor(to);
-        } else
+    /**
+     * Bring error, utility and tau of a node up to date (lazy decay).
+     *
+     * @param n          The node
+     */
+    protected void decay(NodeGNG n) {
+        if (!lazyDecayActive)
             return;
+        final int dt = numSignals - n.decayStep;
+        if (dt == 0)
+            return;
+        final float f  = (float) Math.pow(decayFactor, dt);
+        final float fu = (float) Math.pow(decayFactorUtility, dt);
+        n.error     *= f;
+        n.utility   *= fu;
+        n.tau       *= f;
+        n.decayStep  = numSignals;
+    }
 
-        // Add new edge
-        EdgeGNG e = new EdgeGNG();
-        e.from = from;
-        e.to = to;
-        edges[nEdges] = e;
-        nEdges++;
+    /**
+     * Update the position of a node in the error and utility heaps after
+     *  its error or utility has been changed (lazy decay).
+     *
+     * @param i          The index of a node
+     */
+    protected void updateDecayKeys(int i) {
+        if (!lazyDecayActive)
+            return;
+        final NodeGNG n = nodes[i];
+        errorHeap  .update(i, Math.log(n.error  ) - n.decayStep * logDecayFactor);
+        utilityHeap.update(i, Math.log(n.utility) - n.decayStep * logDecayFactorUtility);
     }
 
     /**
-     * Disconnect two nodes.
+     * Register a new node with the lazy decay structures.
      *
-     * @param from          The index of the first node
-     * @param to            The index of the second node
+     * @param i          The index of the node
      */
-    protected void deleteEdge(int from, int to) {
-        int i = findEdge(from, to);
-        if (i != -1) {
-            nodes[edges[i].from].deleteNeighbor(edges[i].to);
-            nodes[edges[i].to].deleteNeighbor(edges[i].from);
-            nEdges--;
-            edges[i] = edges[nEdges];
-            edges[nEdges] = null;
+    protected void lazyDecayAdd(int i) {
+        if (!lazyDecayActive)
+            return;
+        final NodeGNG n = nodes[i];
+        n.decayStep = numSignals;
+        updateDecayKeys(i);
+        if (n.numNeighbors() == 0)
+            markIsolated(i);
+    }
+
+    /**
+     * Build the lazy decay structures from the current nodes.
+     */
+    protected void startLazyDecay() {
+        logDecayFactor          = Math.log(decayFactor);
+        logDecayFactorUtility   = Math.log(decayFactorUtility);
+        lazyDecayActive         = true;
+        for (int i = 0; i < nNodes; i++) {
+            final NodeGNG n = nodes[i];
+            n.isWinner = n.isSecond = n.hasMoved = false;
+            lazyDecayAdd(i);
         }
-        return;
     }
 
     /**
-     * Delete an edge.
-     *
-     * @param edgeNr          The index of the edge
+     * Bring all nodes up to date and release the lazy decay structures.
      */
-    protected void deleteEdge(int edgeNr) {
-        nodes[edges[edgeNr].from].deleteNeighbor(edges[edgeNr].to);
-        nodes[edges[edgeNr].to].deleteNeighbor(edges[edgeNr].from);
-        nEdges--;
-        edges[edgeNr] = edges[nEdges];
-        edges[nEdges] = null;
+    protected void stopLazyDecay() {
+        syncDecay();
+        clearLazyDecay();
     }
 
     /**
-     * Find an edge. Find the edge between the two given nodes.
+     * Release the lazy decay structures without updating the nodes.
+     */
+    protected void clearLazyDecay() {
+        errorHeap.clear();
+        utilityHeap.clear();
+        nIsolated       = 0;
+        nFlagged        = 0;
+        lazyDecayActive = false;
+    }
+
+    /**
+     * Remember a node which may have lost its last neighbor (lazy decay).
      *
-     * @param from          The index of the first node
-     * @param to            The index of the second node
-     * @return              The index of the found edge or -1
+     * @param n          The index of a node
      */
-    protected int findEdge(int from, int to) {
+    protected void markIsolated(int n) {
+        if (nIsolated == isolatedNodes.length) {
+            // drop outdated entries before growing
+            int j = 0;
+            for (int i = 0; i < nIsolated; i++) {
+                final int m = isolatedNodes[i];
+                if ((m < nNodes) && (nodes[m].numNeighbors() == 0))
+                    isolatedNodes[j++] = m;
+            }
+            nIsolated = j;
+            if (nIsolated == isolatedNodes.length) {
+                final int tmp[] = new int[nIsolated << 1];
+                System.arraycopy(isolatedNodes, 0, tmp, 0, nIsolated);
+                isolatedNodes = tmp;
+            }
+        }
+        isolatedNodes[nIsolated++] = n;
+    }
 
-        for (int i = 0; i < nEdges; i++)
-            if (( (edges[i].from == from) && (edges[i].to == to) ) ||
-                    ( (edges[i].from == to) && (edges[i].to == from) ) )
-                return i;
+    /**
+     * Returns a node without neighbors or -1 (lazy decay).
+     *
+     * @return           The index of a node or -1
+     */
+    protected int findIsolated() {
+        while (nIsolated > 0) {
+            final int m = isolatedNodes[nIsolated - 1];
+            if ((m < nNodes) && (nodes[m].numNeighbors() == 0))
+                return m;
+            nIsolated--;
+        }
         return -1;
     }
 
     /**
-     * All edges starting from the given node are aged.
-     *  Too old edges are deleted.
+     * Remember a node whose winner, second or moved flag must be
+     *  cleared in the next step (lazy decay).
      *
-     * @param node          The index of a node
-     * @see ComputeGNG#maxEdgeAge
+     * @param n          The node
      */
-    protected void ageEdgesOfNode(int node) {
-        // TODO: this is inefficient for large number of edges, perhaps keep local list of edges per node
-        for (int i = nEdges - 1; i > -1; i--) {
-            if ( (edges[i].from == node) || (edges[i].to == node) )
-                edges[i].age++;
-            if (edges[i].age > maxEdgeAge)
-                deleteEdge(i);
+    protected void markFlagged(NodeGNG n) {
+        if (nFlagged == flaggedNodes.length) {
+            final NodeGNG tmp[] = new NodeGNG[nFlagged << 1];
+            System.arraycopy(flaggedNodes, 0, tmp, 0, nFlagged);
+            flaggedNodes = tmp;
         }
+        flaggedNodes[nFlagged++] = n;
     }
 
     /**
-     * Find neighbor with the highest error.
+     * Returns true, if learning runs on the structure-of-arrays node store.
+     *
+     * @see ComputeGNG#nodeArraysB
+     */
+    protected boolean usesNodeArrays() {
+        return nodeArraysB && algorithm.isGNGType() && (nNodes > 0);
+    }
+
+    /**
+     * Copy the nodes and edges into the arrays.
+     */
+    protected void startNodeArrays() {
+        if (spatialIndex.isActive())
+            spatialIndex.clear(nodes, nNodes);
+        if (lazyDecayActive)
+            stopLazyDecay();
+        nodeArrays.importFrom(nodes, nNodes, edges, nEdges);
+        nodeViewsCount      = nNodes;
+        edgeViewsCount      = nEdges;
+        nodeArraysWidth     = panelWidth;
+        nodeArraysHeight    = panelHeight;
+        arraysWinner        = -1;
+        arraysSecond        = -1;
+        arraysInserted      = -1;
+        nodeViewsValid      = true;
+        nodeArraysActive    = true;
+    }
+
+    /**
+     * Bring the node and edge objects up to date and stop using the arrays.
+     *  The next call to <TT>learn</TT> copies the objects into the arrays again.
+     */
+    protected void leaveNodeArrays() {
+        if (!nodeArraysActive)
+            return;
+        syncNodeViews();
+        nodeArraysActive = false;
+    }
+
+    /**
+     * Bring <TT>nodes</TT> and <TT>edges</TT> up to date with the arrays.
+     *  Does nothing if the arrays are not used.
+     *
+     * @see ComputeGNG#nodeViewsB
+     */
+    public void syncNodeViews() {
+        if (!nodeArraysActive || nodeViewsValid)
+            return;
+
+        final NodeArraysGNG s = nodeArrays;
+        ensureNodeCapacity(s.nNodes);
+        ensureEdgeCapacity(s.nEdges);
+        s.exportTo(nodes, edges);
+        for (int i = s.nNodes; i < nodeViewsCount; i++)
+            nodes[i] = null;
+        for (int i = s.nEdges; i < edgeViewsCount; i++)
+            edges[i] = null;
+        nodeViewsCount  = s.nNodes;
+        edgeViewsCount  = s.nEdges;
+
+        // restore the flags for teach-mode
+        if (arraysWinner != -1) {
+            final NodeGNG w = nodes[arraysWinner];
+            w.isWinner = true;
+            final int num = w.numNeighbors();
+            for (int i = 0; i < num; i++)
+                nodes[w.neighbor(i)].hasMoved = true;
+        }
+        if (arraysSecond != -1)
+            nodes[arraysSecond].isSecond = true;
+        if (arraysInserted != -1)
+            nodes[arraysInserted].isMostRecentlyInserted = true;
+
+        nodeViewsValid = true;
+    }
+
+    /**
+     * Returns the quantization error of the network, the mean squared distance
+     *  of signals to their nearest node. The signals are taken from the current
+     *  distribution, advancing the random number generator.
+     *
+     * @param num        The number of signals to take
+     * @return           The mean squared distance, or NaN if there are no nodes
+     */
+    public double quantizationError(int num) {
+        syncNodeViews();
+        final int n = nNodes;
+        if (n == 0 || num <= 0)
+            return Double.NaN;
+        final float cx[] = new float[n];
+        final float cy[] = new float[n];
+        for (int i = 0; i < n; i++) {
+            cx[i] = nodes[i].x;
+            cy[i] = nodes[i].y;
+        }
+        final float sx[] = new float[num];
+        final float sy[] = new float[num];
+        fillSignals(pd, this, sx, sy, 0, num);
+        double sum = 0.0;
+        for (int j = 0; j < num; j++) {
+            float best = Float.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                final float dx = cx[i] - sx[j];
+                final float dy = cy[i] - sy[j];
+                final float d  = dx * dx + dy * dy;
+                if (d < best) best = d;
+            }
+            sum += best;
+        }
+        return sum / num;
+    }
+
+    /**
+     * Delete a node from the arrays and keep track of the flagged nodes.
+     *
+     * @param n          The index of a node
+     */
+    private void deleteArraysNode(int n) {
+        nodeArrays.deleteNode(n);
+        final int m = nodeArrays.nNodes;   // the node moved to n
+        if      (arraysWinner   == n) arraysWinner   = -1;
+        else if (arraysWinner   == m) arraysWinner   = n;
+        if      (arraysSecond   == n) arraysSecond   = -1;
+        else if (arraysSecond   == m) arraysSecond   = n;
+        if      (arraysInserted == n) arraysInserted = -1;
+        else if (arraysInserted == m) arraysInserted = n;
+        nNodesChangedB = true;
+    }
+
+    /**
+     * Connect two nodes or reset the age of their edge.
+     *
+     * @param from          The index of the first node
+     * @param to            The index of the second node
+     */
+    protected void addEdge(int from, int to) {
+        leaveNodeArrays();
+        if (nNodes < 2)
+            return;
+
+        if (nodes[from].isNeighbor(to)) {
+            // Find edge(from,to) and reset age
+            int i = findEdge(from, to);
+
+            if (i != -1)
+                edges[i].age = 0;
+            return;
+        }
+
+        if ( (nodes[from].moreNeighbors()) && (nodes[to].moreNeighbors()) ) {
+            nodes[to].addNeighbor(from, nEdges);
+            nodes[from].addNeighbor(to, nEdges);
+        } else
+            return;
+
+        // Add new edge
+        EdgeGNG e = new EdgeGNG();
+        e.from = from;
+        e.to = to;
+        ensureEdgeCapacity(nEdges + 1);
+        edges[nEdges] = e;
+        nEdges++;
+    }
+
+    /**
+     * Disconnect two nodes.
+     *
+     * @param from          The index of the first node
+     * @param to            The index of the second node
+     */
+    protected void deleteEdge(int from, int to) {
+        int i = findEdge(from, to);
+        if (i != -1)
+            deleteEdge(i);
+    }
+
+    /**
+     * Delete an edge.
+     *
+     * @param edgeNr          The index of the edge
+     */
+    protected void deleteEdge(int edgeNr) {
+        leaveNodeArrays();
+        final int from  = edges[edgeNr].from;
+        final int to    = edges[edgeNr].to;
+        nodes[from].deleteNeighbor(to);
+        nodes[to  ].deleteNeighbor(from);
+        if (lazyDecayActive) {
+            if (nodes[from].numNeighbors() == 0)
+                markIsolated(from);
+            if (nodes[to  ].numNeighbors() == 0)
+                markIsolated(to);
+        }
+        nEdges--;
+        final EdgeGNG moved = edges[nEdges];
+        edges[edgeNr] = moved;
+        edges[nEdges] = null;
+        if (edgeNr < nEdges) {
+            // the last edge took the place of the deleted one
+            nodes[moved.from].replaceEdge(nEdges, edgeNr);
+            nodes[moved.to  ].replaceEdge(nEdges, edgeNr);
+        }
+    }
+
+    /**
+     * Find an edge. Find the edge between the two given nodes.
+     *
+     * @param from          The index of the first node
+     * @param to            The index of the second node
+     * @return              The index of the found edge or -1
+     */
+    protected int findEdge(int from, int to) {
+        final NodeGNG n = nodes[from];
+        final int num = n.numNeighbors();
+        for (int i = 0; i < num; i++) {
+            if (n.neighbor(i) == to) {
+                final int e = n.edge(i);
+                if (e != -1)
+                    return e;
+                break;
+            }
+        }
+
+        // incident edges unknown: search all edges
+        for (int i = 0; i < nEdges; i++)
+            if (( (edges[i].from == from) && (edges[i].to == to) ) ||
+                    ( (edges[i].from == to) && (edges[i].to == from) ) )
+                return i;
+        return -1;
+    }
+
+    /**
+     * All edges starting from the given node are aged.
+     *  Too old edges are deleted.
+     *
+     * @param node          The index of a node
+     * @see ComputeGNG#maxEdgeAge
+     */
+    protected void ageEdgesOfNode(int node) {
+        final NodeGNG n = nodes[node];
+        // iterate backwards, as deleting an edge moves the last incident edge into its slot
+        for (int i = n.numNeighbors() - 1; i > -1; i--) {
+            int e = n.edge(i);
+            if (e == -1)
+                e = findEdge(node, n.neighbor(i));
+            if (e == -1)
+                continue;
+            edges[e].age++;
+            if (edges[e].age > maxEdgeAge)
+                deleteEdge(e);
+        }
+    }
+
+    /**
+     * Find neighbor with the highest error.
      *
      * @param master          The index of a node
      * @return                The index of a node
@@ -994,6 +1769,7 @@ public class ComputeGNG {
         int num = nodes[master].numNeighbors();
         for (int i = 0; i < num; i++) {
             n = nodes[master].neighbor(i);
+            decay(nodes[n]);
             if (ws < nodes[n].error) {
                 ws = nodes[n].error;
                 wn = n;
@@ -1004,7 +1780,7 @@ public class ComputeGNG {
     }
 
     public void rescaleDiscreteSignals(double x, double y) {
-        for (int i = 0; i < MAX_DISCRETE_SIGNALS; i++) {
+        for (int i = 0; i < discreteSignalsX.length; i++) {
             discreteSignalsX[i] *= x;
             discreteSignalsY[i] *= y;
         }
@@ -1025,6 +1801,7 @@ public class ComputeGNG {
         int kx = 1;
         int ky = 1;
         int l = 0;
+        ensureDiscreteSignals(Math.max(numDiscreteSignals, MIXTURE_SIZE));
         float dSX[] = discreteSignalsX;
         float dSY[] = discreteSignalsY;
         log("init discrete");
@@ -1033,7 +1810,7 @@ public class ComputeGNG {
             //
             // generate a finite signal set from continuous distribution
             //
-            for (int i = 0; i < MAX_DISCRETE_SIGNALS; i++) {
+            for (int i = 0; i < numDiscreteSignals; i++) {
                 getSignal(pd);
                 discreteSignalsX[i] = SignalX;
                 discreteSignalsY[i] = SignalY;
@@ -1560,6 +2337,22 @@ public class ComputeGNG {
                 discreteSignalsY[i]=dSY[i];
             }
         }
+        numDiscreteSignalsValid = (pd == PD.DiscreteMixture) ? MIXTURE_SIZE : numDiscreteSignals;
+        discreteSignalsPD       = pd;
+    }
+
+    /**
+     * Generate discrete numSignals for the given distribution, unless the
+     *  last call of <TT>initDiscreteSignals</TT> was for the same distribution
+     *  and generated at least <TT>numDiscreteSignals</TT> of them.
+     *  The DiscreteMixture distribution always has <TT>MIXTURE_SIZE</TT> numSignals.
+     *
+     * @param pd          The specified distribution
+     */
+    public void validateDiscreteSignals(PD pd) {
+        if (pd != discreteSignalsPD ||
+                (pd != PD.DiscreteMixture && numDiscreteSignals > numDiscreteSignalsValid))
+            initDiscreteSignals(pd);
     }
     protected Point2D.Double circlePoint() {
         Point2D.Double origin = new Point2D.Double(0,0);
@@ -1584,6 +2377,64 @@ public class ComputeGNG {
         pd.getSignal(this);
     }
 
+    /**
+     * Generate the next <TT>len</TT> signals of a distribution. A <TT>BatchPD</TT>
+     *  generates them with <TT>fill</TT>. For any other distribution
+     *  <TT>getSignal</TT> is called for each signal, while <TT>numSignals</TT>
+     *  is counted up as in the learning steps. <TT>numSignals</TT>,
+     *  <TT>SignalX</TT> and <TT>SignalY</TT> are restored afterwards.
+     *
+     * @param pd         The distribution
+     * @param compute    The computation providing the panel size and the random numbers
+     * @param xs         The array for the x-positions of the signals
+     * @param ys         The array for the y-positions of the signals
+     * @param off        The index of the first signal in the arrays
+     * @param len        The number of signals
+     * @see BatchPD#fill
+     */
+    public static void fillSignals(PD pd, ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+        if (pd instanceof BatchPD) {
+            ((BatchPD) pd).fill(compute, xs, ys, off, len);
+            return;
+        }
+        final int num   = compute.numSignals;
+        final float sx  = compute.SignalX;
+        final float sy  = compute.SignalY;
+        try {
+            for (int i = 0; i < len; i++) {
+                compute.numSignals = num + 1 + i;
+                pd.getSignal(compute);
+                xs[off + i] = compute.SignalX;
+                ys[off + i] = compute.SignalY;
+            }
+        } finally {
+            compute.numSignals  = num;
+            compute.SignalX     = sx;
+            compute.SignalY     = sy;
+        }
+    }
+
+    /**
+     * Generate a single signal of a distribution with <TT>fill</TT>. The result
+     *  goes into <TT>SignalX</TT> and <TT>SignalY</TT>, and belongs to the current
+     *  <TT>numSignals</TT>. A <TT>BatchPD</TT> can implement <TT>getSignal</TT>
+     *  with this method.
+     *
+     * @param pd         The distribution
+     * @param compute    The computation providing the panel size and the random numbers
+     */
+    public static void fillSignal(BatchPD pd, ComputeGNG compute) {
+        final int num = compute.numSignals;
+        compute.numSignals = num - 1;
+        try {
+            pd.fill(compute, compute.oneSignalX, compute.oneSignalY, 0, 1);
+        } finally {
+            compute.numSignals = num;
+        }
+        compute.SignalX = compute.oneSignalX[0];
+        compute.SignalY = compute.oneSignalY[0];
+    }
+
     /**
      * Build a minimum-heap.
      *
@@ -1638,8 +2489,57 @@ public class ComputeGNG {
      *   Growing Grid (GG).
      *   Self-Organizing Map (SOM).
      *
+     * If <TT>snapshotB</TT> is set, a snapshot is published afterwards.
      */
     public synchronized void learn(Result result) {
+        learnStep(result);
+        if (snapshotB) {
+            final SnapshotGNG r = snapshotReady.get();
+            if ((r == null) || !r.fresh)
+                publishSnapshot();
+        }
+    }
+
+    /**
+     * Publish a snapshot of the current network, to be taken by <TT>acquireSnapshot</TT>.
+     */
+    public synchronized void publishSnapshot() {
+        final SnapshotGNG s = (snapshotBack == null) ? new SnapshotGNG() : snapshotBack;
+        copySnapshot(s);
+        s.fresh         = true;
+        snapshotBack    = snapshotReady.getAndSet(s);
+    }
+
+    /**
+     * Copy the current network into a snapshot owned by the caller, independent
+     *  of the snapshots published for <TT>acquireSnapshot</TT>.
+     *
+     * @param s          The snapshot to overwrite
+     */
+    public synchronized void copySnapshot(SnapshotGNG s) {
+        syncNodeViews();
+        s.copyFrom(this);
+    }
+
+    /**
+     * Returns the most recently published snapshot, or null if none has been published.
+     *  This never blocks, even while <TT>learn</TT> is running. The snapshot stays
+     *  valid until the next call, which must be made from the same thread.
+     *
+     * @see ComputeGNG#snapshotB
+     */
+    public SnapshotGNG acquireSnapshot() {
+        final SnapshotGNG r = snapshotReady.get();
+        if ((r != null) && r.fresh) {
+            final SnapshotGNG old = snapshotFront;
+            if (old != null)
+                old.fresh = false;
+            snapshotFront = snapshotReady.getAndSet(old);
+        }
+        return snapshotFront;
+    }
+
+    private void learnStep(Result result) {
         result.reset();
         //
         // learning is done for stepSize steps
@@ -1652,7 +2552,6 @@ public class ComputeGNG {
         int numNb;
         int toDelete;
         float dx, dy;
-        float dstSgmExp;
         float bestSqrDist, nextBestDist;
         float h_l = 0.0f;
         float l_t = 0.0f;
@@ -1665,7 +2564,45 @@ public class ComputeGNG {
         valueGraph = 0.0f;
 //        if (stopB)
 //            return;
+
+        if (usesNodeArrays()) {
+            learnNodeArrays(result);
+            return;
+        }
+        leaveNodeArrays();
+
+        if (traceLength != nodesTraceLength) {
+            for (i = 0; i < nNodes; i++)
+                nodes[i].setTraceLength(traceLength);
+            nodesTraceLength = traceLength;
+        }
+
+        if (usesMiniBatch()) {
+            learnMiniBatch(result);
+            return;
+        }
+
+        final boolean useIndex = usesSpatialIndex();
+        if (useIndex) {
+            if (spatialIndex.needsRebuild(nNodes, panelWidth, panelHeight))
+                spatialIndex.rebuild(nodes, nNodes, panelWidth, panelHeight);
+        } else if (spatialIndex.isActive()) {
+            spatialIndex.clear(nodes, nNodes);
+        }
+        final boolean lazy = usesLazyDecay();
+        if (lazy) {
+            if (!lazyDecayActive)
+                startLazyDecay();
+        } else if (lazyDecayActive) {
+            stopLazyDecay();
+        }
         
+        // Get the random signals of all steps out of the selected distribution
+        if (!algorithm.isDiscrete()) {
+            ensureStepSignals();
+            fillSignals(pd, this, lastSignalsX, lastSignalsY, 0, stepSize);
+        }
+
         // do stepSize adaption steps using random numSignals
         for (k = 0; k < stepSize; k++) {
 
@@ -1687,55 +2624,97 @@ public class ComputeGNG {
                 nextBestDist = Float.MAX_VALUE;
                 toDelete = -1;
 
-                // Get a random signal out of the selected distribution
-                getSignal(pd);
+                SignalX = lastSignalsX[k];
+                SignalY = lastSignalsY[k];
 
-                // Save the numSignals
-                lastSignalsX[k] = SignalX;
-                lastSignalsY[k] = SignalY;
+                if (lazy) {
+                    // Only the nodes flagged in the last step need to be reset
+                    for (i = 0; i < nFlagged; i++) {
+                        n_i = flaggedNodes[i];
+                        n_i.isWinner = n_i.isSecond = n_i.hasMoved = false;
+                        flaggedNodes[i] = null;
+                    }
+                    nFlagged = 0;
+
+                    if ((!noNewNodesGNGB) && ((numSignals % lambdaGNG) == 0) && (lastInserted != null)) {
+                        lastInserted.isMostRecentlyInserted = false;
+                        lastInserted = null;
+                    }
+
+                    toDelete = findIsolated();
+
+                    // Errors and utilities are decayed on demand, the extremes are at the heap roots
+                    numError = errorHeap.peek();
+                    decay(nodes[numError]);
+                    maxError = nodes[numError].error;
+                    minUtilityNode = utilityHeap.peek();
+                    decay(nodes[minUtilityNode]);
+                    minUtility = nodes[minUtilityNode].utility;
+                }
 
                 // Locate the nearest node (winner) and the second-nearest (runner-up)
-                for (i = 0 ; i < nNodes ; i++) {
+                for (i = 0 ; (!lazy || !useIndex) && (i < nNodes) ; i++) {
                     n_i = nodes[i];
-                    n_i.isWinner = n_i.isSecond = n_i.hasMoved = false;
-
-                    if ((algorithm.isGNGType()) && (!noNewNodesGNGB) && ((numSignals % lambdaGNG) == 0))
-                        n_i.isMostRecentlyInserted = false;
-
-                    // Mark node without neighbors (one each run is enough)
-                    if (n_i.numNeighbors() == 0)
-                        toDelete = i;
-
-                    // Calculate squared distance to input signal
-                    n_i.sqrDist =
-                            (n_i.x - SignalX) * (n_i.x - SignalX) +
-                            (n_i.y - SignalY) * (n_i.y - SignalY);
-
-                    // Decay error and utility
-                    n_i.error *= decayFactor;
-                    n_i.utility *= decayFactorUtility;
-                    n_i.tau *= decayFactor;
-
-                    // Keep track of current first and second winner
-                    if (n_i.sqrDist <= bestSqrDist) { // changed to <= to handle strange cases with all nodes in one position
-                        curr2nd = curr1st;
-                        curr2ndIdx = curr1stIdx;
-                        curr1st = n_i;
-                        curr1stIdx = i;
-                        nextBestDist = bestSqrDist;
-                        bestSqrDist = n_i.sqrDist;
-                    }
+                    if (!lazy) {
+                        n_i.isWinner = n_i.isSecond = n_i.hasMoved = false;
+
+                        if ((algorithm.isGNGType()) && (!noNewNodesGNGB) && ((numSignals % lambdaGNG) == 0))
+                            n_i.isMostRecentlyInserted = false;
 
-                    // Calculate node with maximal Error
-                    if (n_i.error > maxError) {
-                        maxError = n_i.error;
-                        numError = i;
+                        // Mark node without neighbors (one each run is enough)
+                        if (n_i.numNeighbors() == 0)
+                            toDelete = i;
+
+                        // Decay error and utility
+                        n_i.error *= decayFactor;
+                        n_i.utility *= decayFactorUtility;
+                        n_i.tau *= decayFactor;
+
+                        // Calculate node with maximal Error
+                        if (n_i.error > maxError) {
+                            maxError = n_i.error;
+                            numError = i;
+                        }
+
+                        // Calculate node with minimum utility (GNG-U)
+                        if (n_i.utility < minUtility) {
+                            minUtility = n_i.utility;
+                            minUtilityNode = i;
+                        }
                     }
 
-                    // Calculate node with minimum utility (GNG-U)
-                    if (n_i.utility < minUtility) {
-                        minUtility = n_i.utility;
-                        minUtilityNode = i;
+                    if (!useIndex) {
+                        // Calculate squared distance to input signal
+                        n_i.sqrDist =
+                                (n_i.x - SignalX) * (n_i.x - SignalX) +
+                                (n_i.y - SignalY) * (n_i.y - SignalY);
+
+                        // Keep track of current first and second winner
+                        if (n_i.sqrDist <= bestSqrDist) { // changed to <= to handle strange cases with all nodes in one position
+                            curr2nd = curr1st;
+                            curr2ndIdx = curr1stIdx;
+                            curr1st = n_i;
+                            curr1stIdx = i;
+                            nextBestDist = bestSqrDist;
+                            bestSqrDist = n_i.sqrDist;
+                        }
+                    }
+                }
+                if (useIndex) {
+                    // Ask the spatial index for the winner and the runner-up
+                    spatialIndex.findNearest(SignalX, SignalY);
+                    curr1stIdx  = spatialIndex.first;
+                    curr1st     = nodes[curr1stIdx];
+                    bestSqrDist = spatialIndex.firstSqrDist;
+                    curr1st.sqrDist = bestSqrDist;
+                    if (spatialIndex.second != -1) {
+                        curr2ndIdx  = spatialIndex.second;
+                        curr2nd     = nodes[curr2ndIdx];
+                        nextBestDist = spatialIndex.secondSqrDist;
+                        curr2nd.sqrDist = nextBestDist;
+                    } else {
+                        curr2ndIdx  = curr1stIdx;
+                        curr2nd     = curr1st;
                     }
                 }
                 //
@@ -1771,24 +2750,29 @@ public class ComputeGNG {
                 case GNGU: //does not occur, since it is mapped to GNG
                 case GNG:
                     // Find second-closest node (continued)
-                    if (curr1stIdx == curr2ndIdx) {
-                        curr2ndIdx++;
-                        nextBestDist = Float.MAX_VALUE;
-                        curr2nd = nodes[curr2ndIdx];
-                    }
-                    for (i = curr1stIdx + 1 ; i < nNodes ; i++) {
-                        //n_i = nodes[i];
-                        if (nodes[i].sqrDist < nextBestDist) {
-                            curr2nd = nodes[i];
-                            curr2ndIdx = i;
-                            nextBestDist = nodes[i].sqrDist;
+                    if (!useIndex) {
+                        if (curr1stIdx == curr2ndIdx) {
+                            curr2ndIdx++;
+                            nextBestDist = Float.MAX_VALUE;
+                            curr2nd = nodes[curr2ndIdx];
+                        }
+                        for (i = curr1stIdx + 1 ; i < nNodes ; i++) {
+                            //n_i = nodes[i];
+                            if (nodes[i].sqrDist < nextBestDist) {
+                                curr2nd = nodes[i];
+                                curr2ndIdx = i;
+                                nextBestDist = nodes[i].sqrDist;
+                            }
                         }
                     }
                     // Mark second for teach-mode
                     curr2nd.isSecond = true;
                     curr2nd.x_old = curr2nd.x;
                     curr2nd.y_old = curr2nd.y;
-
+                    if (lazy) {
+                        markFlagged(curr1st);
+                        markFlagged(curr2nd);
+                    }
 
                     // Adaptation of Winner:
                     dx = epsilonGNG * (SignalX - curr1st.x);
@@ -1803,6 +2787,8 @@ public class ComputeGNG {
                         nn = curr1st.neighbor(i);
 
                         nodes[nn].hasMoved = true;
+                        if (lazy)
+                            markFlagged(nodes[nn]);
                         curr2nd.x_old = curr2nd.x;  // XXX TODO -- doesn't make sense, should probably be `nodes[nn]`
                         curr2nd.y_old = curr2nd.y;
 
@@ -1812,10 +2798,12 @@ public class ComputeGNG {
                     }
 
                     // Accumulate square error
+                    decay(curr1st);
                     curr1st.error += bestSqrDist;
 
                     // Accumulate utility
                     curr1st.utility += (nextBestDist - bestSqrDist);
+                    updateDecayKeys(curr1stIdx);
 
                     // Connect the two winning nodes
                     addEdge(curr1stIdx, curr2ndIdx);
@@ -1898,6 +2886,11 @@ public class ComputeGNG {
                     l_t = (float)(l_i * Math.pow(l_f/l_i, numSignals /t_max));
                     e_t = (float)(e_i * Math.pow(e_f/e_i, numSignals /t_max));
 
+                    if (partialRankB) {
+                        adaptPartialRanks(l_t, false);
+                        break;
+                    }
+
                     // Build a minimum heap
                     for (i = nNodes/2; i > 0; i--)
                         buildMinimumHeap(i, nNodes);
@@ -1959,6 +2952,11 @@ public class ComputeGNG {
                     maxEdgeAge = (int) (delEdge_i *
                             Math.pow(delEdge_f/delEdge_i, numSignals /t_max));
 
+                    if (partialRankB) {
+                        adaptPartialRanks(l_t, true);
+                        break;
+                    }
+
                     // Build a minimum heap
                     for (i = nNodes/2; i > 0; i--)
                         buildMinimumHeap(i, nNodes);
@@ -2013,17 +3011,19 @@ public class ComputeGNG {
                         break;
                     }
                     // Find second node (continued)
-                    if (curr1stIdx == curr2ndIdx) {
-                        curr2ndIdx++;
-                        nextBestDist = Float.MAX_VALUE;
-                        curr2nd = nodes[curr2ndIdx];
-                    }
-                    for (i = curr1stIdx + 1 ; i < nNodes ; i++) {
-                        n_i = nodes[i];
-                        if (n_i.sqrDist < nextBestDist) {
-                            curr2nd = n_i;
-                            curr2ndIdx = i;
-                            nextBestDist = n_i.sqrDist;
+                    if (!useIndex) {
+                        if (curr1stIdx == curr2ndIdx) {
+                            curr2ndIdx++;
+                            nextBestDist = Float.MAX_VALUE;
+                            curr2nd = nodes[curr2ndIdx];
+                        }
+                        for (i = curr1stIdx + 1 ; i < nNodes ; i++) {
+                            n_i = nodes[i];
+                            if (n_i.sqrDist < nextBestDist) {
+                                curr2nd = n_i;
+                                curr2ndIdx = i;
+                                nextBestDist = n_i.sqrDist;
+                            }
                         }
                     }
                     // Mark second for teach-mode
@@ -2072,28 +3072,7 @@ public class ComputeGNG {
                         e_t = e_i;
                     }
 
-                    int dist;
-                    for (i = 0; i < gridWidth; i++) {
-                        for (j = 0; j < gridHeight; j++) {
-                            if (torusGGB) {
-                            // Manhattan Torus Distance
-                                float xxx = Math.min(Math.abs(x-i), Math.min(x+Math.abs(gridWidth-1-i),i+Math.abs(gridWidth-1-x)));
-                                dist = (int) xxx + Math.abs(y - j);
-                            } else {
-                                // Manhattan Distance
-                                dist = Math.abs(x - i) + Math.abs(y - j);
-                            }
-                            node = grid[i][j].node;
-
-                            dstSgmExp = (float) (Math.exp(-(dist*dist)/(2.0 * sigma * sigma)));
-                            dx = e_t * dstSgmExp * (SignalX - node.x);
-                            dy = e_t * dstSgmExp * (SignalY - node.y);
-                            node.adapt(dx, dy);
-
-                            if ( dstSgmExp > 0.5f )
-                                node.isSecond = true;
-                        }
-                    }
+                    adaptGrid(x, y, torusGGB);
 
                     // Check inserting nodes and insert if necessary
                     if ( (numSignals % (gridWidth * gridHeight * l_i) == 0) && (!fineTuningB) ) {
@@ -2132,28 +3111,7 @@ public class ComputeGNG {
                     e_t = (float)(e_i * Math.pow(e_f/e_i, numSignals /t_max));
                     sigma = (float)(sigma_i * Math.pow(sigma_f, numSignals /t_max));
 
-                    for (i = 0; i < gridWidth; i++) {
-                        for (j = 0; j < gridHeight; j++) {
-                            // Distance
-                            if (torusSOMB) {
-                                // Manhattan Torus Distance
-                                float xxx = Math.min(Math.abs(x-i), Math.min(x+Math.abs(gridWidth-1-i),i+Math.abs(gridWidth-1-x)));
-                                dist = (int) xxx + Math.abs(y - j);
-                            } else {
-                                // Manhattan Distance
-                                dist = Math.abs(x - i) + Math.abs(y - j);
-                            }
-                            node = grid[i][j].node;
-
-                            dstSgmExp = (float) (Math.exp(-(dist*dist)/(2.0 * sigma * sigma)));
-                            dx = e_t * dstSgmExp * (SignalX - node.x);
-                            dy = e_t * dstSgmExp * (SignalY - node.y);
-                            node.adapt(dx, dy);
-
-                            if ( dstSgmExp > 0.5f )
-                                node.isSecond = true;
-                        }
-                    }
+                    adaptGrid(x, y, torusSOMB);
 
                     break;
                 case LBG:
@@ -2169,117 +3127,82 @@ public class ComputeGNG {
                 // discrete algorithm (LBG/LBG-U)
                 //
                 readyLBG_B = true;
-                int noOfSignals, sig;
                 int wa = 0, wb = 0;
-                float bestDistLBG, nextBestDistLBG;
-                float utility = 0.0f;
                 float minUtilityLBG = Float.MAX_VALUE;
-                float error = 0.0f;
                 float maxErrorLBG = 0.0f;
                 float errorAct = 0.0f;
-                PointFloat2D tmpFP;
-
-                curr1stIdx = 0;
 
-                // loop over finite set of input numSignals
-                for (j = 0; j < numDiscreteSignals; j++) {
-                    curr1st = nodes[0];
-                    curr2nd = nodes[0];
-                    bestDistLBG = Float.MAX_VALUE;
-                    nextBestDistLBG = Float.MAX_VALUE;
-
-                    // Locate the nearest node and prepare for the second
-                    for (i = 0; i < nNodes; i++) {
-                        n_i = nodes[i];
-
-                        // Calculate distance
-                        n_i.sqrDist = (n_i.x - discreteSignalsX[j]) *
-                                (n_i.x - discreteSignalsX[j]) +
-                                (n_i.y - discreteSignalsY[j]) *
-                                (n_i.y - discreteSignalsY[j]);
-
-                        // Calculate node with best distance and prepare for second
-                        if (n_i.sqrDist < bestDistLBG) {
-                            curr2nd = curr1st;
-                            curr1stIdx = i;
-                            curr1st = n_i;
-                            nextBestDistLBG = bestDistLBG;
-                            bestDistLBG = n_i.sqrDist;
-                        }
-                    }
-
-                    // Store distance to the nearest codebook vector (LBG-U)
-                    discreteSignalsD1[j] = bestDistLBG;
-                    errorAct += bestDistLBG;
-
-                    // Add signal index to the winning codebook vector
-                    curr1st.addSignal(j);
-
-                    // Find node with second best distance
-                    if (curr1st == curr2nd)
-                        nextBestDistLBG = Float.MAX_VALUE;
-
-                    for (i = curr1stIdx + 1; i < nNodes; i++) {
-                        n_i = nodes[i];
-
-                        if (n_i.sqrDist < nextBestDistLBG) {
-                            curr2nd = n_i;
-                            nextBestDistLBG = n_i.sqrDist;
-                        }
-                    }
+                if (codebookX.length < nNodes) {
+                    codebookX           = new float[nNodes];
+                    codebookY           = new float[nNodes];
+                    codebookError       = new float[nNodes];
+                    codebookUtility     = new float[nNodes];
+                    nodeSignalsOffset   = new int[nNodes + 1];
+                }
+                // the number of signals may have been raised without a new signal set
+                validateDiscreteSignals(pd);
+                if (discreteSignalsD1.length < numDiscreteSignals) {
+                    discreteSignalsD1       = new float[numDiscreteSignals];
+                    discreteSignalsD2       = new float[numDiscreteSignals];
+                    discreteSignalsWinner   = new int  [numDiscreteSignals];
+                    discreteSignalsSorted   = new int  [numDiscreteSignals];
+                }
+                for (i = 0; i < nNodes; i++) {
+                    codebookX[i] = nodes[i].x;
+                    codebookY[i] = nodes[i].y;
+                }
+                final ForkJoinPool pool = (parallelB && ((long) numDiscreteSignals * nNodes >= PARALLEL_MIN_WORK))
+                        ? getForkJoinPool() : null;
 
-                    // Store distance to the second nearest codebook vector (LBG-U)
-                    discreteSignalsD2[j] = nextBestDistLBG;
+                // Locate the nearest and the second-nearest node of all signals
+                if (pool != null)
+                    pool.invoke(new RangeTask(TASK_ASSIGN_LBG, 0, numDiscreteSignals, grainSize(pool, numDiscreteSignals)));
+                else
+                    assignDiscreteSignals(0, numDiscreteSignals);
 
+                final int[] offset = nodeSignalsOffset;
+                for (i = 0; i <= nNodes; i++)
+                    offset[i] = 0;
+                for (j = 0; j < numDiscreteSignals; j++) {
+                    final float bestDistLBG = discreteSignalsD1[j];
+                    errorAct    += bestDistLBG;
+                    valueGraph  += bestDistLBG;
+                    offset[discreteSignalsWinner[j] + 1]++;
+                }
 
-                    valueGraph += bestDistLBG;
+                // Sort the signals by winner (counting sort)
+                for (i = 0; i < nNodes; i++)
+                    offset[i + 1] += offset[i];
+                for (j = 0; j < numDiscreteSignals; j++) {
+                    final int w = discreteSignalsWinner[j];
+                    discreteSignalsSorted[offset[w]++] = j;
                 }
+                // the offsets have been shifted by one node
+                for (i = nNodes; i > 0; i--)
+                    offset[i] = offset[i - 1];
+                offset[0] = 0;
 
-                minUtilityLBG = Float.MAX_VALUE;
-                maxErrorLBG = 0.0f;
                 // Adapt selected nodes
-                for (l = 0; l < nNodes; l++) {
-                    n_i = nodes[l];
-                    tmpFP = new PointFloat2D(n_i.x, n_i.y);
-                    utility = 0.0f;
-                    error = 0.0f;
-
-                    noOfSignals = n_i.numSignals();
-
-                    if (noOfSignals > 0) {
-                        for (m = 0; m < noOfSignals; m++) {
-                            sig = n_i.removeSignal();
-                            dx = discreteSignalsX[sig];
-                            dy = discreteSignalsY[sig];
-                            n_i.adapt(dx, dy);
-
-                            // calculate utility
-                            utility += (discreteSignalsD2[sig] -
-                                    discreteSignalsD1[sig]);
-                            // calculate error
-                            error += discreteSignalsD1[sig];
-
-                        }
-                        n_i.x /= (noOfSignals + 1.0f);
-                        n_i.y /= (noOfSignals + 1.0f);
+                if (pool != null)
+                    pool.invoke(new RangeTask(TASK_CODEBOOK_LBG, 0, nNodes, grainSize(pool, nNodes)));
+                else
+                    updateCodebook(0, nNodes);
 
+                for (l = 0; l < nNodes; l++) {
+                    if (offset[l + 1] > offset[l]) {
                         // nodes moved?
-                        if (!tmpFP.equal(n_i.x, n_i.y)) {
-                            n_i.hasMoved = true;
+                        if (nodes[l].hasMoved)
                             readyLBG_B = false;
-                        } else {
-                            n_i.hasMoved = false;
-                        }
 
                         // determine minimum utility
-                        if (utility < minUtilityLBG) {
+                        if (codebookUtility[l] < minUtilityLBG) {
                             wa = l;
-                            minUtilityLBG = utility;
+                            minUtilityLBG = codebookUtility[l];
                         }
                         // determine maximum error
-                        if (error > maxErrorLBG) {
+                        if (codebookError[l] > maxErrorLBG) {
                             wb = l;
-                            maxErrorLBG = error;
+                            maxErrorLBG = codebookError[l];
                         }
                     }
                 }
@@ -2291,8 +3214,9 @@ public class ComputeGNG {
                     if (readyLBG_B && (errorAct < errorBestLBG_U) ) {
                         // Save old positions
                         for (i = 0; i < nNodes; i++) {
-                            C_best[i] = new PointFloat2D(nodes[i].x,
-                                    nodes[i].y);
+                            if (C_best[i] == null)
+                                C_best[i] = new PointFloat2D();
+                            C_best[i].set(nodes[i].x, nodes[i].y);
                         }
                         readyLBG_B = false;
                         errorBestLBG_U = errorAct;
@@ -2325,6 +3249,700 @@ public class ComputeGNG {
         return;
     }
 
+    /**
+     * Find the nearest and the second-nearest node of the discrete signals
+     *  in the given range (LBG). The results go into <TT>discreteSignalsWinner</TT>,
+     *  <TT>discreteSignalsD1</TT> and <TT>discreteSignalsD2</TT>. The node positions
+     *  are read from <TT>codebookX</TT> and <TT>codebookY</TT>.
+     *
+     * @param from       The index of the first signal
+     * @param to         The index after the last signal
+     */
+    protected void assignDiscreteSignals(int from, int to) {
+        findNearestTwo(codebookX, codebookY, nNodes, discreteSignalsX, discreteSignalsY, from, to,
+                discreteSignalsWinner, null, discreteSignalsD1, discreteSignalsD2, false);
+    }
+
+    /**
+     * Move the nodes in the given range to the centroid of their signals (LBG).
+     *  The signals must have been sorted into <TT>discreteSignalsSorted</TT>.
+     *  The error and utility of each node go into <TT>codebookError</TT>
+     *  and <TT>codebookUtility</TT>.
+     *
+     * @param from       The index of the first node
+     * @param to         The index after the last node
+     */
+    protected void updateCodebook(int from, int to) {
+        final int[] offset = nodeSignalsOffset;
+        for (int l = from; l < to; l++) {
+            final int start = offset[l];
+            final int stop  = offset[l + 1];
+            if (stop == start)
+                continue;
+
+            final NodeGNG n = nodes[l];
+            final float oldX = n.x;
+            final float oldY = n.y;
+            float sumX      = oldX;
+            float sumY      = oldY;
+            float utility   = 0.0f;
+            float error     = 0.0f;
+            // last signal first, as the sums used to be built from a stack
+            for (int m = stop - 1; m >= start; m--) {
+                final int sig = discreteSignalsSorted[m];
+                sumX += discreteSignalsX[sig];
+                sumY += discreteSignalsY[sig];
+                utility += (discreteSignalsD2[sig] - discreteSignalsD1[sig]);
+                error   += discreteSignalsD1[sig];
+            }
+            final int noOfSignals = stop - start;
+            n.x = sumX / (noOfSignals + 1.0f);
+            n.y = sumY / (noOfSignals + 1.0f);
+            n.hasMoved = (oldX != n.x) || (oldY != n.y);
+            codebookError  [l] = error;
+            codebookUtility[l] = utility;
+        }
+    }
+
+    /**
+     * Returns the pool used for parallel learning.
+     *
+     * @see ComputeGNG#forkJoinPool
+     */
+    protected ForkJoinPool getForkJoinPool() {
+        final ForkJoinPool pool = forkJoinPool;
+        return (pool != null) ? pool : DefaultPool.INSTANCE;
+    }
+
+    // the size of the ranges which a parallel task handles without splitting them
+    private static int grainSize(ForkJoinPool pool, int total) {
+        return Math.max(16, total / (pool.getParallelism() * 4));
+    }
+
+    /**
+     * A task running one of the parallel parts of learning on a range of
+     *  signals or nodes. Each signal and each node is handled by exactly one task,
+     *  so the result does not depend on the number of threads.
+     */
+    private final class RangeTask extends RecursiveAction {
+        private final int from, to, grain, what;
+
+        RangeTask(int what, int from, int to, int grain) {
+            this.what   = what;
+            this.from   = from;
+            this.to     = to;
+            this.grain  = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                switch (what) {
+                    case TASK_ASSIGN_LBG:
+                        assignDiscreteSignals(from, to);
+                        break;
+                    case TASK_CODEBOOK_LBG:
+                        updateCodebook(from, to);
+                        break;
+                    case TASK_BATCH_GNG:
+                        findBatchWinners(from, to);
+                        break;
+                }
+            } else {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(what, from, mid, grain), new RangeTask(what, mid, to, grain));
+            }
+        }
+    }
+
+    private static final int TASK_ASSIGN_LBG    = 0;
+    private static final int TASK_CODEBOOK_LBG  = 1;
+    private static final int TASK_BATCH_GNG     = 2;
+
+    /**
+     * Find the nearest and the second-nearest node of a range of signals.
+     *  Ties for the nearest node are resolved in favor of the lower node index,
+     *  or of the higher one if <TT>lastWins</TT> is set, as in the sequential
+     *  winner search of GNG.
+     *
+     * @param cx         The x-positions of the nodes
+     * @param cy         The y-positions of the nodes
+     * @param n          The number of nodes
+     * @param sigX       The x-positions of the signals
+     * @param sigY       The y-positions of the signals
+     * @param from       The index of the first signal
+     * @param to         The index after the last signal
+     * @param first      The nearest node of each signal
+     * @param second     The second-nearest node of each signal (-1 if none), or null
+     * @param d1         The squared distance of the nearest node
+     * @param d2         The squared distance of the second-nearest node
+     * @param lastWins   If true, the higher node index wins a tie for the nearest node
+     */
+    protected static void findNearestTwo(float cx[], float cy[], int n, float sigX[], float sigY[],
+                                         int from, int to, int first[], int second[], float d1[], float d2[],
+                                         boolean lastWins) {
+        for (int j = from; j < to; j++) {
+            final float sx = sigX[j];
+            final float sy = sigY[j];
+            int w1      = 0;
+            int w2      = -1;
+            float b1    = Float.MAX_VALUE;
+            float b2    = Float.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                final float d = (cx[i] - sx) * (cx[i] - sx) + (cy[i] - sy) * (cy[i] - sy);
+                if (d < b1 || (lastWins && d == b1)) {
+                    w2 = w1;
+                    b2 = b1;
+                    w1 = i;
+                    b1 = d;
+                } else if (d < b2) {
+                    w2 = i;
+                    b2 = d;
+                }
+            }
+            first[j]    = w1;
+            if (second != null)
+                second[j] = (b2 == Float.MAX_VALUE) ? -1 : w2;
+            d1[j]       = b1;
+            d2[j]       = b2;
+        }
+    }
+
+    /**
+     * Adapt the nodes according to their rank (NG, NGwCHL), taking only the
+     *  ranks into account whose neighborhood factor is at least <TT>rankTolerance</TT>.
+     *  The K nearest nodes are selected with a bounded maximum heap and
+     *  then taken in order from a minimum heap, which is O(n log K) instead of
+     *  O(n log n) for ranking all nodes. The squared distances of the nodes
+     *  must be up to date.
+     *
+     * @param l_t        The current neighborhood range lambda(t)
+     * @param chl        If true, connect the two nearest nodes (NGwCHL)
+     */
+    protected void adaptPartialRanks(float l_t, boolean chl) {
+        final int n = nNodes;
+        int k = n;
+        if ((rankTolerance > 0.0f) && (rankTolerance < 1.0f)) {
+            final double maxRank = -l_t * Math.log(rankTolerance);
+            if (maxRank < n - 1)
+                k = Math.max(2, (int) maxRank + 1);
+        }
+
+        // Select the k nearest nodes with a maximum heap
+        if (rankNodes.length < k)
+            rankNodes = new int[Math.max(k, rankNodes.length << 1)];
+        final int heap[] = rankNodes;
+        int size = 0;
+        if (k >= n) {
+            for (; size < n; size++)
+                heap[size] = size;
+        } else for (int i = 0; i < n; i++) {
+            if (size < k) {
+                int j = size++;
+                while (j > 0) {
+                    final int parent = (j - 1) >> 1;
+                    if (!rankBefore(heap[parent], i))
+                        break;
+                    heap[j] = heap[parent];
+                    j = parent;
+                }
+                heap[j] = i;
+            } else if (rankBefore(i, heap[0])) {
+                siftDownRank(heap, i, 0, size, true);
+            }
+        }
+
+        // Turn it into a minimum heap
+        for (int j = (size >> 1) - 1; j >= 0; j--)
+            siftDownRank(heap, heap[j], j, size, false);
+
+        // Fetch minimum, calculate new position and reheap
+        int first = -1;
+        for (int r = 0; size > 0; r++) {
+            final int minimum = heap[0];
+            size--;
+            if (size > 0)
+                siftDownRank(heap, heap[size], 0, size, false);
+            final NodeGNG n_i = nodes[minimum];
+
+            if (r == 0) {
+                first = minimum;
+            } else if (r == 1) {
+                // Mark second for teach-mode
+                n_i.isSecond = true;
+                if (chl) {
+                    // Connect the first and the second node
+                    addEdge(first, minimum);
+                    // Calculate the age of the connected edges and delete too old edges
+                    ageEdgesOfNode(first);
+                }
+            }
+
+            final float h_l = (float)(Math.exp(-r/l_t));
+
+            // Adapt nodes
+            final float dx = e_t * h_l * (SignalX - n_i.x);
+            final float dy = e_t * h_l * (SignalY - n_i.y);
+            n_i.adapt(dx, dy);
+
+            if ( (Math.abs(dx) < 1.0) &&
+                    (Math.abs(dy) < 1.0) &&
+                    (r > 1) )
+                break;
+        }
+    }
+
+    /**
+     * Adapt the grid nodes towards the signal, weighted by the neighborhood
+     *  factor <TT>exp(-d^2/(2 sigma^2))</TT> of their Manhattan distance d to the
+     *  winner in the grid (GG, GR, SOM). The factors are tabulated per sigma,
+     *  and only nodes within the cutoff radius given by <TT>kernelCutoff</TT>
+     *  are visited.
+     *
+     * @param x          The x index of the winner in the grid
+     * @param y          The y index of the winner in the grid
+     * @param torus      If true, use the torus distance along x
+     */
+    protected void adaptGrid(int x, int y, boolean torus) {
+        int radius = gridWidth + gridHeight - 2;
+        if ((kernelCutoff > 0.0f) && (kernelCutoff < 1.0f)) {
+            final double r = Math.sqrt(-2.0 * sigma * sigma * Math.log(kernelCutoff));
+            if (r < radius)
+                radius = (int) r;
+        }
+
+        // The neighborhood factors are recalculated if sigma has changed
+        if (sigma != gridKernelSigma) {
+            gridKernelSigma = sigma;
+            gridKernelNum   = 0;
+        }
+        if (radius >= gridKernelNum) {
+            if (gridKernel.length <= radius) {
+                final float newKernel[] = new float[Math.max(radius + 1, gridKernel.length << 1)];
+                System.arraycopy(gridKernel, 0, newKernel, 0, gridKernelNum);
+                gridKernel = newKernel;
+            }
+            for (int dist = gridKernelNum; dist <= radius; dist++)
+                gridKernel[dist] = (float) (Math.exp(-(dist*dist)/(2.0 * sigma * sigma)));
+            gridKernelNum = radius + 1;
+        }
+
+        for (int i = 0; i < gridWidth; i++) {
+            final int distX;
+            if (torus) {
+                // Manhattan Torus Distance
+                distX = Math.min(Math.abs(x-i), Math.min(x+Math.abs(gridWidth-1-i),i+Math.abs(gridWidth-1-x)));
+            } else {
+                // Manhattan Distance
+                distX = Math.abs(x - i);
+            }
+            final int rest = radius - distX;
+            if (rest < 0)
+                continue;
+
+            final GridNodeGNG column[] = grid[i];
+            final int jStop = Math.min(gridHeight - 1, y + rest);
+            for (int j = Math.max(0, y - rest); j <= jStop; j++) {
+                final NodeGNG node = column[j].node;
+                final float dstSgmExp = gridKernel[distX + Math.abs(y - j)];
+                final float dx = e_t * dstSgmExp * (SignalX - node.x);
+                final float dy = e_t * dstSgmExp * (SignalY - node.y);
+                node.adapt(dx, dy);
+
+                if ( dstSgmExp > 0.5f )
+                    node.isSecond = true;
+            }
+        }
+    }
+
+    /**
+     * Returns true, if node <TT>a</TT> is nearer to the signal than
+     *  node <TT>b</TT>. Equal distances are ordered by index.
+     */
+    private boolean rankBefore(int a, int b) {
+        final float da = nodes[a].sqrDist;
+        final float db = nodes[b].sqrDist;
+        return (da < db) || ((da == db) && (a < b));
+    }
+
+    /**
+     * Put a node at a position of a heap of node indices (ordered by distance)
+     *  and move it down until the heap is restored.
+     *
+     * @param heap       The heap
+     * @param node       The index of the node
+     * @param j          The position in the heap
+     * @param size       The size of the heap
+     * @param max        If true, the root is the farthest node, otherwise the nearest
+     */
+    private void siftDownRank(int heap[], int node, int j, int size, boolean max) {
+        final int half = size >> 1;
+        while (j < half) {
+            int child = (j << 1) + 1;
+            final int right = child + 1;
+            if ((right < size) &&
+                    (max ? rankBefore(heap[child], heap[right]) : rankBefore(heap[right], heap[child])))
+                child = right;
+            if (max ? !rankBefore(node, heap[child]) : !rankBefore(heap[child], node))
+                break;
+            heap[j] = heap[child];
+            j = child;
+        }
+        heap[j] = node;
+    }
+
+    /**
+     * Returns true, if GNG runs in mini-batches.
+     *
+     * @see ComputeGNG#miniBatchSize
+     */
+    protected boolean usesMiniBatch() {
+        return (miniBatchSize > 1) && algorithm.isGNGType() && (nNodes > 1);
+    }
+
+    /**
+     * Find the winners and runner-ups of a range of signals of the current mini-batch.
+     *
+     * @param from       The index of the first signal
+     * @param to         The index after the last signal
+     */
+    protected void findBatchWinners(int from, int to) {
+        findNearestTwo(codebookX, codebookY, nNodes, batchSignalsX, batchSignalsY, from, to,
+                batchFirst, batchSecond, batchD1, batchD2, true);
+    }
+
+    /**
+     * Do <TT>stepSize</TT> steps of GNG or GNG-U in mini-batches.
+     *
+     * @param result     The result of the steps
+     * @see ComputeGNG#miniBatchSize
+     */
+    protected void learnMiniBatch(Result result) {
+        if (spatialIndex.isActive())
+            spatialIndex.clear(nodes, nNodes);
+        if (lazyDecayActive)
+            stopLazyDecay();
+
+        if (batchSignalsX.length < miniBatchSize) {
+            batchSignalsX   = new float[miniBatchSize];
+            batchSignalsY   = new float[miniBatchSize];
+            batchFirst      = new int  [miniBatchSize];
+            batchSecond     = new int  [miniBatchSize];
+            batchD1         = new float[miniBatchSize];
+            batchD2         = new float[miniBatchSize];
+            batchWeight     = new float[miniBatchSize];
+            batchWeightU    = new float[miniBatchSize];
+        }
+
+        // Get the random signals of all steps out of the selected distribution
+        ensureStepSignals();
+        fillSignals(pd, this, lastSignalsX, lastSignalsY, 0, stepSize);
+
+        int k = 0;
+        while (k < stepSize) {
+            // the batch ends at the next insertion step
+            int size = Math.min(miniBatchSize, stepSize - k);
+            size = Math.min(size, lambdaGNG - (numSignals % lambdaGNG));
+
+            System.arraycopy(lastSignalsX, k, batchSignalsX, 0, size);
+            System.arraycopy(lastSignalsY, k, batchSignalsY, 0, size);
+            numSignals += size;
+            k += size;
+
+            // The sequential steps decay all nodes before each signal. The errors
+            // and utilities accumulated so far are thus decayed once for the whole
+            // batch, and the error and utility of each signal are weighted with the
+            // decay of the signals after it.
+            float weight    = 1.0f;
+            float weightU   = 1.0f;
+            for (int j = size - 1; j >= 0; j--) {
+                batchWeight [j] = weight;
+                batchWeightU[j] = weightU;
+                weight     *= decayFactor;
+                weightU    *= decayFactorUtility;
+            }
+            final float decay   = weight;
+            final float decayU  = weightU;
+
+            // Take a snapshot of the node positions, clear the flags and decay
+            if (codebookX.length < nNodes) {
+                codebookX = new float[nNodes];
+                codebookY = new float[nNodes];
+            }
+            for (int i = 0; i < nNodes; i++) {
+                final NodeGNG n = nodes[i];
+                n.isWinner = n.isSecond = n.hasMoved = false;
+                codebookX[i] = n.x;
+                codebookY[i] = n.y;
+                n.error     *= decay;
+                n.utility   *= decayU;
+                n.tau       *= decay;
+            }
+
+            // Locate winner and runner-up of all signals
+            if (parallelB && ((long) size * nNodes >= PARALLEL_MIN_WORK)) {
+                final ForkJoinPool pool = getForkJoinPool();
+                pool.invoke(new RangeTask(TASK_BATCH_GNG, 0, size, grainSize(pool, size)));
+            } else
+                findBatchWinners(0, size);
+
+            // Apply the signals in their order. As in the sequential steps, the
+            // maximum error, minimum utility and a node without neighbors are
+            // found before the last signal is applied.
+            int numError = 0, minUtilityNode = 0, toDelete = -1;
+            float maxError = 0.0f, minUtility = Float.MAX_VALUE;
+            for (int j = 0; j < size; j++) {
+                if (j == size - 1) {
+                    for (int i = 0; i < nNodes; i++) {
+                        final NodeGNG n = nodes[i];
+                        if (n.numNeighbors() == 0)
+                            toDelete = i;
+                        if (n.error > maxError) {
+                            maxError = n.error;
+                            numError = i;
+                        }
+                        if (n.utility < minUtility) {
+                            minUtility = n.utility;
+                            minUtilityNode = i;
+                        }
+                    }
+                }
+
+                final int w = batchFirst[j];
+                final int r = batchSecond[j];
+                final NodeGNG curr1st = nodes[w];
+                if (Float.isNaN(curr1st.x)) { // hack
+                    System.out.printf("learn(): Float.isNaN(pick.x) stopping .....\n");
+                    result.stop = true;
+                    return;
+                }
+                final float sx = batchSignalsX[j];
+                final float sy = batchSignalsY[j];
+                final float bestSqrDist     = batchD1[j];
+                final float nextBestDist    = batchD2[j];
+                valueGraph += bestSqrDist;
+
+                // Adaptation of Winner:
+                curr1st.adapt(epsilonGNG * (sx - curr1st.x), epsilonGNG * (sy - curr1st.y));
+
+                // Adaptation of Neighbors:
+                final int numNb = curr1st.numNeighbors();
+                for (int i = 0; i < numNb; i++) {
+                    final NodeGNG nb = nodes[curr1st.neighbor(i)];
+                    nb.adapt(epsilonGNG2 * (sx - nb.x), epsilonGNG2 * (sy - nb.y));
+                }
+
+                // Accumulate square error and utility
+                curr1st.error   += bestSqrDist * batchWeight[j];
+                curr1st.utility += (nextBestDist - bestSqrDist) * batchWeightU[j];
+
+                // Connect the two winning nodes
+                if (r != -1)
+                    addEdge(w, r);
+
+                // Calculate the age of the connected edges and delete too old edges
+                ageEdgesOfNode(w);
+
+                if (j == size - 1) {
+                    // Mark winner, second and moved nodes of the last signal for teach-mode
+                    curr1st.isWinner = true;
+                    for (int i = 0; i < curr1st.numNeighbors(); i++)
+                        nodes[curr1st.neighbor(i)].hasMoved = true;
+                    if (r != -1)
+                        nodes[r].isSecond = true;
+                }
+            }
+
+            // Check inserting node and insert if necessary
+            if ( (numSignals % lambdaGNG) == 0 ) {
+                for (int i = 0; i < nNodes; i++)
+                    nodes[i].isMostRecentlyInserted = false;
+                if (!noNewNodesGNGB) {
+                    if (autoStopB) {
+                        if (nNodes >= maxNodes || (GNG_U_B && (numSignals > 300000))) {
+                            result.stop = true;
+                            continue;
+                        }
+                    }
+                    insertNode(numError, maximumErrorNeighbor(numError));
+                }
+            }
+
+            // Delete Node without Neighbors (not GNG-U)
+            if ((toDelete != -1) && (nNodes > 2) && !GNG_U_B )
+                deleteNode(toDelete);
+            // Delete Node with very low utility
+            else {
+                if ( maxError > minUtility * utilityGNG) {
+                    if (GNG_U_B && (nNodes > 2)) {
+                        deleteNode(minUtilityNode);
+                    }
+                } else if (  (nNodes > 2) && (nNodes > maxNodes) ) {
+                    // relevant if maxnodes is lowered during the simulation
+                    deleteNode(minUtilityNode);
+                }
+            }
+        }
+    }
+
+    /**
+     * Do <TT>stepSize</TT> steps of GNG or GNG-U on the structure-of-arrays
+     *  node store. The steps are the same as in <TT>learn</TT>.
+     *
+     * @param result     The result of the steps
+     * @see ComputeGNG#nodeArraysB
+     */
+    protected void learnNodeArrays(Result result) {
+        final NodeArraysGNG s = nodeArrays;
+        if (nodeArraysActive && ((panelWidth != nodeArraysWidth) || (panelHeight != nodeArraysHeight)))
+            leaveNodeArrays();  // the node objects have been rescaled
+        if (!nodeArraysActive)
+            startNodeArrays();
+
+        // Get the random signals of all steps out of the selected distribution
+        ensureStepSignals();
+        fillSignals(pd, this, lastSignalsX, lastSignalsY, 0, stepSize);
+
+        for (int k = 0; k < stepSize; k++) {
+            numSignals++;
+
+            final float sx = lastSignalsX[k];
+            final float sy = lastSignalsY[k];
+            SignalX = sx;
+            SignalY = sy;
+
+            final int n             = s.nNodes;
+            final float x[]         = s.x;
+            final float y[]         = s.y;
+            final float error[]     = s.error;
+            final float utility[]   = s.utility;
+            final float tau[]       = s.tau;
+            final float sqrDist[]   = s.sqrDist;
+            final int nNeighbor[]   = s.nNeighbor;
+
+            int first = 0, second = 0, numError = 0, minUtilityNode = 0, toDelete = -1;
+            float bestSqrDist   = Float.MAX_VALUE;
+            float nextBestDist  = Float.MAX_VALUE;
+            float maxError      = 0.0f;
+            float minUtility    = Float.MAX_VALUE;
+            int i;
+
+            // Decay, locate the winner and the runner-up, the maximum error and the minimum utility
+            for (i = 0; i < n; i++) {
+                // Mark node without neighbors (one each run is enough)
+                if (nNeighbor[i] == 0)
+                    toDelete = i;
+
+                final float e = error[i] * decayFactor;
+                final float u = utility[i] * decayFactorUtility;
+                error  [i] = e;
+                utility[i] = u;
+                tau    [i] *= decayFactor;
+
+                final float dx = x[i] - sx;
+                final float dy = y[i] - sy;
+                final float d  = dx * dx + dy * dy;
+                sqrDist[i] = d;
+
+                if (d <= bestSqrDist) {
+                    second          = first;
+                    nextBestDist    = bestSqrDist;
+                    first           = i;
+                    bestSqrDist     = d;
+                }
+                if (e > maxError) {
+                    maxError        = e;
+                    numError        = i;
+                }
+                if (u < minUtility) {
+                    minUtility      = u;
+                    minUtilityNode  = i;
+                }
+            }
+
+            if (Float.isNaN(x[first])) { // hack
+                System.out.printf("learn(): Float.isNaN(pick.x) stopping .....\n");
+                result.stop = true;
+                break;
+            }
+            valueGraph += bestSqrDist;
+
+            // Find second-closest node (continued)
+            if (first == second) {
+                second++;
+                nextBestDist = Float.MAX_VALUE;
+            }
+            for (i = first + 1; i < n; i++) {
+                if (sqrDist[i] < nextBestDist) {
+                    second          = i;
+                    nextBestDist    = sqrDist[i];
+                }
+            }
+            arraysWinner = first;
+            arraysSecond = second;
+
+            // Adaptation of Winner:
+            x[first] += epsilonGNG * (sx - x[first]);
+            y[first] += epsilonGNG * (sy - y[first]);
+
+            // Adaptation of Neighbors:
+            final int off = first * NodeArraysGNG.MAX_NEIGHBORS;
+            final int end = off + nNeighbor[first];
+            for (int j = off; j < end; j++) {
+                final int nn = s.neighbor[j];
+                x[nn] += epsilonGNG2 * (sx - x[nn]);
+                y[nn] += epsilonGNG2 * (sy - y[nn]);
+            }
+
+            // Accumulate square error and utility
+            error  [first] += bestSqrDist;
+            utility[first] += (nextBestDist - bestSqrDist);
+
+            // Connect the two winning nodes, age the edges of the winner
+            s.addEdge(first, second);
+            s.ageEdgesOfNode(first, maxEdgeAge);
+
+            // Check inserting node and insert if necessary
+            if ( (numSignals % lambdaGNG) == 0 ) {
+                arraysInserted = -1;
+                if (!noNewNodesGNGB) {
+                    if (autoStopB) {
+                        if (s.nNodes >= maxNodes || (GNG_U_B && (numSignals > 300000))) {
+                            result.stop = true;
+                            continue;
+                        }
+                    }
+                    final int n2 = s.maximumErrorNeighbor(numError);
+                    if ((s.nNodes < maxNodes) && (n2 >= 0)) {
+                        arraysInserted = s.insertNode(numError, n2, alphaGNG);
+                        nNodesChangedB = true;
+                    }
+                }
+            }
+
+            // Delete Node without Neighbors (not GNG-U)
+            if ((toDelete != -1) && (s.nNodes > 2) && !GNG_U_B )
+                deleteArraysNode(toDelete);
+            // Delete Node with very low utility
+            else {
+                if ( maxError > minUtility * utilityGNG) {
+                    if (GNG_U_B && (s.nNodes > 2)) {
+                        deleteArraysNode(minUtilityNode);
+                    }
+                } else if (  (s.nNodes > 2) && (s.nNodes > maxNodes) ) {
+                    // relevant if maxnodes is lowered during the simulation
+                    deleteArraysNode(minUtilityNode);
+                }
+            }
+        } // loop over stepSize
+
+        nNodes          = s.nNodes;
+        nEdges          = s.nEdges;
+        nodeViewsValid  = false;
+        if (nodeViewsB)
+            syncNodeViews();
+    }
+
 
     /**
      * The mouse-selected node.
@@ -0,0 +1,1013 @@
+package de.sciss.neuralgas;
+
+import java.util.Arrays;
+
+/**
+ * An incremental Delaunay triangulation of points which are identified by
+ * an integer id. Points are inserted with the algorithm of Bowyer and Watson,
+ * removed by filling the hole with Delaunay ears, and moved by only updating
+ * their coordinates if the triangles around them stay Delaunay, or else by
+ * removing and inserting them again (point relocation). The cost of an update
+ * therefore depends on the number of triangles touched, not on the number of points.
+ *
+ * The points are enclosed in a super triangle whose corners are treated as if they
+ * were infinitely far away, so the triangles among the points are exactly the
+ * Delaunay triangles, and the edges from a point to a corner mark the convex hull.
+ * If a point leaves the region covered, the triangulation is rebuilt in a larger one.
+ * A point at the same position as another one is kept aside and inserted once
+ * the position becomes free.
+ *
+ * @author Hanns Holger Rutz
+ */
+public class Delaunay {
+    /**
+     * The number of corners of the super triangle. These are the vertices
+     * 0 to 2, the point with id <TT>i</TT> is the vertex <TT>i + NUM_SUPER</TT>.
+     */
+    static final int NUM_SUPER = 3;
+
+    // ---- vertices ----
+
+    float[]     vx      = new float  [16];
+    float[]     vy      = new float  [16];
+    /** An incident triangle of each vertex, or -1 if the vertex is not in the triangulation. */
+    int[]       vTri    = new int    [16];
+    private boolean[] vUsed = new boolean[16];
+    private int numVertices = NUM_SUPER;
+    private int size        = 0;
+
+    // vertices kept aside, because another vertex is at their position
+    private int[] hidden    = new int[4];
+    private int numHidden   = 0;
+
+    // ---- triangles ----
+
+    /** The vertices of each triangle in counter-clockwise order, or -1 for an unused triangle. */
+    int[]       tv      = new int[48];
+    /** The neighbor opposite to each vertex of a triangle, or -1 at the border of the super triangle. */
+    int[]       tn      = new int[48];
+    /** The number of triangle slots, including unused ones. */
+    int         numTriangles = 0;
+    private int[] free      = new int[16];
+    private int numFree     = 0;
+
+    // the circle covered by the super triangle
+    private double cx, cy, radius;
+    private int hint    = -1;
+    private int walkRot = 0;
+
+    // ---- scratch space ----
+
+    private int[] mark      = new int[16];
+    private int   stamp     = 0;
+    private int[] stack     = new int[16];
+    private int[] cavity    = new int[16];
+    private int[] bndA      = new int[16];
+    private int[] bndB      = new int[16];
+    private int[] bndN      = new int[16];
+    private int[] startAt   = new int[16];
+    private int[] endAt     = new int[16];
+    private int[] ringNext  = new int[16];
+    private int[] ringPrev  = new int[16];
+    private long[] order    = new long[16];
+    private double[] cellX  = new double[16];
+    private double[] cellY  = new double[16];
+    private double[] clipX  = new double[16];
+    private double[] clipY  = new double[16];
+    private final double[] center = new double[4];
+
+    /**
+     * Returns the number of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true, if a point with the given id exists.
+     */
+    public boolean contains(int id) {
+        final int v = id + NUM_SUPER;
+        return v < numVertices && vUsed[v];
+    }
+
+    /**
+     * Remove all points.
+     */
+    public void clear() {
+        Arrays.fill(vUsed, false);
+        numVertices     = NUM_SUPER;
+        size            = 0;
+        numHidden       = 0;
+        numTriangles    = 0;
+        numFree         = 0;
+        hint            = -1;
+    }
+
+    /**
+     * Insert a point, or move it if it exists already.
+     *
+     * @param id         The id of the point, which must not be negative
+     * @param x          The horizontal position
+     * @param y          The vertical position
+     */
+    public void set(int id, float x, float y) {
+        final int v = id + NUM_SUPER;
+        if (v >= numVertices || !vUsed[v]) {
+            ensureVertices(v + 1);
+            if (v >= numVertices) numVertices = v + 1;
+            vUsed[v]    = true;
+            vTri [v]    = -1;
+            vx   [v]    = x;
+            vy   [v]    = y;
+            size++;
+            insert(v);
+
+        } else if (vTri[v] < 0) {
+            unhide(v);
+            vx[v] = x;
+            vy[v] = y;
+            insert(v);
+
+        } else if (vx[v] != x || vy[v] != y) {
+            move(v, x, y);
+        }
+    }
+
+    /**
+     * Set all points at once. The point with id <TT>i</TT> is inserted or moved
+     * to <TT>(xs[i], ys[i])</TT>, and points with an id of <TT>n</TT> or more
+     * are removed. If there are no points yet, they are inserted in an order
+     * that keeps the search for their triangles short.
+     *
+     * @param xs         The horizontal positions
+     * @param ys         The vertical positions
+     * @param n          The number of points
+     */
+    public void update(float[] xs, float[] ys, int n) {
+        if (size == 0 && n > 0) {
+            ensureVertices(n + NUM_SUPER);
+            for (int i = 0; i < n; i++) {
+                final int v = i + NUM_SUPER;
+                vUsed[v]    = true;
+                vTri [v]    = -1;
+                vx   [v]    = xs[i];
+                vy   [v]    = ys[i];
+            }
+            numVertices = n + NUM_SUPER;
+            size        = n;
+            rebuild(NUM_SUPER);
+            return;
+        }
+        for (int i = 0; i < n; i++)
+            set(i, xs[i], ys[i]);
+        for (int id = numVertices - NUM_SUPER - 1; id >= n; id--)
+            remove(id);
+    }
+
+    /**
+     * Remove a point. Nothing happens if the point does not exist.
+     *
+     * @param id         The id of the point
+     */
+    public void remove(int id) {
+        if (!contains(id))
+            return;
+        final int v = id + NUM_SUPER;
+        if (vTri[v] < 0) {
+            unhide(v);
+        } else {
+            removeVertex(v);
+            insertHidden();
+        }
+        vUsed[v] = false;
+        size--;
+        if (v == numVertices - 1) {
+            while (numVertices > NUM_SUPER && !vUsed[numVertices - 1])
+                numVertices--;
+        }
+    }
+
+    // ---- geometry ----
+
+    private double orient(int a, int b, double x, double y) {
+        final double ax = vx[a];
+        final double ay = vy[a];
+        return (vx[b] - ax) * (y - ay) - (vy[b] - ay) * (x - ax);
+    }
+
+    private double orient(int a, int b, int c) {
+        return orient(a, b, vx[c], vy[c]);
+    }
+
+    /**
+     * Returns true, if vertex <TT>d</TT> lies inside the circumcircle of the
+     * counter-clockwise triangle <TT>(a, b, c)</TT>. The corners of the super
+     * triangle are treated as infinitely far away, so a circle through one corner
+     * becomes the half-plane on its side of the other two vertices, a circle through
+     * two corners becomes the half-plane beyond the third vertex, facing the edge
+     * between the corners, and the circle through all three corners contains every point.
+     */
+    boolean conflict(int a, int b, int c, int d) {
+        final int s = (a < NUM_SUPER ? 1 : 0) + (b < NUM_SUPER ? 1 : 0) + (c < NUM_SUPER ? 1 : 0);
+        if (s == 0) {
+            if (d < NUM_SUPER) return false;
+            final double x      = vx[d];
+            final double y      = vy[d];
+            final double adx    = vx[a] - x;
+            final double ady    = vy[a] - y;
+            final double bdx    = vx[b] - x;
+            final double bdy    = vy[b] - y;
+            final double cdx    = vx[c] - x;
+            final double cdy    = vy[c] - y;
+            final double aLift  = adx * adx + ady * ady;
+            final double bLift  = bdx * bdx + bdy * bdy;
+            final double cLift  = cdx * cdx + cdy * cdy;
+            return aLift * (bdx * cdy - bdy * cdx) +
+                   bLift * (cdx * ady - cdy * adx) +
+                   cLift * (adx * bdy - ady * bdx) > 0.0;
+        }
+        if (s == 1) {
+            // rotate the corner to the last position
+            if (a < NUM_SUPER) {
+                final int t = a; a = b; b = c; c = t;
+            } else if (b < NUM_SUPER) {
+                final int t = b; b = a; a = c; c = t;
+            }
+            final double o = orient(a, b, d);
+            if (o != 0.0 || d < NUM_SUPER)
+                return o > 0.0;
+            // on the line through a and b, inside if between them
+            final double ex = vx[b] - vx[a];
+            final double ey = vy[b] - vy[a];
+            final double pa = (vx[d] - vx[a]) * ex + (vy[d] - vy[a]) * ey;
+            final double pb = (vx[d] - vx[b]) * ex + (vy[d] - vy[b]) * ey;
+            return pa > 0.0 && pb < 0.0;
+        }
+        if (s == 2) {
+            if (d < NUM_SUPER) return false;
+            // rotate the point to the first position
+            if (b >= NUM_SUPER) {
+                final int t = a; a = b; b = c; c = t;
+            } else if (c >= NUM_SUPER) {
+                final int t = c; c = b; b = a; a = t;
+            }
+            final double wx = (vx[b] + vx[c]) * 0.5 - cx;
+            final double wy = (vy[b] + vy[c]) * 0.5 - cy;
+            return wx * (vx[d] - vx[a]) + wy * (vy[d] - vy[a]) > 0.0;
+        }
+        return true;
+    }
+
+    private boolean covers(float x, float y) {
+        final double dx = x - cx;
+        final double dy = y - cy;
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    // ---- storage ----
+
+    private void ensureVertices(int n) {
+        if (n <= vx.length) return;
+        final int cap = Math.max(n, vx.length << 1);
+        vx          = Arrays.copyOf(vx      , cap);
+        vy          = Arrays.copyOf(vy      , cap);
+        vTri        = Arrays.copyOf(vTri    , cap);
+        vUsed       = Arrays.copyOf(vUsed   , cap);
+        startAt     = Arrays.copyOf(startAt , cap);
+        endAt       = Arrays.copyOf(endAt   , cap);
+    }
+
+    // makes room for n triangles and for the scratch space of as many
+    private void ensureTriangles(int n) {
+        if (n <= mark.length) return;
+        final int cap = Math.max(n, mark.length << 1);
+        tv          = Arrays.copyOf(tv      , cap * 3);
+        tn          = Arrays.copyOf(tn      , cap * 3);
+        free        = Arrays.copyOf(free    , cap);
+        mark        = Arrays.copyOf(mark    , cap);
+        // the scratch space may be in use while triangles are added
+        stack       = Arrays.copyOf(stack   , cap + 2);
+        cavity      = Arrays.copyOf(cavity  , cap);
+        bndA        = Arrays.copyOf(bndA    , cap + 2);
+        bndB        = Arrays.copyOf(bndB    , cap + 2);
+        bndN        = Arrays.copyOf(bndN    , cap + 2);
+        ringNext    = Arrays.copyOf(ringNext, cap + 2);
+        ringPrev    = Arrays.copyOf(ringPrev, cap + 2);
+    }
+
+    private int newTriangle() {
+        if (numFree > 0)
+            return free[--numFree];
+        ensureTriangles(numTriangles + 1);
+        return numTriangles++;
+    }
+
+    private void freeTriangle(int t) {
+        tv[t * 3]       = -1;
+        free[numFree++] = t;
+    }
+
+    // in triangle t, sets the neighbor across the edge between a and b
+    private void setNeighbor(int t, int a, int b, int n) {
+        if (t < 0) return;
+        final int base = t * 3;
+        for (int k = 0; k < 3; k++) {
+            final int u = tv[base + k];
+            if (u != a && u != b) {
+                tn[base + k] = n;
+                return;
+            }
+        }
+    }
+
+    private int indexOf(int t, int v) {
+        final int base = t * 3;
+        return tv[base] == v ? 0 : tv[base + 1] == v ? 1 : 2;
+    }
+
+    private void hide(int v) {
+        vTri[v] = -1;
+        if (numHidden == hidden.length)
+            hidden = Arrays.copyOf(hidden, numHidden << 1);
+        hidden[numHidden++] = v;
+    }
+
+    private void unhide(int v) {
+        for (int i = 0; i < numHidden; i++) {
+            if (hidden[i] == v) {
+                hidden[i] = hidden[--numHidden];
+                return;
+            }
+        }
+    }
+
+    // tries again to insert the vertices kept aside
+    private void insertHidden() {
+        final int[] h   = hidden;
+        final int   n   = numHidden;
+        hidden          = new int[h.length];
+        numHidden       = 0;
+        for (int i = 0; i < n; i++)
+            insert(h[i]);
+    }
+
+    // ---- building ----
+
+    // sets up an empty triangulation whose super triangle covers all vertices and the given one
+    private void rebuild(int v) {
+        float x0 = vx[v], x1 = x0, y0 = vy[v], y1 = y0;
+        for (int u = NUM_SUPER; u < numVertices; u++) {
+            if (!vUsed[u]) continue;
+            final float x = vx[u];
+            final float y = vy[u];
+            if (x < x0) x0 = x; else if (x > x1) x1 = x;
+            if (y < y0) y0 = y; else if (y > y1) y1 = y;
+            vTri[u] = -1;
+        }
+        numHidden       = 0;
+        numTriangles    = 0;
+        numFree         = 0;
+        cx              = (x0 + x1) * 0.5;
+        cy              = (y0 + y1) * 0.5;
+        // leave room for the points to move
+        radius          = Math.max(Math.hypot(x1 - x0, y1 - y0), 1.0);
+        // the in-radius of the super triangle is much larger than the covered
+        // circle, so that the finite corners agree with the infinite ones
+        final double m  = radius * 4096;
+        final double h  = m * Math.sqrt(3.0);
+        vx[0] = (float) (cx - h); vy[0] = (float) (cy - m);
+        vx[1] = (float) (cx + h); vy[1] = (float) (cy - m);
+        vx[2] = (float)  cx;      vy[2] = (float) (cy + m * 2);
+        final int t = newTriangle();
+        final int base = t * 3;
+        for (int k = 0; k < 3; k++) {
+            tv[base + k] = k;
+            tn[base + k] = -1;
+            vTri[k]      = t;
+        }
+        hint = t;
+
+        // insert along a Hilbert curve, so that each walk starts next to its point
+        final double sx = 32767.0 / Math.max(x1 - x0, 1.0e-6f);
+        final double sy = 32767.0 / Math.max(y1 - y0, 1.0e-6f);
+        if (order.length < numVertices)
+            order = new long[Math.max(numVertices, order.length << 1)];
+        int num = 0;
+        for (int u = NUM_SUPER; u < numVertices; u++) {
+            if (!vUsed[u]) continue;
+            final int hx = (int) ((vx[u] - x0) * sx);
+            final int hy = (int) ((vy[u] - y0) * sy);
+            order[num++] = ((long) hilbert(hx, hy) << 32) | u;
+        }
+        Arrays.sort(order, 0, num);
+        for (int i = 0; i < num; i++)
+            insert((int) order[i]);
+    }
+
+    // the position of a point on the Hilbert curve through a 32768 by 32768 grid
+    private static int hilbert(int x, int y) {
+        final int n = 1 << 15;
+        int d = 0;
+        for (int s = n >> 1; s > 0; s >>= 1) {
+            final int rx = (x & s) != 0 ? 1 : 0;
+            final int ry = (y & s) != 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                final int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    // returns a triangle containing the point, or -1 if it lies outside the super triangle
+    private int locate(double x, double y) {
+        int t = hint;
+        if (t < 0 || tv[t * 3] < 0) {
+            t = 0;
+            while (tv[t * 3] < 0) t++;
+        }
+        int steps = 0;
+        walk:
+        while (true) {
+            final int base = t * 3;
+            // the order of the edges varies, so the walk cannot run in circles
+            final int r = walkRot;
+            walkRot = r == 2 ? 0 : r + 1;
+            for (int k = 0; k < 3; k++) {
+                final int j = (r + k) % 3;
+                if (orient(tv[base + (j + 1) % 3], tv[base + (j + 2) % 3], x, y) < 0.0) {
+                    t = tn[base + j];
+                    if (t < 0 || ++steps > numTriangles << 1) return -1;
+                    continue walk;
+                }
+            }
+            return t;
+        }
+    }
+
+    // inserts the vertex, or keeps it aside if another vertex is at its position
+    private void insert(int v) {
+        final float x = vx[v];
+        final float y = vy[v];
+        if (numTriangles == 0 || !covers(x, y)) {
+            rebuild(v);
+            return;
+        }
+        final int t0 = locate(x, y);
+        if (t0 < 0) {
+            rebuild(v);
+            return;
+        }
+        for (int k = 0; k < 3; k++) {
+            final int u = tv[t0 * 3 + k];
+            if (vx[u] == x && vy[u] == y) {
+                hide(v);
+                return;
+            }
+        }
+
+        // find the triangles whose circumcircle contains the point. Crossing
+        // an edge that does not face the point is always allowed, so that
+        // the cavity stays star-shaped also with rounding errors
+        final int st    = ++stamp;
+        int numCavity   = 0;
+        int sp          = 0;
+        mark  [t0]          = st;
+        cavity[numCavity++] = t0;
+        stack [sp++]        = t0;
+        while (sp > 0) {
+            final int t     = stack[--sp];
+            final int base  = t * 3;
+            for (int j = 0; j < 3; j++) {
+                final int n = tn[base + j];
+                if (n < 0 || mark[n] == st) continue;
+                final int nb = n * 3;
+                if (orient(tv[base + (j + 1) % 3], tv[base + (j + 2) % 3], x, y) <= 0.0 ||
+                        conflict(tv[nb], tv[nb + 1], tv[nb + 2], v)) {
+                    mark  [n]           = st;
+                    cavity[numCavity++] = n;
+                    stack [sp++]        = n;
+                }
+            }
+        }
+
+        // the border of the cavity
+        int numBnd = 0;
+        for (int i = 0; i < numCavity; i++) {
+            final int base = cavity[i] * 3;
+            for (int j = 0; j < 3; j++) {
+                final int n = tn[base + j];
+                if (n >= 0 && mark[n] == st) continue;
+                bndA[numBnd] = tv[base + (j + 1) % 3];
+                bndB[numBnd] = tv[base + (j + 2) % 3];
+                bndN[numBnd] = n;
+                numBnd++;
+            }
+        }
+
+        // connect the border to the new vertex, reusing the cavity's triangles
+        int t = -1;
+        for (int i = 0; i < numBnd; i++) {
+            t = i < numCavity ? cavity[i] : newTriangle();
+            final int a     = bndA[i];
+            final int b     = bndB[i];
+            final int n     = bndN[i];
+            final int base  = t * 3;
+            tv[base    ]    = a;
+            tv[base + 1]    = b;
+            tv[base + 2]    = v;
+            tn[base + 2]    = n;
+            setNeighbor(n, a, b, t);
+            startAt[a]      = t;
+            endAt  [b]      = t;
+            vTri   [a]      = t;
+            stack  [i]      = t;
+        }
+        for (int i = 0; i < numBnd; i++) {
+            final int base  = stack[i] * 3;
+            tn[base    ]    = startAt[tv[base + 1]];
+            tn[base + 1]    = endAt  [tv[base    ]];
+        }
+        vTri[v] = t;
+        hint    = t;
+    }
+
+    // ---- output ----
+
+    /**
+     * Returns the number of Delaunay triangles. This is at most <TT>2 * size()</TT>.
+     */
+    public int getNumTriangles() {
+        int num = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int base = t * 3;
+            if (tv[base] >= NUM_SUPER && tv[base + 1] >= NUM_SUPER && tv[base + 2] >= NUM_SUPER) num++;
+        }
+        return num;
+    }
+
+    /**
+     * Returns the number of Delaunay edges, which is also the number of
+     * Voronoi edges. This is at most <TT>3 * size()</TT>.
+     */
+    public int getNumEdges() {
+        int num = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int base = t * 3;
+            if (tv[base] < 0) continue;
+            for (int j = 0; j < 3; j++) {
+                if (tv[base + (j + 1) % 3] >= NUM_SUPER && tv[base + (j + 2) % 3] >= NUM_SUPER &&
+                        tn[base + j] > t) num++;
+            }
+        }
+        return num;
+    }
+
+    /**
+     * Writes the Delaunay triangles. A point kept aside because another point
+     * is at its position does not belong to any triangle.
+     *
+     * @param out        The ids of the three points of each triangle, in counter-clockwise order
+     *                   with respect to the coordinate axes
+     * @return           The number of triangles
+     */
+    public int triangles(int[] out) {
+        int num = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int base  = t * 3;
+            final int a     = tv[base    ];
+            final int b     = tv[base + 1];
+            final int c     = tv[base + 2];
+            if (a < NUM_SUPER || b < NUM_SUPER || c < NUM_SUPER) continue;
+            final int i = num * 3;
+            out[i    ] = a - NUM_SUPER;
+            out[i + 1] = b - NUM_SUPER;
+            out[i + 2] = c - NUM_SUPER;
+            num++;
+        }
+        return num;
+    }
+
+    /**
+     * Writes the Delaunay edges, i.e. the pairs of points whose Voronoi cells touch.
+     *
+     * @param out        The ids of the two points of each edge
+     * @return           The number of edges
+     */
+    public int edges(int[] out) {
+        int num = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int base = t * 3;
+            if (tv[base] < 0) continue;
+            for (int j = 0; j < 3; j++) {
+                final int a = tv[base + (j + 1) % 3];
+                final int b = tv[base + (j + 2) % 3];
+                // every edge between two points is visited once
+                if (a < NUM_SUPER || b < NUM_SUPER || tn[base + j] < t) continue;
+                final int i = num << 1;
+                out[i    ] = a - NUM_SUPER;
+                out[i + 1] = b - NUM_SUPER;
+                num++;
+            }
+        }
+        return num;
+    }
+
+    /**
+     * Writes the Voronoi edges, clipped to a rectangle. Edges outside the rectangle are left out.
+     *
+     * @param out        The end points of each edge as <TT>x1, y1, x2, y2</TT>
+     * @param sites      The ids of the two points separated by each edge, or null
+     * @return           The number of edges
+     */
+    public int voronoiEdges(float[] out, int[] sites, float x0, float y0, float x1, float y1) {
+        final double[] cc = center;
+        int num = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            final int base = t * 3;
+            if (tv[base] < 0) continue;
+            for (int j = 0; j < 3; j++) {
+                final int n = tn[base + j];
+                final int a = tv[base + (j + 1) % 3];
+                final int b = tv[base + (j + 2) % 3];
+                if (a < NUM_SUPER || b < NUM_SUPER || n < t) continue;
+
+                final boolean hasT  = circumcenter(t, cc, 0);
+                final boolean hasN  = circumcenter(n, cc, 2);
+                // the bisector direction pointing from t to n
+                final double dx     =   vy[b] - vy[a];
+                final double dy     = -(vx[b] - vx[a]);
+                final boolean found;
+                if (hasT && hasN) {
+                    found = clip(cc[0], cc[1], cc[2] - cc[0], cc[3] - cc[1], 0.0, 1.0,
+                            x0, y0, x1, y1, out, num << 2);
+                } else if (hasT) {
+                    found = clip(cc[0], cc[1], dx, dy, 0.0, Double.POSITIVE_INFINITY,
+                            x0, y0, x1, y1, out, num << 2);
+                } else if (hasN) {
+                    found = clip(cc[2], cc[3], -dx, -dy, 0.0, Double.POSITIVE_INFINITY,
+                            x0, y0, x1, y1, out, num << 2);
+                } else {
+                    // all points lie on a line
+                    final double mx = (vx[a] + vx[b]) * 0.5;
+                    final double my = (vy[a] + vy[b]) * 0.5;
+                    found = clip(mx, my, dx, dy, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                            x0, y0, x1, y1, out, num << 2);
+                }
+                if (found) {
+                    if (sites != null) {
+                        sites[ num << 1     ] = a - NUM_SUPER;
+                        sites[(num << 1) + 1] = b - NUM_SUPER;
+                    }
+                    num++;
+                }
+            }
+        }
+        return num;
+    }
+
+    /**
+     * Writes the areas of the Voronoi cells, clipped to a rectangle. The area of a
+     * point that does not exist, or that is kept aside because another point is
+     * at its position, is zero.
+     *
+     * @param out        The area of the cell of each point
+     * @param n          The number of ids to write, starting at zero
+     */
+    public void cellAreas(float[] out, int n, float x0, float y0, float x1, float y1) {
+        for (int id = 0; id < n; id++) {
+            final int v = id + NUM_SUPER;
+            if (v >= numVertices || !vUsed[v] || vTri[v] < 0) {
+                out[id] = 0f;
+                continue;
+            }
+            double[] px = cellX;
+            double[] py = cellY;
+            px[0] = x0; py[0] = y0;
+            px[1] = x1; py[1] = y0;
+            px[2] = x1; py[2] = y1;
+            px[3] = x0; py[3] = y1;
+            int num = 4;
+            // the cell is the part of the rectangle closer to v than to any Delaunay neighbor
+            final int t0 = vTri[v];
+            int t = t0;
+            do {
+                final int base  = t * 3;
+                final int j     = indexOf(t, v);
+                final int w     = tv[base + (j + 1) % 3];
+                if (w >= NUM_SUPER) {
+                    final double dx = vx[w] - vx[v];
+                    final double dy = vy[w] - vy[v];
+                    final double mx = (vx[w] + vx[v]) * 0.5;
+                    final double my = (vy[w] + vy[v]) * 0.5;
+                    if (clipX.length < num + 1) {
+                        clipX = new double[(num + 1) << 1];
+                        clipY = new double[(num + 1) << 1];
+                    }
+                    final double[] qx = clipX;
+                    final double[] qy = clipY;
+                    int numQ = 0;
+                    for (int i = 0; i < num; i++) {
+                        final int k     = i == 0 ? num - 1 : i - 1;
+                        final double fk = (px[k] - mx) * dx + (py[k] - my) * dy;
+                        final double fi = (px[i] - mx) * dx + (py[i] - my) * dy;
+                        if ((fk <= 0.0) != (fi <= 0.0)) {
+                            final double u = fk / (fk - fi);
+                            qx[numQ] = px[k] + u * (px[i] - px[k]);
+                            qy[numQ] = py[k] + u * (py[i] - py[k]);
+                            numQ++;
+                        }
+                        if (fi <= 0.0) {
+                            qx[numQ] = px[i];
+                            qy[numQ] = py[i];
+                            numQ++;
+                        }
+                    }
+                    clipX   = px;
+                    clipY   = py;
+                    cellX   = qx;
+                    cellY   = qy;
+                    px      = qx;
+                    py      = qy;
+                    num     = numQ;
+                }
+                t = tn[base + (j + 1) % 3];
+            } while (t != t0 && num > 0);
+
+            double area = 0.0;
+            for (int i = 0, k = num - 1; i < num; k = i, i++)
+                area += px[k] * py[i] - px[i] * py[k];
+            out[id] = (float) Math.abs(area * 0.5);
+        }
+    }
+
+    // the circumcenter of a triangle, false if a corner of the super triangle belongs to it
+    private boolean circumcenter(int t, double[] out, int off) {
+        final int base  = t * 3;
+        final int a     = tv[base    ];
+        final int b     = tv[base + 1];
+        final int c     = tv[base + 2];
+        if (a < NUM_SUPER || b < NUM_SUPER || c < NUM_SUPER)
+            return false;
+        final double ax = vx[a];
+        final double ay = vy[a];
+        final double bx = vx[b] - ax;
+        final double by = vy[b] - ay;
+        final double cx = vx[c] - ax;
+        final double cy = vy[c] - ay;
+        final double d  = 2.0 * (bx * cy - by * cx);
+        final double b2 = bx * bx + by * by;
+        final double c2 = cx * cx + cy * cy;
+        out[off    ]    = ax + (cy * b2 - by * c2) / d;
+        out[off + 1]    = ay + (bx * c2 - cx * b2) / d;
+        return true;
+    }
+
+    // writes the part of the line (x + u * dx, y + u * dy), u0 <= u <= u1, that lies inside the rectangle
+    private static boolean clip(double x, double y, double dx, double dy, double u0, double u1,
+                                float x0, float y0, float x1, float y1, float[] out, int off) {
+        if (dx == 0.0 && dy == 0.0)
+            return false;
+        for (int k = 0; k < 4; k++) {
+            final double p = k == 0 ? -dx : k == 1 ? dx : k == 2 ? -dy : dy;
+            final double q = k == 0 ? x - x0 : k == 1 ? x1 - x : k == 2 ? y - y0 : y1 - y;
+            if (p == 0.0) {
+                if (q < 0.0) return false;
+            } else {
+                final double r = q / p;
+                if (p < 0.0) {
+                    if (r > u1) return false;
+                    if (r > u0) u0 = r;
+                } else {
+                    if (r < u0) return false;
+                    if (r < u1) u1 = r;
+                }
+            }
+        }
+        out[off    ] = (float) (x + u0 * dx);
+        out[off + 1] = (float) (y + u0 * dy);
+        out[off + 2] = (float) (x + u1 * dx);
+        out[off + 3] = (float) (y + u1 * dy);
+        return true;
+    }
+
+    // ---- removal ----
+
+    // removes the vertex from the triangulation, leaving its id in use
+    private void removeVertex(int v) {
+        // collect the ring of neighbors in counter-clockwise order. The
+        // triangles around the vertex are kept in the cavity array, the ring
+        // vertices in bndA and the triangles outside each ring edge in bndN
+        int k       = 0;
+        final int t0 = vTri[v];
+        int t       = t0;
+        do {
+            final int base  = t * 3;
+            final int j     = indexOf(t, v);
+            cavity[k]       = t;
+            bndA  [k]       = tv[base + (j + 1) % 3];
+            bndN  [k]       = tn[base + j];
+            k++;
+            t = tn[base + (j + 1) % 3];
+        } while (t != t0);
+
+        for (int i = 0; i < k; i++) {
+            ringNext[i] = i == k - 1 ? 0 : i + 1;
+            ringPrev[i] = i == 0 ? k - 1 : i - 1;
+        }
+        vTri[v] = -1;
+
+        // clip ears until a triangle remains. An ear whose circumcircle contains
+        // no other ring vertex is a Delaunay triangle; if rounding errors hide all
+        // of them, another ear is taken and the result is repaired by edge flips
+        int used        = 0;
+        int remain      = k;
+        int start       = 0;
+        boolean repair  = false;
+        while (remain > 3) {
+            int ear         = -1;
+            int fallback    = -1;
+            int e           = start;
+            for (int cnt = 0; cnt < remain; cnt++, e = ringNext[e]) {
+                final int a = bndA[ringPrev[e]];
+                final int b = bndA[e];
+                final int c = bndA[ringNext[e]];
+                if (orient(a, b, c) <= 0.0) continue;
+                boolean delaunay    = true;
+                boolean empty       = true;
+                for (int f = ringNext[ringNext[e]]; f != ringPrev[e]; f = ringNext[f]) {
+                    final int d = bndA[f];
+                    if (orient(a, b, d) >= 0.0 && orient(b, c, d) >= 0.0 && orient(c, a, d) >= 0.0) {
+                        empty = false;
+                        break;
+                    }
+                    if (delaunay && conflict(a, b, c, d)) delaunay = false;
+                }
+                if (empty) {
+                    if (delaunay) {
+                        ear = e;
+                        break;
+                    }
+                    if (fallback < 0) fallback = e;
+                }
+            }
+            if (ear < 0) {
+                ear     = fallback < 0 ? start : fallback;
+                repair  = true;
+            }
+
+            final int p     = ringPrev[ear];
+            final int q     = ringNext[ear];
+            final int a     = bndA[p];
+            final int b     = bndA[ear];
+            final int c     = bndA[q];
+            final int s     = cavity[used++];
+            final int base  = s * 3;
+            tv[base    ]    = a;
+            tv[base + 1]    = b;
+            tv[base + 2]    = c;
+            tn[base    ]    = bndN[ear];
+            tn[base + 1]    = -1;
+            tn[base + 2]    = bndN[p];
+            setNeighbor(bndN[ear], b, c, s);
+            setNeighbor(bndN[p  ], a, b, s);
+            vTri[a] = s;
+            vTri[b] = s;
+            vTri[c] = s;
+            // the new ring edge from a to c lies on the ear
+            bndN    [p] = s;
+            ringNext[p] = q;
+            ringPrev[q] = p;
+            start       = p;
+            remain--;
+        }
+
+        final int e0    = start;
+        final int e1    = ringNext[e0];
+        final int e2    = ringNext[e1];
+        final int s     = cavity[used++];
+        final int base  = s * 3;
+        tv[base    ]    = bndA[e0];
+        tv[base + 1]    = bndA[e1];
+        tv[base + 2]    = bndA[e2];
+        tn[base    ]    = bndN[e1];
+        tn[base + 1]    = bndN[e2];
+        tn[base + 2]    = bndN[e0];
+        setNeighbor(bndN[e1], bndA[e1], bndA[e2], s);
+        setNeighbor(bndN[e2], bndA[e2], bndA[e0], s);
+        setNeighbor(bndN[e0], bndA[e0], bndA[e1], s);
+        vTri[bndA[e0]] = s;
+        vTri[bndA[e1]] = s;
+        vTri[bndA[e2]] = s;
+        hint = s;
+
+        for (int i = used; i < k; i++)
+            freeTriangle(cavity[i]);
+
+        if (repair) {
+            int sp = 0;
+            for (int i = 0; i < used; i++)
+                stack[sp++] = cavity[i];
+            legalize(sp);
+        }
+    }
+
+    // flips edges until the triangles on the stack and their neighbors are Delaunay
+    private void legalize(int sp) {
+        int flips = numTriangles << 2;
+        while (sp > 0) {
+            final int t     = stack[--sp];
+            final int base  = t * 3;
+            if (tv[base] < 0) continue;
+            for (int j = 0; j < 3; j++) {
+                final int n = tn[base + j];
+                if (n < 0) continue;
+                final int p     = tv[base + j];
+                final int a     = tv[base + (j + 1) % 3];
+                final int b     = tv[base + (j + 2) % 3];
+                final int nb    = n * 3;
+                final int k     = tn[nb] == t ? 0 : tn[nb + 1] == t ? 1 : 2;
+                final int d     = tv[nb + k];
+                if (!conflict(p, a, b, d) || orient(p, a, d) <= 0.0 || orient(p, d, b) <= 0.0)
+                    continue;
+
+                final int nAD   = tn[nb + (k + 1) % 3];
+                final int nDB   = tn[nb + (k + 2) % 3];
+                final int nBP   = tn[base + (j + 1) % 3];
+                final int nPA   = tn[base + (j + 2) % 3];
+                tv[base    ] = p; tv[base + 1] = a; tv[base + 2] = d;
+                tn[base    ] = nAD; tn[base + 1] = n; tn[base + 2] = nPA;
+                tv[nb      ] = p; tv[nb + 1] = d; tv[nb + 2] = b;
+                tn[nb      ] = nDB; tn[nb + 1] = nBP; tn[nb + 2] = t;
+                setNeighbor(nAD, a, d, t);
+                setNeighbor(nBP, b, p, n);
+                vTri[p] = t;
+                vTri[a] = t;
+                vTri[d] = t;
+                vTri[b] = n;
+                if (sp + 2 > stack.length) return;
+                stack[sp++] = t;
+                stack[sp++] = n;
+                if (--flips == 0) return;
+                break;
+            }
+        }
+    }
+
+    // ---- moving ----
+
+    private void move(int v, float x, float y) {
+        if (!covers(x, y)) {
+            vx[v] = x;
+            vy[v] = y;
+            rebuild(v);
+            return;
+        }
+        final float oldX = vx[v];
+        final float oldY = vy[v];
+        vx[v] = x;
+        vy[v] = y;
+        if (!isDelaunayAround(v)) {
+            vx[v] = oldX;
+            vy[v] = oldY;
+            removeVertex(v);
+            vx[v] = x;
+            vy[v] = y;
+            insert(v);
+        }
+        if (numHidden > 0) insertHidden();
+    }
+
+    // checks that the triangles around the vertex are counter-clockwise and that their edges are Delaunay
+    private boolean isDelaunayAround(int v) {
+        final int t0 = vTri[v];
+        int t = t0;
+        do {
+            final int base  = t * 3;
+            final int j     = indexOf(t, v);
+            final int a     = tv[base + (j + 1) % 3];
+            final int b     = tv[base + (j + 2) % 3];
+            if (orient(v, a, b) <= 0.0) return false;
+            final int n = tn[base + j];
+            if (n >= 0) {
+                final int nb = n * 3;
+                final int d = tv[nb + (tn[nb] == t ? 0 : tn[nb + 1] == t ? 1 : 2)];
+                if (conflict(v, a, b, d)) return false;
+            }
+            // the next triangle around v shares the edge from v to b
+            final int next  = tn[base + (j + 1) % 3];
+            final int nb    = next * 3;
+            final int jn    = indexOf(next, v);
+            if (conflict(v, a, b, tv[nb + (jn + 2) % 3])) return false;
+            t = next;
+        } while (t != t0);
+        return true;
+    }
+}
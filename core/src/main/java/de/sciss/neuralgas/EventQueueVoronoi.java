@@ -0,0 +1,103 @@
+package de.sciss.neuralgas;
+
+import java.util.Arrays;
+
+/**
+ * The queue of circle events of the Voronoi sweep as a binary heap of half-edges.
+ * Each half-edge knows its position in the heap, so it can be deleted
+ * in O(log n) time. Events at the same height are extracted in the order
+ * they were inserted, as with the sorted list of <TT>ListGNG</TT>.
+ *
+ * @author Hanns Holger Rutz
+ */
+final class EventQueueVoronoi {
+    private HalfEdgeVoronoi[] heap = new HalfEdgeVoronoi[64];
+    private int  size   = 0;
+    private long seq    = 0L;
+
+    boolean empty() {
+        return size == 0;
+    }
+
+    void clear() {
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        seq  = 0L;
+    }
+
+    private static boolean less(HalfEdgeVoronoi a, HalfEdgeVoronoi b) {
+        return (a.yStar < b.yStar) || (a.yStar == b.yStar && a.pqSeq < b.pqSeq);
+    }
+
+    void insert(HalfEdgeVoronoi he) {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size << 1);
+        he.pqSeq = seq++;
+        siftUp(he, size++);
+    }
+
+    /**
+     * Removes a half-edge. Nothing happens if it is not in the queue.
+     */
+    void delete(HalfEdgeVoronoi he) {
+        final int i = he.pqIdx;
+        if (i < 0)
+            return;
+        he.pqIdx = -1;
+        final HalfEdgeVoronoi last = heap[--size];
+        heap[size] = null;
+        if (i == size)
+            return;
+        if (i > 0 && less(last, heap[(i - 1) >> 1]))
+            siftUp(last, i);
+        else
+            siftDown(last, i);
+    }
+
+    /**
+     * Returns the first half-edge without removing it.
+     */
+    HalfEdgeVoronoi min() {
+        return heap[0];
+    }
+
+    HalfEdgeVoronoi extractMin() {
+        final HalfEdgeVoronoi min = heap[0];
+        delete(min);
+        return min;
+    }
+
+    private void siftUp(HalfEdgeVoronoi he, int i) {
+        while (i > 0) {
+            final int p = (i - 1) >> 1;
+            final HalfEdgeVoronoi q = heap[p];
+            if (!less(he, q))
+                break;
+            heap[i]  = q;
+            q.pqIdx  = i;
+            i        = p;
+        }
+        heap[i]  = he;
+        he.pqIdx = i;
+    }
+
+    private void siftDown(HalfEdgeVoronoi he, int i) {
+        final int half = size >> 1;
+        while (i < half) {
+            int c = (i << 1) + 1;
+            HalfEdgeVoronoi q = heap[c];
+            final int r = c + 1;
+            if (r < size && less(heap[r], q)) {
+                c = r;
+                q = heap[r];
+            }
+            if (!less(q, he))
+                break;
+            heap[i]  = q;
+            q.pqIdx  = i;
+            i        = c;
+        }
+        heap[i]  = he;
+        he.pqIdx = i;
+    }
+}
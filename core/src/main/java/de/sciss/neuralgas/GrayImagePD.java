@@ -3,69 +3,187 @@ package de.sciss.neuralgas;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
+ * A distribution following the brightness of an image. Signals are drawn
+ * in constant time with the alias method (Walker), and only pixels
+ * of nonzero brightness are stored. If all pixels have a nonzero brightness,
+ * no index of the pixels is stored at all.
+ *
  * @author Hanns Holger Rutz
  */
-public class GrayImagePD implements PD {
+public class GrayImagePD implements BatchPD {
   private final BufferedImage img;
   private final int w;
   private final int h;
   private final int numPixels;
-  private final double[] dots;
+  private final int numDots;
+
+  // pixel index (x * h + y) of each dot, or null if all pixels are dots
+  private final int[]   dots;
+  private final AliasTable table;
 
   public GrayImagePD(BufferedImage img, boolean invert) {
+    this(img, invert, null);
+  }
+
+  /**
+   * Constructor. The image is scanned row by row, in parallel bands of rows
+   * if a pool is given. The dots are stored column by column.
+   *
+   * @param img     The image
+   * @param invert  If true, dark pixels are more likely than bright ones
+   * @param pool    The pool for scanning the image, or null
+   */
+  public GrayImagePD(final BufferedImage img, final boolean invert, ForkJoinPool pool) {
     this.img  = img;
     w         = img.getWidth();
     h         = img.getHeight();
     numPixels = w * h;
+    final int _w        = w;
+    final int _h        = h;
+    final int numBands  = ImageRows.numBands(pool, _h);
 
-    final double[] _dots = new double[numPixels];
-    double sum = 0.0;
-    int i = 0;
+    // first pass: count the dots per band and column
+    final int[][] offsets = new int[numBands][_w];
+    final RecursiveAction[] count = new RecursiveAction[numBands];
+    int band = 0;
+    while (band < numBands) {
+      final int[] cnt = offsets[band];
+      final int y0    = ImageRows.bandStart(band    , numBands, _h);
+      final int y1    = ImageRows.bandStart(band + 1, numBands, _h);
+      count[band] = new RecursiveAction() {
+        @Override
+        protected void compute() {
+          final ImageRows rows = new ImageRows(img);
+          final int[] rgb = new int[_w];
+          int y = y0;
+          while (y < y1) {
+            rows.read(y, rgb);
+            int x = 0;
+            while (x < _w) {
+              if (value(rgb[x], invert) > 0.0) cnt[x] += 1;
+              x += 1;
+            }
+            y += 1;
+          }
+        }
+      };
+      band += 1;
+    }
+    ImageRows.invokeBands(pool, count);
+
+    // turn the counts into the positions of each band's dots
+    int n = 0;
     int x = 0;
-    while (x < w) {
-      int y = 0;
-      while (y < h) {
-        int rgb     = img.getRGB(x, y);
-        double red     = ((rgb & 0xFF0000) >> 16) / 255.0;
-        double green   = ((rgb & 0x00FF00) >>  8) / 255.0;
-        double blue    = ((rgb & 0x00FF00) >>  8) / 255.0;
-        double lum     = 0.2126 * red + 0.7152 * green + 0.0722 * blue;
-        double value   = invert ? 1.0 - lum : lum;
-        sum += value;
-        _dots[i] = sum;
-        i += 1;
-        y += 1;
+    while (x < _w) {
+      band = 0;
+      while (band < numBands) {
+        final int c = offsets[band][x];
+        offsets[band][x] = n;
+        n += c;
+        band += 1;
       }
       x += 1;
     }
-    i = 0;
-    final double mul = 1.0 / sum;
-    while (i < numPixels) {
-      _dots[i] *= mul;
-      i += 1;
+
+    // if all pixels are used, the dot index is the pixel index
+    final boolean allPixels = n == 0 || n == numPixels;
+    final int[]   _dots = allPixels ? null : new int[n];
+    final float[] _prob = new float[n == 0 ? numPixels : n];
+    if (n == 0) {
+      // no brightness at all, use all pixels
+      int i = 0;
+      while (i < numPixels) {
+        _prob[i] = 1f;
+        i += 1;
+      }
+      n = numPixels;
+
+    } else {
+      // second pass: collect the dots and their weights
+      final RecursiveAction[] collect = new RecursiveAction[numBands];
+      band = 0;
+      while (band < numBands) {
+        final int[] pos = offsets[band];
+        final int y0    = ImageRows.bandStart(band    , numBands, _h);
+        final int y1    = ImageRows.bandStart(band + 1, numBands, _h);
+        collect[band] = new RecursiveAction() {
+          @Override
+          protected void compute() {
+            final ImageRows rows = new ImageRows(img);
+            final int[] rgb = new int[_w];
+            int y = y0;
+            while (y < y1) {
+              rows.read(y, rgb);
+              int x = 0;
+              while (x < _w) {
+                final double value = value(rgb[x], invert);
+                if (value > 0.0) {
+                  final int i = pos[x];
+                  if (_dots != null) _dots[i] = x * _h + y;
+                  _prob[i] = (float) value;
+                  pos[x] = i + 1;
+                }
+                x += 1;
+              }
+              y += 1;
+            }
+          }
+        };
+        band += 1;
+      }
+      ImageRows.invokeBands(pool, collect);
     }
 
-    dots = _dots;
+    dots    = _dots;
+    table   = new AliasTable(_prob, n);
+    numDots = n;
+  }
+
+  private static double value(int rgb, boolean invert) {
+    double red     = ((rgb & 0xFF0000) >> 16) / 255.0;
+    double green   = ((rgb & 0x00FF00) >>  8) / 255.0;
+    double blue    = ((rgb & 0x00FF00) >>  8) / 255.0;
+    double lum     = 0.2126 * red + 0.7152 * green + 0.0722 * blue;
+    return invert ? 1.0 - lum : lum;
   }
 
   public int getNumPixels() { return numPixels; }
 
+  /**
+   * Returns the number of pixels with nonzero brightness.
+   */
+  public int getNumDots() { return numDots; }
+
+  // pixel index of a random dot
+  private int nextDot(ComputeGNG compute) {
+    final int i = table.next(compute.random());
+    return (dots == null) ? i : dots[i];
+  }
+
   @Override
   public void getSignal(ComputeGNG compute) {
+    ComputeGNG.fillSignal(this, compute);
+  }
+
+  @Override
+  public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
     final int wi    = compute.panelWidth;
     final int hi    = compute.panelHeight;
-    final double[] _dots = dots;
-    final int i0    = Arrays.binarySearch(_dots, compute.random());
-    final int i1    = (i0 >= 0)           ? i0 : -(i0 - 1);
-    final int dot   = (i1 < _dots.length) ? i1 : _dots.length - 1;
     final int _h    = h;
-    final int xIn   = dot / _h;
-    final int yIn   = dot % _h;
-    compute.SignalX = ((float) (xIn * wi)) /  w;
-    compute.SignalY = ((float) (yIn * hi)) / _h;
+    final int stop  = off + len;
+    int i = off;
+    while (i < stop) {
+      final int dot   = nextDot(compute);
+      final int xIn   = dot / _h;
+      final int yIn   = dot % _h;
+      xs[i] = ((float) (xIn * wi)) /  w;
+      ys[i] = ((float) (yIn * hi)) / _h;
+      i += 1;
+    }
   }
 
   @Override
@@ -84,4 +202,4 @@ public class GrayImagePD implements PD {
   public int ordinal() {
     return -1;
   }
-}
\ No newline at end of file
+}
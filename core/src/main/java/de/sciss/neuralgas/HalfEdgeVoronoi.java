@@ -34,6 +34,14 @@ class HalfEdgeVoronoi {
   public int EL_refCnt        = -1;
   public float yStar          = -1.0f;
 
+  // the position in the beach line tree
+  HalfEdgeVoronoi treeLeft, treeRight, treeParent;
+  int treePrio;
+
+  // the position in the event queue heap, -1 if not queued
+  int pqIdx                   = -1;
+  long pqSeq;
+
   public HalfEdgeVoronoi() {
     EL_edge   = new EdgeVoronoi();
     vertex    = new SiteVoronoi();
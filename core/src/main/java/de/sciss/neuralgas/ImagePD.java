@@ -3,36 +3,99 @@ package de.sciss.neuralgas;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
+ * A distribution of the bright (or dark) pixels of an image.
+ * Only the dot pixels are stored.
+ *
  * @author Hanns Holger Rutz
  */
-public class ImagePD implements PD {
+public class ImagePD implements BatchPD {
     private final BufferedImage img;
-    private final long[] dots;
+    private final int[]  dots;      // pixel index x * imgH + y
     private final int    numDots;
     private final int    imgW, imgH;
 
     public int getNumDots() { return numDots; }
 
     public ImagePD(BufferedImage img, boolean invert) {
+        this(img, invert, null);
+    }
+
+    /**
+     * Constructor. The image is scanned row by row, in parallel bands of rows
+     *  if a pool is given. The dots are stored column by column.
+     *
+     * @param img        The image
+     * @param invert     If true, the dark pixels are dots
+     * @param pool       The pool for scanning the image, or null
+     */
+    public ImagePD(final BufferedImage img, final boolean invert, ForkJoinPool pool) {
         super();
         final int w = img.getWidth();
         final int h = img.getHeight();
-        final int numPixels = w * h;
-        final long[] _dots = new long[numPixels];
+        final int numBands = ImageRows.numBands(pool, h);
+
+        // first pass counts the dots per band and column
+        final int[][] offsets = new int[numBands][w];
+        final RecursiveAction[] count = new RecursiveAction[numBands];
+        for (int band = 0; band < numBands; band++) {
+            final int[] cnt     = offsets[band];
+            final int y0        = ImageRows.bandStart(band    , numBands, h);
+            final int y1        = ImageRows.bandStart(band + 1, numBands, h);
+            count[band] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    final ImageRows rows = new ImageRows(img);
+                    final int[] rgb = new int[w];
+                    for (int y = y0; y < y1; y++) {
+                        rows.read(y, rgb);
+                        for (int x = 0; x < w; x++) {
+                            if (isDot(rgb[x], invert))
+                                cnt[x]++;
+                        }
+                    }
+                }
+            };
+        }
+        ImageRows.invokeBands(pool, count);
+
+        // turn the counts into the positions of each band's dots
         int _numDots = 0;
         for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                final int rgb       = img.getRGB(x, y);
-                final int value     = (((rgb & 0xFF0000) >> 16) + ((rgb & 0xFF00) >> 8) + (rgb & 0x0000FF)) / 3;
-                final boolean isDot = value > /* <= */ 0x7F;
-                if (isDot ^ invert) {
-                    _dots[_numDots] = (((long) x) << 32) | (y & 0xFFFFFFFFL);
-                    _numDots++;
-                }
+            for (int band = 0; band < numBands; band++) {
+                final int c = offsets[band][x];
+                offsets[band][x] = _numDots;
+                _numDots += c;
             }
         }
+
+        // second pass collects the dots
+        final int[] _dots = new int[_numDots];
+        final RecursiveAction[] collect = new RecursiveAction[numBands];
+        for (int band = 0; band < numBands; band++) {
+            final int[] pos     = offsets[band];
+            final int y0        = ImageRows.bandStart(band    , numBands, h);
+            final int y1        = ImageRows.bandStart(band + 1, numBands, h);
+            collect[band] = new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    final ImageRows rows = new ImageRows(img);
+                    final int[] rgb = new int[w];
+                    for (int y = y0; y < y1; y++) {
+                        rows.read(y, rgb);
+                        for (int x = 0; x < w; x++) {
+                            if (isDot(rgb[x], invert))
+                                _dots[pos[x]++] = x * h + y;
+                        }
+                    }
+                }
+            };
+        }
+        ImageRows.invokeBands(pool, collect);
+
         this.img    = img;
         dots        = _dots;
         numDots     = _numDots;
@@ -40,16 +103,31 @@ public class ImagePD implements PD {
         imgH        = h;
     }
 
+    private static boolean isDot(int rgb, boolean invert) {
+        final int value     = (((rgb & 0xFF0000) >> 16) + ((rgb & 0xFF00) >> 8) + (rgb & 0x0000FF)) / 3;
+        final boolean isDot = value > /* <= */ 0x7F;
+        return isDot ^ invert;
+    }
+
     @Override
     public void getSignal(final ComputeGNG compute) {
+        ComputeGNG.fillSignal(this, compute);
+    }
+
+    @Override
+    public void fill(final ComputeGNG compute, final float[] xs, final float[] ys, final int off, final int len) {
         final int wi    = compute.panelWidth;
         final int hi    = compute.panelHeight;
-        final long dot  = dots[(int) (compute.random() * numDots)];
-        final int xIn   = (int) (dot >>> 32);
-        final int yIn   = (int) dot;
-
-        compute.SignalX = (float) (xIn * wi) / imgW;
-        compute.SignalY = (float) (yIn * hi) / imgH;
+        final int[] _dots = dots;
+        final int num   = numDots;
+        final int _h    = imgH;
+        for (int i = off, stop = off + len; i < stop; i++) {
+            final int dot   = _dots[(int) (compute.random() * num)];
+            final int xIn   = dot / _h;
+            final int yIn   = dot % _h;
+            xs[i] = (float) (xIn * wi) / imgW;
+            ys[i] = (float) (yIn * hi) / imgH;
+        }
     }
 
     @Override
@@ -0,0 +1,158 @@
+package de.sciss.neuralgas;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reads an image row by row as packed RGB values, giving the same values
+ * as <TT>BufferedImage.getRGB</TT>. For the common image types the rows are
+ * copied from the raster, and only the pixel layout is converted, instead
+ * of going through the color model for each pixel. An instance must only
+ * be used by one thread at a time.
+ *
+ * @author Hanns Holger Rutz
+ */
+final class ImageRows {
+    private final BufferedImage img;
+    private final Raster        raster;
+    private final int           type;
+    private final int           width;
+
+    private int[]   intBuf;
+    private byte[]  byteBuf;
+    private int[]   lut;        // for single byte pixels
+
+    ImageRows(BufferedImage img) {
+        this.img    = img;
+        raster      = img.getRaster();
+        width       = img.getWidth();
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_BGR:
+                type    = img.getType();
+                intBuf  = new int[width];
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                type    = img.getType();
+                byteBuf = new byte[width * 3];
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                type    = img.getType();
+                byteBuf = new byte[width * 4];
+                break;
+            case BufferedImage.TYPE_BYTE_GRAY:
+            case BufferedImage.TYPE_BYTE_INDEXED: {
+                type    = img.getType();
+                byteBuf = new byte[width];
+                // the color model may be nonlinear, so the 256 colors are looked up once
+                final ColorModel cm = img.getColorModel();
+                final byte[] pixel  = new byte[1];
+                lut = new int[256];
+                for (int i = 0; i < 256; i++) {
+                    pixel[0] = (byte) i;
+                    lut[i] = cm.getRGB(pixel);
+                }
+                break;
+            }
+            default:
+                type    = BufferedImage.TYPE_CUSTOM;
+                break;
+        }
+    }
+
+    /**
+     * Read a row of the image.
+     *
+     * @param y          The row
+     * @param rgb        The buffer for <TT>width</TT> packed RGB values
+     */
+    void read(int y, int[] rgb) {
+        final int w = width;
+        switch (type) {
+            case BufferedImage.TYPE_INT_RGB:
+                raster.getDataElements(0, y, w, 1, rgb);
+                for (int x = 0; x < w; x++)
+                    rgb[x] |= 0xFF000000;
+                break;
+            case BufferedImage.TYPE_INT_ARGB:
+                raster.getDataElements(0, y, w, 1, rgb);
+                break;
+            case BufferedImage.TYPE_INT_BGR: {
+                final int[] b = intBuf;
+                raster.getDataElements(0, y, w, 1, b);
+                for (int x = 0; x < w; x++) {
+                    final int p = b[x];
+                    rgb[x] = 0xFF000000 | ((p & 0xFF) << 16) | (p & 0xFF00) | ((p >> 16) & 0xFF);
+                }
+                break;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                // the data elements are in band order, i.e. red, green, blue
+                final byte[] b = byteBuf;
+                raster.getDataElements(0, y, w, 1, b);
+                for (int x = 0, i = 0; x < w; x++, i += 3)
+                    rgb[x] = 0xFF000000 | ((b[i] & 0xFF) << 16) | ((b[i+1] & 0xFF) << 8) | (b[i+2] & 0xFF);
+                break;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                final byte[] b = byteBuf;
+                raster.getDataElements(0, y, w, 1, b);
+                for (int x = 0, i = 0; x < w; x++, i += 4)
+                    rgb[x] = ((b[i+3] & 0xFF) << 24) | ((b[i] & 0xFF) << 16) | ((b[i+1] & 0xFF) << 8) | (b[i+2] & 0xFF);
+                break;
+            }
+            case BufferedImage.TYPE_BYTE_GRAY:
+            case BufferedImage.TYPE_BYTE_INDEXED: {
+                final byte[] b  = byteBuf;
+                final int[] l   = lut;
+                raster.getDataElements(0, y, w, 1, b);
+                for (int x = 0; x < w; x++)
+                    rgb[x] = l[b[x] & 0xFF];
+                break;
+            }
+            default:
+                img.getRGB(0, y, w, 1, rgb, 0, w);
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of bands of rows to process in parallel.
+     *
+     * @param pool       The pool, or null to process sequentially
+     * @param height     The number of rows
+     */
+    static int numBands(ForkJoinPool pool, int height) {
+        if (pool == null)
+            return 1;
+        return Math.max(1, Math.min(height / 16, pool.getParallelism() * 4));
+    }
+
+    /**
+     * Returns the first row of a band.
+     */
+    static int bandStart(int band, int numBands, int height) {
+        return (int) ((long) height * band / numBands);
+    }
+
+    /**
+     * Run the tasks of all bands, in parallel if a pool is given.
+     */
+    static void invokeBands(ForkJoinPool pool, final RecursiveAction[] tasks) {
+        if ((pool == null) || (tasks.length == 1)) {
+            for (RecursiveAction t : tasks)
+                t.invoke();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package de.sciss.neuralgas;
+
+/**
+ * A structure-of-arrays store of nodes and edges, used by <TT>ComputeGNG</TT>
+ * to run GNG and GNG-U without node objects. Each node is an index into the
+ * primitive arrays; the neighbors of node <TT>i</TT> and the edges connecting
+ * them are found at <TT>i * MAX_NEIGHBORS</TT> in <TT>neighbor</TT> and
+ * <TT>neighborEdge</TT>. The graph operations behave exactly like their
+ * counterparts in <TT>ComputeGNG</TT> and <TT>NodeGNG</TT>, so that a run
+ * gives the same result with either store.
+ *
+ * The arrays grow as needed. Nodes and edges can be copied from and to
+ * the object representation (<TT>NodeGNG</TT>, <TT>EdgeGNG</TT>).
+ *
+ * @author Hanns Holger Rutz
+ * @see ComputeGNG#nodeArraysB
+ */
+public class NodeArraysGNG {
+    /**
+     * The maximum number of neighbors of a node (as in <TT>NodeGNG</TT>).
+     */
+    public static final int MAX_NEIGHBORS = 10;
+
+    /**
+     * The current number of nodes.
+     */
+    public int nNodes = 0;
+    /**
+     * The current number of edges.
+     */
+    public int nEdges = 0;
+    /**
+     * The maximum number of edges.
+     */
+    public int maxEdges = Integer.MAX_VALUE;
+
+    public float    x[]             = new float[0];
+    public float    y[]             = new float[0];
+    public float    error[]         = new float[0];
+    public float    utility[]       = new float[0];
+    public float    tau[]           = new float[0];
+    public float    sqrDist[]       = new float[0];
+    /**
+     * The number of neighbors of each node.
+     */
+    public int      nNeighbor[]     = new int[0];
+    /**
+     * The neighbors of each node, <TT>MAX_NEIGHBORS</TT> entries per node.
+     */
+    public int      neighbor[]      = new int[0];
+    /**
+     * The edges connecting each node with its neighbors,
+     *  <TT>MAX_NEIGHBORS</TT> entries per node.
+     */
+    public int      neighborEdge[]  = new int[0];
+
+    public int      edgeFrom[]      = new int[0];
+    public int      edgeTo[]        = new int[0];
+    public int      edgeAge[]       = new int[0];
+
+    /**
+     * Make room for the given number of nodes.
+     *
+     * @param n          The number of nodes
+     */
+    public void ensureNodeCapacity(int n) {
+        final int old = x.length;
+        if (n <= old)
+            return;
+        final int size = Math.max(n, Math.max(16, old << 1));
+        x               = grow(x        , size);
+        y               = grow(y        , size);
+        error           = grow(error    , size);
+        utility         = grow(utility  , size);
+        tau             = grow(tau      , size);
+        sqrDist         = grow(sqrDist  , size);
+        nNeighbor       = grow(nNeighbor, size);
+        neighbor        = grow(neighbor     , size * MAX_NEIGHBORS);
+        neighborEdge    = grow(neighborEdge , size * MAX_NEIGHBORS);
+    }
+
+    /**
+     * Make room for the given number of edges.
+     *
+     * @param n          The number of edges
+     */
+    public void ensureEdgeCapacity(int n) {
+        final int old = edgeFrom.length;
+        if (n <= old)
+            return;
+        final int size = Math.max(n, Math.max(16, old << 1));
+        edgeFrom        = grow(edgeFrom , size);
+        edgeTo          = grow(edgeTo   , size);
+        edgeAge         = grow(edgeAge  , size);
+    }
+
+    private static float[] grow(float[] a, int size) {
+        final float[] res = new float[size];
+        System.arraycopy(a, 0, res, 0, a.length);
+        return res;
+    }
+
+    private static int[] grow(int[] a, int size) {
+        final int[] res = new int[size];
+        System.arraycopy(a, 0, res, 0, a.length);
+        return res;
+    }
+
+    /**
+     * Remove all nodes and edges.
+     */
+    public void clear() {
+        nNodes = 0;
+        nEdges = 0;
+    }
+
+    /**
+     * Copy nodes and edges from their object representation.
+     *
+     * @param nodes       The array of nodes
+     * @param n           The number of nodes
+     * @param edges       The array of edges
+     * @param ne          The number of edges
+     */
+    public void importFrom(NodeGNG[] nodes, int n, EdgeGNG[] edges, int ne) {
+        ensureNodeCapacity(n);
+        ensureEdgeCapacity(ne);
+        for (int i = 0; i < n; i++) {
+            final NodeGNG node  = nodes[i];
+            x       [i]         = node.x;
+            y       [i]         = node.y;
+            error   [i]         = node.error;
+            utility [i]         = node.utility;
+            tau     [i]         = node.tau;
+            sqrDist [i]         = node.sqrDist;
+            final int num       = node.numNeighbors();
+            final int off       = i * MAX_NEIGHBORS;
+            nNeighbor[i]        = num;
+            for (int j = 0; j < num; j++) {
+                neighbor    [off + j] = node.neighbor(j);
+                neighborEdge[off + j] = -1;
+            }
+        }
+        for (int e = 0; e < ne; e++) {
+            final EdgeGNG edge  = edges[e];
+            edgeFrom[e]         = edge.from;
+            edgeTo  [e]         = edge.to;
+            edgeAge [e]         = edge.age;
+            setNeighborEdge(edge.from, edge.to, e);
+            setNeighborEdge(edge.to, edge.from, e);
+        }
+        nNodes = n;
+        nEdges = ne;
+    }
+
+    private void setNeighborEdge(int node, int nb, int e) {
+        final int off = node * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[node];
+        for (int j = off; j < end; j++) {
+            if (neighbor[j] == nb) {
+                neighborEdge[j] = e;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copy nodes and edges to their object representation. Existing objects
+     * are reused, missing ones are created. The flags of the nodes are cleared.
+     *
+     * @param nodes       The array of nodes, must be large enough
+     * @param edges       The array of edges, must be large enough
+     */
+    public void exportTo(NodeGNG[] nodes, EdgeGNG[] edges) {
+        for (int i = 0; i < nNodes; i++) {
+            NodeGNG node = nodes[i];
+            if (node == null) {
+                node        = new NodeGNG();
+                nodes[i]    = node;
+            }
+            node.x          = x      [i];
+            node.y          = y      [i];
+            node.error      = error  [i];
+            node.utility    = utility[i];
+            node.tau        = tau    [i];
+            node.sqrDist    = sqrDist[i];
+            node.isWinner   = node.isSecond = node.hasMoved = node.isMostRecentlyInserted = false;
+            final int num   = nNeighbor[i];
+            final int off   = i * MAX_NEIGHBORS;
+            System.arraycopy(neighbor    , off, node.neighbor, 0, num);
+            System.arraycopy(neighborEdge, off, node.edge    , 0, num);
+            for (int j = num; j < MAX_NEIGHBORS; j++) {
+                node.neighbor[j]    = -1;
+                node.edge    [j]    = -1;
+            }
+            node.nNeighbor  = num;
+        }
+        for (int e = 0; e < nEdges; e++) {
+            EdgeGNG edge = edges[e];
+            if (edge == null) {
+                edge        = new EdgeGNG();
+                edges[e]    = edge;
+            }
+            edge.from       = edgeFrom[e];
+            edge.to         = edgeTo  [e];
+            edge.age        = edgeAge [e];
+        }
+    }
+
+    /**
+     * Add a node.
+     *
+     * @param px         The x-coordinate of the new node
+     * @param py         The y-coordinate of the new node
+     * @return           The index of the new node
+     */
+    public int addNode(float px, float py) {
+        final int i = nNodes;
+        ensureNodeCapacity(i + 1);
+        x        [i] = px;
+        y        [i] = py;
+        error    [i] = 0.0f;
+        utility  [i] = 0.0f;
+        tau      [i] = 0.0f;
+        sqrDist  [i] = Float.MAX_VALUE;
+        nNeighbor[i] = 0;
+        return nNodes++;
+    }
+
+    /**
+     * Is the node a neighbor?
+     *
+     * @param node       The index of a node
+     * @param n          The index of a node
+     * @return           Neighbor?
+     */
+    public boolean isNeighbor(int node, int n) {
+        final int off = node * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[node];
+        for (int j = off; j < end; j++)
+            if (neighbor[j] == n)
+                return true;
+        return false;
+    }
+
+    private void addNeighbor(int node, int n, int e) {
+        final int num = nNeighbor[node];
+        if (num == MAX_NEIGHBORS)
+            return;
+        final int j     = node * MAX_NEIGHBORS + num;
+        neighbor    [j] = n;
+        neighborEdge[j] = e;
+        nNeighbor[node] = num + 1;
+    }
+
+    private void deleteNeighbor(int node, int n) {
+        final int off = node * MAX_NEIGHBORS;
+        final int num = nNeighbor[node];
+        for (int j = off; j < off + num; j++) {
+            if (neighbor[j] == n) {
+                final int last      = off + num - 1;
+                neighbor    [j]     = neighbor    [last];
+                neighborEdge[j]     = neighborEdge[last];
+                neighbor    [last]  = -1;
+                neighborEdge[last]  = -1;
+                nNeighbor[node]     = num - 1;
+                return;
+            }
+        }
+    }
+
+    private void replaceNeighbor(int node, int old, int newN) {
+        final int off = node * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[node];
+        for (int j = off; j < end; j++) {
+            if (neighbor[j] == old) {
+                neighbor[j] = newN;
+                return;
+            }
+        }
+    }
+
+    private void replaceEdge(int node, int old, int newE) {
+        final int off = node * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[node];
+        for (int j = off; j < end; j++) {
+            if (neighborEdge[j] == old) {
+                neighborEdge[j] = newE;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Find the edge between the two given nodes.
+     *
+     * @param from       The index of the first node
+     * @param to         The index of the second node
+     * @return           The index of the found edge or -1
+     */
+    public int findEdge(int from, int to) {
+        final int off = from * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[from];
+        for (int j = off; j < end; j++)
+            if (neighbor[j] == to)
+                return neighborEdge[j];
+        return -1;
+    }
+
+    /**
+     * Connect two nodes or reset the age of their edge.
+     *
+     * @param from       The index of the first node
+     * @param to         The index of the second node
+     */
+    public void addEdge(int from, int to) {
+        if (nNodes < 2)
+            return;
+
+        if (isNeighbor(from, to)) {
+            final int e = findEdge(from, to);
+            if (e != -1)
+                edgeAge[e] = 0;
+            return;
+        }
+
+        if (nEdges == maxEdges)
+            return;
+
+        if ((nNeighbor[from] == MAX_NEIGHBORS) || (nNeighbor[to] == MAX_NEIGHBORS))
+            return;
+
+        final int e = nEdges;
+        ensureEdgeCapacity(e + 1);
+        addNeighbor(to, from, e);
+        addNeighbor(from, to, e);
+        edgeFrom[e] = from;
+        edgeTo  [e] = to;
+        edgeAge [e] = 0;
+        nEdges++;
+    }
+
+    /**
+     * Delete an edge. The last edge takes its place.
+     *
+     * @param e          The index of the edge
+     */
+    public void deleteEdge(int e) {
+        final int from  = edgeFrom[e];
+        final int to    = edgeTo  [e];
+        deleteNeighbor(from, to);
+        deleteNeighbor(to, from);
+        nEdges--;
+        if (e < nEdges) {
+            final int mFrom = edgeFrom[nEdges];
+            final int mTo   = edgeTo  [nEdges];
+            edgeFrom[e]     = mFrom;
+            edgeTo  [e]     = mTo;
+            edgeAge [e]     = edgeAge[nEdges];
+            replaceEdge(mFrom, nEdges, e);
+            replaceEdge(mTo  , nEdges, e);
+        }
+    }
+
+    /**
+     * Disconnect two nodes.
+     *
+     * @param from       The index of the first node
+     * @param to         The index of the second node
+     */
+    public void deleteEdge(int from, int to) {
+        final int e = findEdge(from, to);
+        if (e != -1)
+            deleteEdge(e);
+    }
+
+    /**
+     * Age all edges of the given node and delete too old edges.
+     *
+     * @param node       The index of a node
+     * @param maxEdgeAge The maximum age of an edge
+     */
+    public void ageEdgesOfNode(int node, int maxEdgeAge) {
+        final int off = node * MAX_NEIGHBORS;
+        // iterate backwards, as deleting an edge moves the last incident edge into its slot
+        for (int j = nNeighbor[node] - 1; j > -1; j--) {
+            final int e = neighborEdge[off + j];
+            if (e == -1)
+                continue;
+            edgeAge[e]++;
+            if (edgeAge[e] > maxEdgeAge)
+                deleteEdge(e);
+        }
+    }
+
+    /**
+     * Find the neighbor with the highest error.
+     *
+     * @param master     The index of a node
+     * @return           The index of a node or -1
+     */
+    public int maximumErrorNeighbor(int master) {
+        float ws    = Float.MIN_VALUE;
+        int wn      = -1;
+        final int off = master * MAX_NEIGHBORS;
+        final int end = off + nNeighbor[master];
+        for (int j = off; j < end; j++) {
+            final int n = neighbor[j];
+            if (ws < error[n]) {
+                ws = error[n];
+                wn = n;
+            }
+        }
+        return wn;
+    }
+
+    /**
+     * Add a node between the two given nodes, splitting their edge.
+     * The new node gets the average error and utility of the two nodes,
+     * after their errors have been reduced.
+     *
+     * @param n1         The index of a node
+     * @param n2         The index of a node
+     * @param alpha      The error reduction factor
+     * @return           The index of the new node
+     */
+    public int insertNode(int n1, int n2, float alpha) {
+        final int i = nNodes;
+        ensureNodeCapacity(i + 1);
+        final float dx = (x[n1] - x[n2]) / 2.0f;
+        final float dy = (y[n1] - y[n2]) / 2.0f;
+        error[n1]   *= (1.0f - alpha);
+        error[n2]   *= (1.0f - alpha);
+        error    [i] = (error  [n1] + error  [n2]) / 2.0f;
+        utility  [i] = (utility[n1] + utility[n2]) / 2.0f;
+        tau      [i] = 0.0f;
+        sqrDist  [i] = Float.MAX_VALUE;
+        x        [i] = x[n1] - dx;
+        y        [i] = y[n1] - dy;
+        nNeighbor[i] = 0;
+        deleteEdge(n1, n2);
+        // addEdge requires the new node to be counted
+        nNodes++;
+        addEdge(n1, i);
+        addEdge(n2, i);
+        return i;
+    }
+
+    /**
+     * Delete a node and its edges. The last node takes its place.
+     *
+     * @param n          The index of a node
+     */
+    public void deleteNode(int n) {
+        final int off = n * MAX_NEIGHBORS;
+        while (nNeighbor[n] > 0)
+            deleteEdge(n, neighbor[off]);
+
+        nNodes--;
+        final int m = nNodes;
+        if (n == m)
+            return;
+
+        x        [n] = x        [m];
+        y        [n] = y        [m];
+        error    [n] = error    [m];
+        utility  [n] = utility  [m];
+        tau      [n] = tau      [m];
+        sqrDist  [n] = sqrDist  [m];
+        final int num = nNeighbor[m];
+        nNeighbor[n] = num;
+        System.arraycopy(neighbor    , m * MAX_NEIGHBORS, neighbor    , off, num);
+        System.arraycopy(neighborEdge, m * MAX_NEIGHBORS, neighborEdge, off, num);
+
+        // rename all occurrences of the moved node
+        for (int j = off; j < off + num; j++) {
+            replaceNeighbor(neighbor[j], m, n);
+            final int e = neighborEdge[j];
+            if (edgeFrom[e] == m) edgeFrom[e] = n;
+            if (edgeTo  [e] == m) edgeTo  [e] = n;
+        }
+    }
+}
@@ -28,42 +28,100 @@ import java.util.*;
  *
  */
 public class NodeGNG {
-    final int TRACE_LEN = 100;
+    /**
+     * The default length of the motion trace.
+     */
+    public static final int TRACE_LEN = 100;
 
-    float traceX[] = new float[TRACE_LEN];
-    float traceY[] = new float[TRACE_LEN];
+    // ring buffers of old positions, null if no trace is recorded
+    float traceX[] = null;
+    float traceY[] = null;
     int traceIdx=0;
     int cntSig=0;
-    Vector<Float> tr= new Vector<Float>(TRACE_LEN*2);
+    Vector<Float> tr = null;
 
     public void adapt(float dx, float dy){
-        if (traceIdx==0){
-            traceX[0]=x;
-            traceY[0]=y;
-            traceIdx++;
+        if (traceX != null) {
+            // store old values in trace
+            traceX[traceIdx]=x;
+            traceY[traceIdx]=y;
+            // increment traceIndex
+            traceIdx = (traceIdx + 1) % traceX.length;
+            cntSig++;
         }
-        // store old values in trace
-        traceX[traceIdx]=x;
-        traceY[traceIdx]=y;
-        // increment traceIndex
-        traceIdx+=1;
-        traceIdx=traceIdx%TRACE_LEN;
         // apply deltas
         x += dx;
         y += dy;
-        cntSig++;
+        if (index != null)
+            index.move(this);
+    }
+
+    /**
+     * Set the number of old positions kept as motion trace.
+     *  The trace is cleared if the length changes.
+     *
+     * @param len	The length of the trace, 0 for no trace
+     * @see ComputeGNG#traceLength
+     */
+    public void setTraceLength(int len) {
+        if (len == traceLength())
+            return;
+        if (len <= 0) {
+            traceX = null;
+            traceY = null;
+        } else {
+            traceX = new float[len];
+            traceY = new float[len];
+        }
+        traceIdx = 0;
+        cntSig   = 0;
+    }
+
+    /**
+     * Returns the number of old positions kept as motion trace.
+     *
+     * @return	The length of the trace, 0 for no trace
+     */
+    public int traceLength() {
+        return (traceX == null) ? 0 : traceX.length;
+    }
+
+    /**
+     * Copy the motion trace into the given buffer as x,y,x-1,y-1 ....
+     *  At most <TT>buf.length/2</TT> positions are copied.
+     *
+     * @param buf	The buffer
+     * @return	The number of positions copied
+     */
+    public int getTrace(float[] buf) {
+        if (traceX == null)
+            return 0;
+        final int len   = traceX.length;
+        final int num   = Math.min(Math.min(cntSig, len), buf.length / 2);
+        int j = traceIdx;
+        for (int i = 0, k = 0; i < num; i++) {
+            j = (j == 0) ? len - 1 : j - 1;
+            buf[k++] = traceX[j];
+            buf[k++] = traceY[j];
+        }
+        return num;
     }
+
     // returns trace as array x,y,x-1,y-1 ....
     public Vector<Float> getTrace() {
+        if (tr == null)
+            tr = new Vector<Float>(TRACE_LEN*2);
         tr.clear();
-        if (cntSig==0)
+        if (traceX == null)
             return tr;
-        for (int i=1;i<=Math.min(cntSig, TRACE_LEN);i++){
-            tr.add(traceX[(traceIdx-i+TRACE_LEN)%TRACE_LEN]);
-            tr.add(traceY[(traceIdx-i+TRACE_LEN)%TRACE_LEN]);
+        final int len = traceX.length;
+        for (int i=1;i<=Math.min(cntSig, len);i++){
+            tr.add(traceX[(traceIdx-i+len)%len]);
+            tr.add(traceY[(traceIdx-i+len)%len]);
         }
         return tr;
     }
+
     public NodeGNG() {
         traceIdx=0;
     }
@@ -136,6 +194,12 @@ public class NodeGNG {
      * The utility for GNG-U and LBG-U
      */
     public float utility = 0.0f;
+    /**
+     * The signal count up to which <TT>error</TT>, <TT>utility</TT> and
+     *  <TT>tau</TT> have been decayed (only used with lazy decay).
+     * @see ComputeGNG#lazyDecayB
+     */
+    protected int decayStep = 0;
     /**
      * The number of neighbors.
      */
@@ -145,9 +209,33 @@ public class NodeGNG {
      */
     public  int neighbor[] = new int[MAX_NEIGHBORS];
     /**
-     * The list of neighboring signals (specified by their number).
+     * The list of incident edges (indices into <TT>ComputeGNG.edges</TT>).
+     *  <TT>edge[i]</TT> connects this node with <TT>neighbor[i]</TT>,
+     *  or is -1 if unknown.
+     */
+    protected int edge[] = new int[MAX_NEIGHBORS];
+    /**
+     * The list of neighboring signals (specified by their number),
+     *  created on first use.
+     */
+    protected Vector<Integer> signals = null;
+
+    /**
+     * The spatial index this node belongs to, or null.
+     */
+    SpatialIndexGNG index = null;
+    /**
+     * The index of this node in the node array (only valid with a spatial index).
+     */
+    int indexId = -1;
+    /**
+     * The cell of the spatial index containing this node.
+     */
+    int indexCell = -1;
+    /**
+     * The previous and next node in the same cell of the spatial index.
      */
-    protected Vector<Integer> signals = new Vector<Integer>();
+    NodeGNG indexPrev, indexNext;
 
     @Override
     public String toString() {
@@ -173,7 +261,7 @@ public class NodeGNG {
      * @return		number of numSignals
      */
     public int numSignals() {
-        return(signals.size());
+        return (signals == null) ? 0 : signals.size();
     }
 
     /**
@@ -182,6 +270,8 @@ public class NodeGNG {
      * @param sig		The index of the signal
      */
     public void addSignal(int sig) {
+        if (signals == null)
+            signals = new Vector<Integer>();
         signals.addElement( new Integer(sig) );
     }
 
@@ -191,7 +281,7 @@ public class NodeGNG {
      * @return		The index of the signal or -1.
      */
     public int removeSignal() {
-        int size = signals.size();
+        int size = numSignals();
         if (size < 1)
             return(-1);
 
@@ -229,6 +319,45 @@ public class NodeGNG {
         return neighbor[i];
     }
 
+    /**
+     * Returns the edge connecting this node with the i-th neighbor.
+     *
+     * @param i	The index of a neighbor
+     * @return	The index of an edge or -1
+     */
+    public int edge(int i) {
+        return edge[i];
+    }
+
+    /**
+     * Returns the edge connecting this node with the given node.
+     *
+     * @param node	The index of a node
+     * @return	The index of an edge or -1
+     */
+    public int edgeTo(int node) {
+        for (int i = 0; i < nNeighbor; i++)
+            if (node == neighbor[i])
+                return edge[i];
+        return -1;
+    }
+
+    /**
+     * Replaces the old edge with a new edge.
+     *
+     * @param old		The index of an edge
+     * @param newE	The index of an edge
+     * @see ComputeGNG#deleteEdge(int)
+     */
+    public void replaceEdge(int old, int newE) {
+        for (int i = 0; i < nNeighbor; i++) {
+            if (old == edge[i]) {
+                edge[i] = newE;
+                return;
+            }
+        }
+    }
+
     /**
      * Deletes the node from the list of neighbors.
      *
@@ -240,6 +369,8 @@ public class NodeGNG {
                 nNeighbor--;
                 neighbor[i] = neighbor[nNeighbor];
                 neighbor[nNeighbor] = -1;
+                edge[i] = edge[nNeighbor];
+                edge[nNeighbor] = -1;
                 return;
             }
         }
@@ -280,10 +411,21 @@ public class NodeGNG {
      * @param node	The index of a node
      */
     public void addNeighbor(int node) {
+        addNeighbor(node, -1);
+    }
+
+    /**
+     * Add a node to the neighborhood.
+     *
+     * @param node	The index of a node
+     * @param edgeNr	The index of the edge connecting the nodes
+     */
+    public void addNeighbor(int node, int edgeNr) {
         if (nNeighbor == MAX_NEIGHBORS)
             return;
 
         neighbor[nNeighbor] = node;
+        edge[nNeighbor] = edgeNr;
         nNeighbor++;
     }
 }
@@ -0,0 +1,183 @@
+package de.sciss.neuralgas;
+
+/**
+ * An indexed binary heap of node indices ordered by a <TT>double</TT> key.
+ * In contrast to a plain heap, the key of any node can be changed and any node
+ * can be removed in O(log n), because the heap position of each node is tracked.
+ * Depending on the constructor argument, the root is either the node with the
+ * maximum or the node with the minimum key.
+ *
+ * @author Hanns Holger Rutz
+ */
+public class NodeHeapGNG {
+    private final boolean max;
+
+    private int[]       heap    = new int   [0];    // heap position -> node index
+    private int[]       pos     = new int   [0];    // node index -> heap position or -1
+    private double[]    key     = new double[0];    // node index -> key
+    private int         size    = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param max   if true, the root is the node with the maximum key,
+     *              otherwise it is the node with the minimum key
+     */
+    public NodeHeapGNG(boolean max) {
+        this.max = max;
+    }
+
+    /**
+     * Returns the number of nodes in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the node at the root of the heap, or -1 if the heap is empty.
+     */
+    public int peek() {
+        return (size == 0) ? -1 : heap[0];
+    }
+
+    /**
+     * Returns true, if the node is in the heap.
+     *
+     * @param node       The index of a node
+     */
+    public boolean contains(int node) {
+        return (node < pos.length) && (pos[node] != -1);
+    }
+
+    /**
+     * Remove all nodes.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            pos[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     * Insert a node or change its key.
+     *
+     * @param node       The index of a node
+     * @param k          The new key
+     */
+    public void update(int node, double k) {
+        ensureCapacity(node + 1);
+        final int i = pos[node];
+        if (i == -1) {
+            final int j = size++;
+            heap[j]     = node;
+            pos[node]   = j;
+            key[node]   = k;
+            up(j);
+        } else {
+            final double old = key[node];
+            key[node] = k;
+            if (before(k, old))
+                up(i);
+            else
+                down(i);
+        }
+    }
+
+    /**
+     * Remove a node from the heap. Does nothing, if the node is not in the heap.
+     *
+     * @param node       The index of a node
+     */
+    public void remove(int node) {
+        if (!contains(node))
+            return;
+        final int i = pos[node];
+        pos[node] = -1;
+        size--;
+        if (i == size)
+            return;
+        final int last = heap[size];
+        heap[i]     = last;
+        pos[last]   = i;
+        up(i);
+        down(pos[last]);
+    }
+
+    /**
+     * Change the index of a node after it was moved in the node array.
+     * The new index must not be in the heap.
+     *
+     * @param old        The old index of the node
+     * @param newN       The new index of the node
+     * @see ComputeGNG#deleteNode
+     */
+    public void rename(int old, int newN) {
+        if (!contains(old))
+            return;
+        ensureCapacity(newN + 1);
+        final int i = pos[old];
+        pos[old]    = -1;
+        pos[newN]   = i;
+        key[newN]   = key[old];
+        heap[i]     = newN;
+    }
+
+    private boolean before(double a, double b) {
+        return max ? a > b : a < b;
+    }
+
+    private void up(int i) {
+        final int node  = heap[i];
+        final double k  = key[node];
+        while (i > 0) {
+            final int parent = (i - 1) >> 1;
+            final int pn     = heap[parent];
+            if (!before(k, key[pn]))
+                break;
+            heap[i] = pn;
+            pos[pn] = i;
+            i = parent;
+        }
+        heap[i]     = node;
+        pos[node]   = i;
+    }
+
+    private void down(int i) {
+        final int node  = heap[i];
+        final double k  = key[node];
+        final int half  = size >> 1;
+        while (i < half) {
+            int child   = (i << 1) + 1;
+            int cn      = heap[child];
+            final int right = child + 1;
+            if (right < size && before(key[heap[right]], key[cn])) {
+                child   = right;
+                cn      = heap[right];
+            }
+            if (!before(key[cn], k))
+                break;
+            heap[i] = cn;
+            pos[cn] = i;
+            i = child;
+        }
+        heap[i]     = node;
+        pos[node]   = i;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= pos.length)
+            return;
+        final int newSize = Math.max(n, pos.length << 1);
+        final int[] newPos = new int[newSize];
+        System.arraycopy(pos, 0, newPos, 0, pos.length);
+        java.util.Arrays.fill(newPos, pos.length, newSize, -1);
+        pos = newPos;
+        final int[] newHeap = new int[newSize];
+        System.arraycopy(heap, 0, newHeap, 0, size);
+        heap = newHeap;
+        final double[] newKey = new double[newSize];
+        System.arraycopy(key, 0, newKey, 0, key.length);
+        key = newKey;
+    }
+}
@@ -24,8 +24,6 @@ package de.sciss.neuralgas;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
-import java.awt.Point;
-import java.awt.geom.Point2D;
 
 import static de.sciss.neuralgas.ComputeGNG.RING_FACTOR;
 
@@ -36,12 +34,99 @@ import static de.sciss.neuralgas.ComputeGNG.RING_FACTOR;
 
 public interface PD {
     void getSignal(ComputeGNG compute);
+
     void draw(ComputeGNG compute, PanelLike panel, Graphics g, Dimension d);
 
     String getName();
     int ordinal();
 
-    final class Rectangle implements PD {
+    /**
+     * A distribution of equally sized rectangles on a grid. The panel is divided
+     *  into <TT>divX</TT> by <TT>divY</TT> cells, and each rectangle covers one cell.
+     *  The positions are calculated once per panel size.
+     */
+    abstract class Tiles implements BatchPD {
+        private final int divX, divY;
+        private final int[] cellX, cellY;
+
+        // the positions for the last panel size
+        private volatile Geometry geometry = null;
+
+        private static final class Geometry {
+            final int width, height;
+            final int w, h;
+            final int[] xA, yA;
+
+            Geometry(int width, int height, int w, int h, int[] xA, int[] yA) {
+                this.width  = width;
+                this.height = height;
+                this.w      = w;
+                this.h      = h;
+                this.xA     = xA;
+                this.yA     = yA;
+            }
+        }
+
+        /**
+         * @param divX       The number of cells along the panel width
+         * @param divY       The number of cells along the panel height
+         * @param cellX      The horizontal cell of each rectangle
+         * @param cellY      The vertical cell of each rectangle
+         */
+        protected Tiles(int divX, int divY, int[] cellX, int[] cellY) {
+            this.divX   = divX;
+            this.divY   = divY;
+            this.cellX  = cellX;
+            this.cellY  = cellY;
+        }
+
+        private Geometry geometry(int width, int height) {
+            Geometry g = geometry;
+            if ((g == null) || (g.width != width) || (g.height != height)) {
+                final int w = width/divX;
+                final int h = height/divY;
+                final int num = cellX.length;
+                final int xA[] = new int[num];
+                final int yA[] = new int[num];
+                for (int i = 0; i < num; i++) {
+                    xA[i] = cellX[i] * w;
+                    yA[i] = cellY[i] * h;
+                }
+                g = new Geometry(width, height, w, h, xA, yA);
+                geometry = g;
+            }
+            return g;
+        }
+
+        @Override
+        public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+            final Geometry g = geometry(compute.panelWidth, compute.panelHeight);
+            final int xA[] = g.xA;
+            final int yA[] = g.yA;
+            final int w = g.w;
+            final int h = g.h;
+            final int num = xA.length;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                final int z = (int) (num * compute.random());
+                xs[i] = (int) (xA[z] + (w * compute.random()));
+                ys[i] = (int) (yA[z] + (h * compute.random()));
+            }
+        }
+
+        @Override
+        public void draw(ComputeGNG compute, final PanelLike panel, final Graphics g, final Dimension d) {
+            final Geometry geom = geometry(d.width, d.height);
+            for (int i = 0; i < geom.xA.length; i++)
+                g.fillRect(geom.xA[i], geom.yA[i], geom.w, geom.h);
+        }
+    }
+
+    final class Rectangle implements BatchPD {
         @Override
         public int ordinal() {
             return 0;
@@ -54,14 +139,21 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int ll = wi/20;
             final int lr = hi/20;
             final int r2 = wi*9/10;
             final int l2 = hi*9/10;
-            compute.SignalX = (int) (ll + (r2 * compute.random()));
-            compute.SignalY = (int) (lr + (l2 * compute.random()));
+            for (int i = off, stop = off + len; i < stop; i++) {
+                xs[i] = (int) (ll + (r2 * compute.random()));
+                ys[i] = (int) (lr + (l2 * compute.random()));
+            }
         }
 
         @Override
@@ -74,7 +166,7 @@ public interface PD {
         }
     }
 
-    final class Circle implements PD {
+    final class Circle implements BatchPD {
         @Override
         public int ordinal() {
             return 1;
@@ -87,16 +179,27 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int cx = wi/2;
             final int cy = hi/2;
             final int minDim=(wi < hi) ? wi : hi;
-            final int diameter = minDim*9/10; // Diameter is proportional to the smallest panel dimension
-
-            final Point.Double sig = compute.circlePoint();
-            compute.SignalX = (int) (sig.getX()*diameter+cx);
-            compute.SignalY = (int) (sig.getY()*diameter+cy);
+            final int diameter = minDim*9/10;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                // point in the circle around the origin with radius 0.5, see ComputeGNG.circlePoint
+                double sx, sy;
+                do {
+                    sx = compute.random()-0.5;
+                    sy = compute.random()-0.5;
+                } while (sx*sx + sy*sy > 0.25);
+                xs[i] = (int) (sx*diameter+cx);
+                ys[i] = (int) (sy*diameter+cy);
+            }
         }
 
         @Override
@@ -111,7 +214,7 @@ public interface PD {
         }
     }
 
-    final class TwoCircles implements PD {
+    final class TwoCircles implements BatchPD {
         @Override
         public int ordinal() {
             return 2;
@@ -124,30 +227,33 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int cx = wi/2;
             final int cy = hi/2;
             final int l2;
-            // circle space circle (3x1)
             if (wi/3 < hi){
-                // limiting dimension is width
                 l2=(int) (wi/2.6);
             } else {
-                // limiting dimension is height
                 l2=(int) (hi*0.95);
             }
-            final int diameter = l2; // Diameter is proportional to the smallest panel dimension
-            final Point2D.Double sig = compute.circlePoint();
-            int dx;
-
-            if (compute.random()>0.5) {
-                dx = -l2*3/4;
-            } else {
-                dx = l2*3/4;
+            final int diameter = l2;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                // point in the circle around the origin with radius 0.5, see ComputeGNG.circlePoint
+                double sx, sy;
+                do {
+                    sx = compute.random()-0.5;
+                    sy = compute.random()-0.5;
+                } while (sx*sx + sy*sy > 0.25);
+                final int dx = (compute.random()>0.5) ? -l2*3/4 : l2*3/4;
+                xs[i] = (int) (sx*diameter+cx+dx);
+                ys[i] = (int) (sy*diameter+cy);
             }
-            compute.SignalX = (int) (sig.getX()*diameter+cx+dx);
-            compute.SignalY = (int) (sig.getY()*diameter+cy);
         }
 
         @Override
@@ -171,7 +277,7 @@ public interface PD {
         }
     }
 
-    final class Ring implements PD {
+    final class Ring implements BatchPD {
         @Override
         public int ordinal() {
             return 3;
@@ -184,6 +290,11 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int cx = wi/2;
@@ -192,22 +303,21 @@ public interface PD {
             final int ll = cx - l2;
             final int lr = cy - l2;
             final int ringRadius = (int) (l2 * RING_FACTOR);
-
-            int SignalX;
-            int SignalY;
-            float rDist = 0f;
-
-            do {
-                SignalX = (int) (ll + (2*l2 * compute.random()));
-                SignalY = (int) (lr + (2*l2 * compute.random()));
-                rDist = (float) Math.sqrt(((cx - SignalX) *
-                        (cx - SignalX) +
-                        (cy - SignalY) *
-                                (cy - SignalY)));
-            } while ( (rDist > l2) || (rDist < (l2 - ringRadius)) );
-
-            compute.SignalX = SignalX;
-            compute.SignalY = SignalY;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                int SignalX;
+                int SignalY;
+                float rDist;
+                do {
+                    SignalX = (int) (ll + (2*l2 * compute.random()));
+                    SignalY = (int) (lr + (2*l2 * compute.random()));
+                    rDist = (float) Math.sqrt(((cx - SignalX) *
+                            (cx - SignalX) +
+                            (cy - SignalY) *
+                                    (cy - SignalY)));
+                } while ( (rDist > l2) || (rDist < (l2 - ringRadius)) );
+                xs[i] = SignalX;
+                ys[i] = SignalY;
+            }
         }
 
         @Override
@@ -232,7 +342,13 @@ public interface PD {
         }
     }
 
-    final class UNI implements PD {
+    final class UNI extends Tiles {
+        public UNI() {
+            super(9, 5,
+                    new int[] { 1, 1, 1, 2, 3, 3, 3, 4, 5, 5, 5, 7, 7, 7 },
+                    new int[] { 1, 2, 3, 3, 3, 2, 1, 1, 1, 2, 3, 1, 2, 3 });
+        }
+
         @Override
         public int ordinal() {
             return 4;
@@ -242,90 +358,19 @@ public interface PD {
         public String getName() {
             return "UNI";
         }
+    }
 
-        @Override
-        public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int w = wi/9;
-            final int h = hi/5;
-            final int xA[] = new int[14];
-            final int yA[] = new int[14];
-            xA[0] = w;
-            yA[0] = h;
-            xA[1] = w;
-            yA[1] = 2*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = 2*w;
-            yA[3] = 3*h;
-            xA[4] = 3*w;
-            yA[4] = 3*h;
-            xA[5] = 3*w;
-            yA[5] = 2*h;
-            xA[6] = 3*w;
-            yA[6] = h;
-            xA[7] = 4*w;
-            yA[7] = h;
-            xA[8] = 5*w;
-            yA[8] = h;
-            xA[9] = 5*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 3*h;
-            xA[11] = 7*w;
-            yA[11] = h;
-            xA[12] = 7*w;
-            yA[12] = 2*h;
-            xA[13] = 7*w;
-            yA[13] = 3*h;
-
-            final int z = (int) (14 * compute.random());
-            compute.SignalX = (int) (xA[z] + (w * compute.random()));
-            compute.SignalY = (int) (yA[z] + (h * compute.random()));
-        }
-
-        @Override
-        public void draw(ComputeGNG compute, final PanelLike panel, final Graphics g, final Dimension d) {
-            final int w = d.width/9;
-            final int h = d.height/5;
-            final int xA[] = new int[14];
-            final int yA[] = new int[14];
-            xA[0] = w;
-            yA[0] = h;
-            xA[1] = w;
-            yA[1] = 2*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = 2*w;
-            yA[3] = 3*h;
-            xA[4] = 3*w;
-            yA[4] = 3*h;
-            xA[5] = 3*w;
-            yA[5] = 2*h;
-            xA[6] = 3*w;
-            yA[6] = h;
-            xA[7] = 4*w;
-            yA[7] = h;
-            xA[8] = 5*w;
-            yA[8] = h;
-            xA[9] = 5*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 3*h;
-            xA[11] = 7*w;
-            yA[11] = h;
-            xA[12] = 7*w;
-            yA[12] = 2*h;
-            xA[13] = 7*w;
-            yA[13] = 3*h;
-
-            for (int i = 0; i < 14; i++)
-                g.fillRect(xA[i], yA[i], w, h);
+    final class SmallSpirals extends Tiles {
+        public SmallSpirals() {
+            super(9, 7,
+                    new int[] {
+                            1, 1, 1, 1, 1, 2, 3, 4, 5, 5, 5, 3, 3, 3, 4, 5, 6, 7, 7, 7,
+                            7, 7 },
+                    new int[] {
+                            5, 4, 3, 2, 1, 1, 1, 1, 1, 2, 3, 3, 4, 5, 5, 5, 5, 5, 4, 3,
+                            2, 1 });
         }
-    }
 
-    final class SmallSpirals implements PD {
         @Override
         public int ordinal() {
             return 5;
@@ -335,122 +380,21 @@ public interface PD {
         public String getName() {
             return "SmallSpirals";
         }
+    }
 
-        @Override
-        public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int w = wi/9;
-            final int h = hi/7;
-            final int xA[] = new int[22];
-            final int yA[] = new int[22];
-            xA[0] = w;
-            yA[0] = 5*h;
-            xA[1] = w;
-            yA[1] = 4*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = w;
-            yA[3] = 2*h;
-            xA[4] = 1*w;
-            yA[4] = h;
-            xA[5] = 2*w;
-            yA[5] = h;
-            xA[6] = 3*w;
-            yA[6] = h;
-            xA[7] = 4*w;
-            yA[7] = h;
-            xA[8] = 5*w;
-            yA[8] = 1*h;
-            xA[9] = 5*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 3*h;
-            xA[11] = 3*w;
-            yA[11] = 3*h;
-            xA[12] = 3*w;
-            yA[12] = 4*h;
-            xA[13] = 3*w;
-            yA[13] = 5*h;
-            xA[14] = 4*w;
-            yA[14] = 5*h;
-            xA[15] = 5*w;
-            yA[15] = 5*h;
-            xA[16] = 6*w;
-            yA[16] = 5*h;
-            xA[17] = 7*w;
-            yA[17] = 5*h;
-            xA[18] = 7*w;
-            yA[18] = 4*h;
-            xA[19] = 7*w;
-            yA[19] = 3*h;
-            xA[20] = 7*w;
-            yA[20] = 2*h;
-            xA[21] = 7*w;
-            yA[21] = 1*h;
-
-            final int z = (int) (22 * compute.random());
-            compute.SignalX = (int) (xA[z] + (w * compute.random()));
-            compute.SignalY = (int) (yA[z] + (h * compute.random()));
+    final class LargeSpirals extends Tiles {
+        public LargeSpirals() {
+            super(13, 11,
+                    new int[] {
+                            1, 1, 1, 1, 1, 1, 1, 1, 1, 2, 3, 4, 5, 6, 7, 8, 9, 9, 9, 9,
+                            9, 9, 9, 8, 7, 6, 5, 5, 5, 3, 3, 3, 3, 3, 3, 3, 4, 5, 6, 7,
+                            7, 7, 4, 5, 6, 7, 8, 9, 10, 11, 11, 11, 11, 11, 11, 11, 11, 11 },
+                    new int[] {
+                            1, 2, 3, 4, 5, 6, 7, 8, 9, 1, 1, 1, 1, 1, 1, 1, 1, 2, 3, 4,
+                            5, 6, 7, 7, 7, 7, 7, 6, 5, 3, 4, 5, 6, 7, 8, 9, 3, 3, 3, 3,
+                            4, 5, 9, 9, 9, 9, 9, 9, 9, 9, 8, 7, 6, 5, 4, 3, 2, 1 });
         }
 
-        @Override
-        public void draw(ComputeGNG compute, final PanelLike panel, final Graphics g, final Dimension d) {
-            final int w = d.width/9;
-            final int h = d.height/7;
-            final int xA[] = new int[22];
-            final int yA[] = new int[22];
-            xA[0] = w;
-            yA[0] = 5*h;
-            xA[1] = w;
-            yA[1] = 4*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = w;
-            yA[3] = 2*h;
-            xA[4] = 1*w;
-            yA[4] = h;
-            xA[5] = 2*w;
-            yA[5] = h;
-            xA[6] = 3*w;
-            yA[6] = h;
-            xA[7] = 4*w;
-            yA[7] = h;
-            xA[8] = 5*w;
-            yA[8] = 1*h;
-            xA[9] = 5*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 3*h;
-            xA[11] = 3*w;
-            yA[11] = 3*h;
-            xA[12] = 3*w;
-            yA[12] = 4*h;
-            xA[13] = 3*w;
-            yA[13] = 5*h;
-            xA[14] = 4*w;
-            yA[14] = 5*h;
-            xA[15] = 5*w;
-            yA[15] = 5*h;
-            xA[16] = 6*w;
-            yA[16] = 5*h;
-            xA[17] = 7*w;
-            yA[17] = 5*h;
-            xA[18] = 7*w;
-            yA[18] = 4*h;
-            xA[19] = 7*w;
-            yA[19] = 3*h;
-            xA[20] = 7*w;
-            yA[20] = 2*h;
-            xA[21] = 7*w;
-            yA[21] = 1*h;
-
-            for (int i = 0; i < 22; i++)
-                g.fillRect(xA[i], yA[i], w, h);
-        }
-    }
-
-    final class LargeSpirals implements PD {
         @Override
         public int ordinal() {
             return 6;
@@ -460,266 +404,9 @@ public interface PD {
         public String getName() {
             return "LargeSpirals";
         }
-
-        @Override
-        public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int xA[] = new int[58];
-            final int yA[] = new int[58];
-            final int w = wi/13;
-            final int h = hi/11;
-            xA[0] = w;
-            yA[0] = h;
-            xA[1] = w;
-            yA[1] = 2*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = w;
-            yA[3] = 4*h;
-            xA[4] = 1*w;
-            yA[4] = 5*h;
-            xA[5] = 1*w;
-            yA[5] = 6*h;
-            xA[6] = 1*w;
-            yA[6] = 7*h;
-            xA[7] = 1*w;
-            yA[7] = 8*h;
-            xA[8] = 1*w;
-            yA[8] = 9*h;
-            xA[9] = 2*w;
-            yA[9] = 1*h;
-            xA[10] = 3*w;
-            yA[10] = 1*h;
-            xA[11] = 4*w;
-            yA[11] = 1*h;
-            xA[12] = 5*w;
-            yA[12] = 1*h;
-            xA[13] = 6*w;
-            yA[13] = 1*h;
-            xA[14] = 7*w;
-            yA[14] = 1*h;
-            xA[15] = 8*w;
-            yA[15] = 1*h;
-            xA[16] = 9*w;
-            yA[16] = 1*h;
-            xA[17] = 9*w;
-            yA[17] = 2*h;
-            xA[18] = 9*w;
-            yA[18] = 3*h;
-            xA[19] = 9*w;
-            yA[19] = 4*h;
-            xA[20] = 9*w;
-            yA[20] = 5*h;
-            xA[21] = 9*w;
-            yA[21] = 6*h;
-            xA[22] = 9*w;
-            yA[22] = 7*h;
-            xA[23] = 8*w;
-            yA[23] = 7*h;
-            xA[24] = 7*w;
-            yA[24] = 7*h;
-            xA[25] = 6*w;
-            yA[25] = 7*h;
-            xA[26] = 5*w;
-            yA[26] = 7*h;
-            xA[27] = 5*w;
-            yA[27] = 6*h;
-            xA[28] = 5*w;
-            yA[28] = 5*h;
-            xA[29] = 3*w;
-            yA[29] = 3*h;
-            xA[30] = 3*w;
-            yA[30] = 4*h;
-            xA[31] = 3*w;
-            yA[31] = 5*h;
-            xA[32] = 3*w;
-            yA[32] = 6*h;
-            xA[33] = 3*w;
-            yA[33] = 7*h;
-            xA[34] = 3*w;
-            yA[34] = 8*h;
-            xA[35] = 3*w;
-            yA[35] = 9*h;
-            xA[36] = 4*w;
-            yA[36] = 3*h;
-            xA[37] = 5*w;
-            yA[37] = 3*h;
-            xA[38] = 6*w;
-            yA[38] = 3*h;
-            xA[39] = 7*w;
-            yA[39] = 3*h;
-            xA[40] = 7*w;
-            yA[40] = 4*h;
-            xA[41] = 7*w;
-            yA[41] = 5*h;
-            xA[42] = 4*w;
-            yA[42] = 9*h;
-            xA[43] = 5*w;
-            yA[43] = 9*h;
-            xA[44] = 6*w;
-            yA[44] = 9*h;
-            xA[45] = 7*w;
-            yA[45] = 9*h;
-            xA[46] = 8*w;
-            yA[46] = 9*h;
-            xA[47] = 9*w;
-            yA[47] = 9*h;
-            xA[48] =10*w;
-            yA[48] = 9*h;
-            xA[49] =11*w;
-            yA[49] = 9*h;
-            xA[50] =11*w;
-            yA[50] = 8*h;
-            xA[51] =11*w;
-            yA[51] = 7*h;
-            xA[52] =11*w;
-            yA[52] = 6*h;
-            xA[53] =11*w;
-            yA[53] = 5*h;
-            xA[54] =11*w;
-            yA[54] = 4*h;
-            xA[55] =11*w;
-            yA[55] = 3*h;
-            xA[56] =11*w;
-            yA[56] = 2*h;
-            xA[57] =11*w;
-            yA[57] = 1*h;
-
-            final int z = (int) (58 * compute.random());
-            compute.SignalX = (int) (xA[z] + (w * compute.random()));
-            compute.SignalY = (int) (yA[z] + (h * compute.random()));
-        }
-
-        @Override
-        public void draw(ComputeGNG compute, final PanelLike panel, final Graphics g, final Dimension d) {
-            final int w = d.width/13;
-            final int h = d.height/11;
-            final int xA[] = new int[58];
-            final int yA[] = new int[58];
-            xA[0] = w;
-            yA[0] = h;
-            xA[1] = w;
-            yA[1] = 2*h;
-            xA[2] = w;
-            yA[2] = 3*h;
-            xA[3] = w;
-            yA[3] = 4*h;
-            xA[4] = 1*w;
-            yA[4] = 5*h;
-            xA[5] = 1*w;
-            yA[5] = 6*h;
-            xA[6] = 1*w;
-            yA[6] = 7*h;
-            xA[7] = 1*w;
-            yA[7] = 8*h;
-            xA[8] = 1*w;
-            yA[8] = 9*h;
-            xA[9] = 2*w;
-            yA[9] = 1*h;
-            xA[10] = 3*w;
-            yA[10] = 1*h;
-            xA[11] = 4*w;
-            yA[11] = 1*h;
-            xA[12] = 5*w;
-            yA[12] = 1*h;
-            xA[13] = 6*w;
-            yA[13] = 1*h;
-            xA[14] = 7*w;
-            yA[14] = 1*h;
-            xA[15] = 8*w;
-            yA[15] = 1*h;
-            xA[16] = 9*w;
-            yA[16] = 1*h;
-            xA[17] = 9*w;
-            yA[17] = 2*h;
-            xA[18] = 9*w;
-            yA[18] = 3*h;
-            xA[19] = 9*w;
-            yA[19] = 4*h;
-            xA[20] = 9*w;
-            yA[20] = 5*h;
-            xA[21] = 9*w;
-            yA[21] = 6*h;
-            xA[22] = 9*w;
-            yA[22] = 7*h;
-            xA[23] = 8*w;
-            yA[23] = 7*h;
-            xA[24] = 7*w;
-            yA[24] = 7*h;
-            xA[25] = 6*w;
-            yA[25] = 7*h;
-            xA[26] = 5*w;
-            yA[26] = 7*h;
-            xA[27] = 5*w;
-            yA[27] = 6*h;
-            xA[28] = 5*w;
-            yA[28] = 5*h;
-            xA[29] = 3*w;
-            yA[29] = 3*h;
-            xA[30] = 3*w;
-            yA[30] = 4*h;
-            xA[31] = 3*w;
-            yA[31] = 5*h;
-            xA[32] = 3*w;
-            yA[32] = 6*h;
-            xA[33] = 3*w;
-            yA[33] = 7*h;
-            xA[34] = 3*w;
-            yA[34] = 8*h;
-            xA[35] = 3*w;
-            yA[35] = 9*h;
-            xA[36] = 4*w;
-            yA[36] = 3*h;
-            xA[37] = 5*w;
-            yA[37] = 3*h;
-            xA[38] = 6*w;
-            yA[38] = 3*h;
-            xA[39] = 7*w;
-            yA[39] = 3*h;
-            xA[40] = 7*w;
-            yA[40] = 4*h;
-            xA[41] = 7*w;
-            yA[41] = 5*h;
-            xA[42] = 4*w;
-            yA[42] = 9*h;
-            xA[43] = 5*w;
-            yA[43] = 9*h;
-            xA[44] = 6*w;
-            yA[44] = 9*h;
-            xA[45] = 7*w;
-            yA[45] = 9*h;
-            xA[46] = 8*w;
-            yA[46] = 9*h;
-            xA[47] = 9*w;
-            yA[47] = 9*h;
-            xA[48] =10*w;
-            yA[48] = 9*h;
-            xA[49] =11*w;
-            yA[49] = 9*h;
-            xA[50] =11*w;
-            yA[50] = 8*h;
-            xA[51] =11*w;
-            yA[51] = 7*h;
-            xA[52] =11*w;
-            yA[52] = 6*h;
-            xA[53] =11*w;
-            yA[53] = 5*h;
-            xA[54] =11*w;
-            yA[54] = 4*h;
-            xA[55] =11*w;
-            yA[55] = 3*h;
-            xA[56] =11*w;
-            yA[56] = 2*h;
-            xA[57] =11*w;
-            yA[57] = 1*h;
-
-            for (int i = 0; i < 58; i++)
-                g.fillRect(xA[i], yA[i], w, h);
-        }
     }
 
-    final class HiLoDensity implements PD {
+    final class HiLoDensity implements BatchPD {
         @Override
         public int ordinal() {
             return 7;
@@ -732,24 +419,26 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int w = wi/10;
-            final int h = hi/10;
-            final int xA[] = new int[2];
-            final int yA[] = new int[2];
-            xA[0] = 2 * w;
-            yA[0] = 4 * h;
-            xA[1] = 5 * w;
-            yA[1] = 1 * h;
-
-            final int z = (int) (2 * compute.random());
-            if (z == 0) {
-                compute.SignalX = (int) (xA[z] + (w * compute.random()));
-                compute.SignalY = (int) (yA[z] + (h * compute.random()));
-            } else {
-                compute.SignalX = (int) (xA[z] + (4 * w * compute.random()));
-                compute.SignalY = (int) (yA[z] + (8 * h * compute.random()));
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+            final int w = compute.panelWidth/10;
+            final int h = compute.panelHeight/10;
+            final int x0 = 2 * w;
+            final int y0 = 4 * h;
+            final int x1 = 5 * w;
+            final int y1 = 1 * h;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                final int z = (int) (2 * compute.random());
+                if (z == 0) {
+                    xs[i] = (int) (x0 + (w * compute.random()));
+                    ys[i] = (int) (y0 + (h * compute.random()));
+                } else {
+                    xs[i] = (int) (x1 + (4 * w * compute.random()));
+                    ys[i] = (int) (y1 + (8 * h * compute.random()));
+                }
             }
         }
 
@@ -774,7 +463,7 @@ public interface PD {
         }
     }
 
-    final class DiscreteMixture implements PD {
+    final class DiscreteMixture implements BatchPD {
         @Override
         public int ordinal() {
             return 8;
@@ -787,9 +476,20 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
-            final int z = (int) (compute.MIXTURE_SIZE * compute.random());
-            compute.SignalX = Math.round(compute.discreteSignalsX[z]);
-            compute.SignalY = Math.round(compute.discreteSignalsY[z]);
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+            final int size                  = compute.MIXTURE_SIZE;
+            compute.ensureDiscreteSignals(size);
+            final float[] discreteSignalsX  = compute.discreteSignalsX;
+            final float[] discreteSignalsY  = compute.discreteSignalsY;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                final int z = (int) (size * compute.random());
+                xs[i] = Math.round(discreteSignalsX[z]);
+                ys[i] = Math.round(discreteSignalsY[z]);
+            }
         }
 
         @Override
@@ -797,7 +497,7 @@ public interface PD {
             //int RADIUS = 2;
             final float[] discreteSignalsX  = compute.discreteSignalsX;
             final float[] discreteSignalsY  = compute.discreteSignalsY;
-            final int numDiscreteSignals    = compute.numDiscreteSignals;
+            final int numDiscreteSignals    = Math.min(compute.numDiscreteSignals, discreteSignalsX.length);
             for (int i = 0; i < numDiscreteSignals; i++) {
                 final int x = Math.round(discreteSignalsX[i]);
                 final int y = Math.round(discreteSignalsY[i]);
@@ -810,7 +510,17 @@ public interface PD {
         }
     }
 
-    final class UNIT implements PD {
+    final class UNIT extends Tiles {
+        public UNIT() {
+            super(17, 8,
+                    new int[] {
+                            1, 1, 1, 1, 2, 3, 3, 3, 3, 4, 5, 6, 7, 7, 7, 7, 8, 9, 10, 11,
+                            11, 11, 11, 14, 15, 15, 15, 15 },
+                    new int[] {
+                            2, 3, 4, 5, 5, 5, 4, 3, 2, 2, 2, 2, 2, 3, 4, 5, 5, 5, 5, 5,
+                            4, 3, 2, 2, 2, 3, 4, 5 });
+        }
+
         @Override
         public int ordinal() {
             return 9;
@@ -820,146 +530,9 @@ public interface PD {
         public String getName() {
             return "UNIT";
         }
-
-        @Override
-        public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int xA[] = new int[28];
-            final int yA[] = new int[28];
-            final int w = wi/17;
-            final int h = hi/8;
-            xA[0] = w;
-            yA[0] = 2*h;
-            xA[1] = w;
-            yA[1] = 3*h;
-            xA[2] = w;
-            yA[2] = 4*h;
-            xA[3] = w;
-            yA[3] = 5*h;
-            xA[4] = 2*w;
-            yA[4] = 5*h;
-            xA[5] = 3*w;
-            yA[5] = 5*h;
-            xA[6] = 3*w;
-            yA[6] = 4*h;
-            xA[7] = 3*w;
-            yA[7] = 3*h;
-            xA[8] = 3*w;
-            yA[8] = 2*h;
-            xA[9] = 4*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 2*h;
-            xA[11] = 6*w;
-            yA[11] = 2*h;
-            xA[12] = 7*w;
-            yA[12] = 2*h;
-            xA[13] = 7*w;
-            yA[13] = 3*h;
-            xA[14] = 7*w;
-            yA[14] = 4*h;
-            xA[15] = 7*w;
-            yA[15] = 5*h;
-            xA[16] = 8*w;
-            yA[16] = 5*h;
-            xA[17] = 9*w;
-            yA[17] = 5*h;
-            xA[18] = 10*w;
-            yA[18] = 5*h;
-            xA[19] = 11*w;
-            yA[19] = 5*h;
-            xA[20] = 11*w;
-            yA[20] = 4*h;
-            xA[21] = 11*w;
-            yA[21] = 3*h;
-            xA[22] = 11*w;
-            yA[22] = 2*h;
-            xA[23] = 14*w;
-            yA[23] = 2*h;
-            xA[24] = 15*w;
-            yA[24] = 2*h;
-            xA[25] = 15*w;
-            yA[25] = 3*h;
-            xA[26] = 15*w;
-            yA[26] = 4*h;
-            xA[27] = 15*w;
-            yA[27] = 5*h;
-
-            final int z = (int) (28 * compute.random());
-            compute.SignalX = (int) (xA[z] + (w * compute.random()));
-            compute.SignalY = (int) (yA[z] + (h * compute.random()));
-        }
-
-        @Override
-        public void draw(ComputeGNG compute, final PanelLike panel, final Graphics g, final Dimension d) {
-            final int w = d.width/17;
-            final int h = d.height/8;
-            final int xA[] = new int[28];
-            final int yA[] = new int[28];
-            xA[0] = w;
-            yA[0] = 2*h;
-            xA[1] = w;
-            yA[1] = 3*h;
-            xA[2] = w;
-            yA[2] = 4*h;
-            xA[3] = w;
-            yA[3] = 5*h;
-            xA[4] = 2*w;
-            yA[4] = 5*h;
-            xA[5] = 3*w;
-            yA[5] = 5*h;
-            xA[6] = 3*w;
-            yA[6] = 4*h;
-            xA[7] = 3*w;
-            yA[7] = 3*h;
-            xA[8] = 3*w;
-            yA[8] = 2*h;
-            xA[9] = 4*w;
-            yA[9] = 2*h;
-            xA[10] = 5*w;
-            yA[10] = 2*h;
-            xA[11] = 6*w;
-            yA[11] = 2*h;
-            xA[12] = 7*w;
-            yA[12] = 2*h;
-            xA[13] = 7*w;
-            yA[13] = 3*h;
-            xA[14] = 7*w;
-            yA[14] = 4*h;
-            xA[15] = 7*w;
-            yA[15] = 5*h;
-            xA[16] = 8*w;
-            yA[16] = 5*h;
-            xA[17] = 9*w;
-            yA[17] = 5*h;
-            xA[18] = 10*w;
-            yA[18] = 5*h;
-            xA[19] = 11*w;
-            yA[19] = 5*h;
-            xA[20] = 11*w;
-            yA[20] = 4*h;
-            xA[21] = 11*w;
-            yA[21] = 3*h;
-            xA[22] = 11*w;
-            yA[22] = 2*h;
-            xA[23] = 14*w;
-            yA[23] = 2*h;
-            xA[24] = 15*w;
-            yA[24] = 2*h;
-            xA[25] = 15*w;
-            yA[25] = 3*h;
-            xA[26] = 15*w;
-            yA[26] = 4*h;
-            xA[27] = 15*w;
-            yA[27] = 5*h;
-
-            for (int i = 0; i < 28; i++)
-                g.fillRect(xA[i], yA[i], w, h);
-        }
     }
 
-    final class MoveJump implements PD {
+    final class MoveJump implements BatchPD {
         @Override
         public int ordinal() {
             return 10;
@@ -972,18 +545,25 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int r2 = wi/4;
             final int l2 = hi/4;
-            final int numSignals = compute.numSignals;
-            final int ll = (int) (0.75 * (wi/2 +
-                    Math.IEEEremainder(0.2 * numSignals,(wi))));
-            final int lr = (int) (0.75 * (hi/2 +
-                    Math.IEEEremainder(0.2 * numSignals,(hi))));
-
-            compute.SignalX = (int) (ll + (r2 * compute.random()));
-            compute.SignalY = (int) (lr + (l2 * compute.random()));
+            int numSignals = compute.numSignals;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                numSignals++;
+                final int ll = (int) (0.75 * (wi/2 +
+                        Math.IEEEremainder(0.2 * numSignals,(wi))));
+                final int lr = (int) (0.75 * (hi/2 +
+                        Math.IEEEremainder(0.2 * numSignals,(hi))));
+                xs[i] = (int) (ll + (r2 * compute.random()));
+                ys[i] = (int) (lr + (l2 * compute.random()));
+            }
         }
 
         @Override
@@ -1000,7 +580,7 @@ public interface PD {
         }
     }
 
-    final class Move implements PD {
+    final class Move implements BatchPD {
         @Override
         public int ordinal() {
             return 11;
@@ -1013,27 +593,35 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int r2 = wi/4;
             final int l2 = hi/4;
-            final int numSignals = compute.numSignals;
-            final double remainderX = Math.IEEEremainder(0.2 * numSignals,(wi));
-            final double remainderY = Math.IEEEremainder(0.2 * numSignals,(hi));
+            int numSignals = compute.numSignals;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                numSignals++;
+                final double remainderX = Math.IEEEremainder(0.2 * numSignals,(wi));
+                final double remainderY = Math.IEEEremainder(0.2 * numSignals,(hi));
 
-            if ( (compute.bounceX_old > 0) && (remainderX < 0) )
-                compute.bounceX = compute.bounceX * (-1);
-            if ( (compute.bounceY_old > 0) && (remainderY < 0) )
-                compute.bounceY = compute.bounceY * (-1);
+                if ( (compute.bounceX_old > 0) && (remainderX < 0) )
+                    compute.bounceX = compute.bounceX * (-1);
+                if ( (compute.bounceY_old > 0) && (remainderY < 0) )
+                    compute.bounceY = compute.bounceY * (-1);
 
-            final int ll = (int) (0.75 * (wi/2 + compute.bounceX * remainderX));
-            final int lr = (int) (0.75 * (hi/2 + compute.bounceY * remainderY));
+                final int ll = (int) (0.75 * (wi/2 + compute.bounceX * remainderX));
+                final int lr = (int) (0.75 * (hi/2 + compute.bounceY * remainderY));
 
-            compute.bounceX_old = remainderX;
-            compute.bounceY_old = remainderY;
+                compute.bounceX_old = remainderX;
+                compute.bounceY_old = remainderY;
 
-            compute.SignalX = (int) (ll + (r2 * compute.random()));
-            compute.SignalY = (int) (lr + (l2 * compute.random()));
+                xs[i] = (int) (ll + (r2 * compute.random()));
+                ys[i] = (int) (lr + (l2 * compute.random()));
+            }
         }
 
         @Override
@@ -1052,7 +640,7 @@ public interface PD {
         }
     }
 
-    final class Jump implements PD {
+    final class Jump implements BatchPD {
         @Override
         public int ordinal() {
             return 12;
@@ -1065,18 +653,25 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
+            ComputeGNG.fillSignal(this, compute);
+        }
+
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
             final int wi = compute.panelWidth;
             final int hi = compute.panelHeight;
             final int r2 = wi/4;
             final int l2 = hi/4;
-
-            if (Math.ceil(Math.IEEEremainder(compute.numSignals, 1000.0)) == 0) {
-                compute.jumpX = (int) ((wi - r2) * compute.random());
-                compute.jumpY = (int) ((hi - l2) * compute.random());
+            int numSignals = compute.numSignals;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                numSignals++;
+                if (Math.ceil(Math.IEEEremainder(numSignals, 1000.0)) == 0) {
+                    compute.jumpX = (int) ((wi - r2) * compute.random());
+                    compute.jumpY = (int) ((hi - l2) * compute.random());
+                }
+                xs[i] = (int) (compute.jumpX + (r2 * compute.random()));
+                ys[i] = (int) (compute.jumpY + (l2 * compute.random()));
             }
-
-            compute.SignalX = (int) (compute.jumpX + (r2 * compute.random()));
-            compute.SignalY = (int) (compute.jumpY + (l2 * compute.random()));
         }
 
         @Override
@@ -1087,7 +682,7 @@ public interface PD {
         }
     }
 
-    final class RightMouseB implements PD {
+    final class RightMouseB implements BatchPD {
         @Override
         public int ordinal() {
             return 13;
@@ -1100,13 +695,19 @@ public interface PD {
 
         @Override
         public void getSignal(ComputeGNG compute) {
-            final int wi = compute.panelWidth;
-            final int hi = compute.panelHeight;
-            final int r2 = wi/4;
-            final int l2 = hi/4;
+            ComputeGNG.fillSignal(this, compute);
+        }
 
-            compute.SignalX = (int) (compute.jumpX + (r2 * compute.random()));
-            compute.SignalY = (int) (compute.jumpY + (l2 * compute.random()));
+        @Override
+        public void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+            final int r2 = compute.panelWidth/4;
+            final int l2 = compute.panelHeight/4;
+            final int jumpX = compute.jumpX;
+            final int jumpY = compute.jumpY;
+            for (int i = off, stop = off + len; i < stop; i++) {
+                xs[i] = (int) (jumpX + (r2 * compute.random()));
+                ys[i] = (int) (jumpY + (l2 * compute.random()));
+            }
         }
 
         @Override
@@ -0,0 +1,187 @@
+package de.sciss.neuralgas;
+
+/**
+ * A copy of the part of a network which is needed to draw it: the positions
+ * and flags of the nodes, the edges, the grid and the last signals.
+ * Snapshots are made by <TT>ComputeGNG</TT> and handed to a drawing thread
+ * without locking, see <TT>ComputeGNG#acquireSnapshot</TT>. The arrays are
+ * reused, and may be longer than the number of their valid entries.
+ *
+ * @author Hanns Holger Rutz
+ */
+public final class SnapshotGNG {
+    /**
+     * The flag of the winner node (teach-mode).
+     */
+    public static final int WINNER      = 1;
+    /**
+     * The flag of the second node (teach-mode).
+     */
+    public static final int SECOND      = 2;
+    /**
+     * The flag of the most recently inserted node.
+     */
+    public static final int INSERTED    = 4;
+    /**
+     * The flag of a moved node.
+     */
+    public static final int MOVED       = 8;
+
+    public Algorithm algorithm;
+    public int nNodes, maxNodes, nEdges;
+    public int numSignals;
+
+    public float x[]        = new float[0];
+    public float y[]        = new float[0];
+    public float tau[]      = new float[0];
+    public int   xGrid[]    = new int  [0];
+    public int   yGrid[]    = new int  [0];
+    /**
+     * The flags of the nodes, a combination of <TT>WINNER</TT>, <TT>SECOND</TT>,
+     *  <TT>INSERTED</TT> and <TT>MOVED</TT>.
+     */
+    public byte  flags[]    = new byte [0];
+
+    public int edgeFrom[]   = new int[0];
+    public int edgeTo[]     = new int[0];
+
+    public int gridWidth, gridHeight;
+    /**
+     * The index of the node at grid position <TT>(i, j)</TT> is found
+     *  at <TT>grid[i * gridHeight + j]</TT>.
+     */
+    public int grid[]       = new int[0];
+
+    /**
+     * The maximum number of points of a motion trace, or zero if there are no traces.
+     */
+    public int traceLength;
+    /**
+     * The motion traces as pairs of x and y, starting with the newest point
+     *  (the position before the last move) and going back in time, as in <TT>NodeGNG.getTrace</TT>.
+     *  The trace of node <TT>i</TT> starts at <TT>2 * i * traceLength</TT>.
+     */
+    public float trace[]    = new float[0];
+    /**
+     * The number of points of the motion trace of each node.
+     */
+    public int traceNum[]   = new int[0];
+
+    public float signalX, signalY;
+    public int numLastSignals;
+    public float lastSignalsX[] = new float[0];
+    public float lastSignalsY[] = new float[0];
+
+    public boolean readyLBG_B, fineTuningB;
+    public String fineTuningS = "";
+
+    // set when published, cleared when taken by the reader
+    boolean fresh = false;
+
+    private float traceBuf[] = new float[0];
+
+    /**
+     * Copy the state of a network. The node objects must be up to date.
+     */
+    void copyFrom(ComputeGNG c) {
+        final int n     = c.nNodes;
+        final int ne    = c.nEdges;
+        algorithm       = c.algorithm;
+        nNodes          = n;
+        maxNodes        = c.maxNodes;
+        nEdges          = ne;
+        numSignals      = c.numSignals;
+
+        if (x.length < n) {
+            final int size = Math.max(n, x.length << 1);
+            x       = new float[size];
+            y       = new float[size];
+            tau     = new float[size];
+            xGrid   = new int  [size];
+            yGrid   = new int  [size];
+            flags   = new byte [size];
+        }
+        final NodeGNG[] nodes = c.nodes;
+        for (int i = 0; i < n; i++) {
+            final NodeGNG nd = nodes[i];
+            x    [i] = nd.x;
+            y    [i] = nd.y;
+            tau  [i] = nd.tau;
+            xGrid[i] = nd.x_grid;
+            yGrid[i] = nd.y_grid;
+            int f = 0;
+            if (nd.isWinner)                f |= WINNER;
+            if (nd.isSecond)                f |= SECOND;
+            if (nd.isMostRecentlyInserted)  f |= INSERTED;
+            if (nd.hasMoved)                f |= MOVED;
+            flags[i] = (byte) f;
+        }
+
+        if (edgeFrom.length < ne) {
+            final int size = Math.max(ne, edgeFrom.length << 1);
+            edgeFrom    = new int[size];
+            edgeTo      = new int[size];
+        }
+        final EdgeGNG[] edges = c.edges;
+        for (int i = 0; i < ne; i++) {
+            final EdgeGNG e = edges[i];
+            edgeFrom[i] = e.from;
+            edgeTo  [i] = e.to;
+        }
+
+        final int gw    = c.gridWidth;
+        final int gh    = c.gridHeight;
+        gridWidth       = gw;
+        gridHeight      = gh;
+        if (grid.length < gw * gh)
+            grid = new int[gw * gh];
+        for (int i = 0; i < gw; i++) {
+            final GridNodeGNG column[] = c.grid[i];
+            for (int j = 0; j < gh; j++)
+                grid[i * gh + j] = column[j].index;
+        }
+
+        final int len   = c.traceLength;
+        traceLength     = len;
+        if (len > 0) {
+            if (traceNum.length < n)
+                traceNum = new int[x.length];
+            if (trace.length < 2 * len * n)
+                trace = new float[2 * len * x.length];
+            if (traceBuf.length < 2 * len)
+                traceBuf = new float[2 * len];
+            final float buf[] = traceBuf;
+            for (int i = 0; i < n; i++) {
+                final NodeGNG nd = nodes[i];
+                final int num = (nd.traceLength() == len) ? nd.getTrace(buf) : 0;
+                System.arraycopy(buf, 0, trace, 2 * len * i, 2 * num);
+                traceNum[i] = num;
+            }
+        }
+
+        signalX         = c.SignalX;
+        signalY         = c.SignalY;
+        final int ns    = Math.min(c.stepSize, c.lastSignalsX.length);
+        numLastSignals  = ns;
+        if (lastSignalsX.length < ns) {
+            lastSignalsX    = new float[ns];
+            lastSignalsY    = new float[ns];
+        }
+        System.arraycopy(c.lastSignalsX, 0, lastSignalsX, 0, ns);
+        System.arraycopy(c.lastSignalsY, 0, lastSignalsY, 0, ns);
+
+        readyLBG_B      = c.readyLBG_B;
+        fineTuningB     = c.fineTuningB;
+        fineTuningS     = c.fineTuningS;
+    }
+
+    /**
+     * Returns the index of the node at a grid position.
+     *
+     * @param i          The column
+     * @param j          The row
+     */
+    public int gridNode(int i, int j) {
+        return grid[i * gridHeight + j];
+    }
+}
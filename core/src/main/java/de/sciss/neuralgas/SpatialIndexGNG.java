@@ -0,0 +1,313 @@
+package de.sciss.neuralgas;
+
+/**
+ * A uniform grid over the node positions which is used to find the
+ * nearest and the second-nearest node of a signal without scanning all nodes.
+ * Every cell holds an intrusive double linked list of its nodes, so that
+ * adding, removing and moving a node is O(1). The index is kept up-to-date by
+ * <TT>NodeGNG.adapt</TT> and by the node insertion and deletion methods
+ * of <TT>ComputeGNG</TT>.
+ *
+ * Nodes or signals outside the bounds of the grid are clamped to the border cells.
+ * Since clamping never increases the distance between signal and node,
+ * the search remains exact.
+ *
+ * @author Hanns Holger Rutz
+ */
+public class SpatialIndexGNG {
+    /**
+     * The average number of nodes per cell aimed at when (re)building the grid.
+     */
+    protected static final int NODES_PER_CELL = 2;
+
+    private float x0, y0, x1, y1;
+    private float cellW, cellH;
+    private int cols, rows;
+    private NodeGNG[] cells = new NodeGNG[0];
+
+    private int numNodes = 0;
+    private int panelWidth  = -1;
+    private int panelHeight = -1;
+
+    /**
+     * The index of the nearest node found by the last call to <TT>findNearest</TT>.
+     */
+    public int first = -1;
+
+    /**
+     * The index of the second-nearest node found by the last call to
+     * <TT>findNearest</TT>, or -1 if there is only one node.
+     */
+    public int second = -1;
+
+    /**
+     * The squared distance of the nearest node.
+     */
+    public float firstSqrDist = Float.MAX_VALUE;
+
+    /**
+     * The squared distance of the second-nearest node.
+     */
+    public float secondSqrDist = Float.MAX_VALUE;
+
+    /**
+     * Returns the number of nodes in the index.
+     */
+    public int size() {
+        return numNodes;
+    }
+
+    /**
+     * Returns true, if the index has been built and not been cleared since.
+     */
+    public boolean isActive() {
+        return cells.length > 0;
+    }
+
+    /**
+     * Returns true, if the grid resolution or bounds do not fit the given
+     * number of nodes and panel size any longer.
+     *
+     * @param n           The current number of nodes
+     * @param width       The current panel width
+     * @param height      The current panel height
+     */
+    public boolean needsRebuild(int n, int width, int height) {
+        if (!isActive() || width != panelWidth || height != panelHeight || n != numNodes)
+            return true;
+        final int numCells  = cells.length;
+        final int target    = n / NODES_PER_CELL;
+        return (target > numCells * 4) || (target < numCells / 4 && numCells > 1);
+    }
+
+    /**
+     * Remove all nodes from the index and release the grid.
+     *
+     * @param nodes       The array of nodes
+     * @param n           The number of nodes
+     */
+    public void clear(NodeGNG[] nodes, int n) {
+        for (int i = 0; i < n; i++) {
+            final NodeGNG node = nodes[i];
+            if (node != null)
+                detach(node);
+        }
+        cells       = new NodeGNG[0];
+        numNodes    = 0;
+        panelWidth  = -1;
+        panelHeight = -1;
+    }
+
+    /**
+     * Build the grid from scratch. The bounds cover both the panel and
+     * all current node positions, the resolution is chosen such that a
+     * cell holds about <TT>NODES_PER_CELL</TT> nodes.
+     *
+     * @param nodes       The array of nodes
+     * @param n           The number of nodes
+     * @param width       The panel width
+     * @param height      The panel height
+     */
+    public void rebuild(NodeGNG[] nodes, int n, int width, int height) {
+        float xMin = 0f, yMin = 0f;
+        float xMax = Math.max(1, width);
+        float yMax = Math.max(1, height);
+        for (int i = 0; i < n; i++) {
+            final NodeGNG node = nodes[i];
+            if (node.x < xMin) xMin = node.x;
+            if (node.x > xMax) xMax = node.x;
+            if (node.y < yMin) yMin = node.y;
+            if (node.y > yMax) yMax = node.y;
+        }
+        final float bw      = xMax - xMin;
+        final float bh      = yMax - yMin;
+        final int target    = Math.max(1, n / NODES_PER_CELL);
+        final int _cols     = Math.max(1, (int) Math.round(Math.sqrt(target * bw / bh)));
+        final int _rows     = Math.max(1, (target + _cols - 1) / _cols);
+
+        x0          = xMin;
+        y0          = yMin;
+        x1          = xMax;
+        y1          = yMax;
+        cols        = _cols;
+        rows        = _rows;
+        cellW       = bw / _cols;
+        cellH       = bh / _rows;
+        cells       = new NodeGNG[_cols * _rows];
+        numNodes    = 0;
+        panelWidth  = width;
+        panelHeight = height;
+
+        for (int i = 0; i < n; i++)
+            add(nodes[i], i);
+    }
+
+    /**
+     * Add a node to the index.
+     *
+     * @param node        The node
+     * @param id          The index of the node in the node array
+     */
+    public void add(NodeGNG node, int id) {
+        node.index      = this;
+        node.indexId    = id;
+        link(node, cellOf(node.x, node.y));
+        numNodes++;
+    }
+
+    /**
+     * Remove a node from the index.
+     *
+     * @param node        The node
+     */
+    public void remove(NodeGNG node) {
+        if (node.index != this)
+            return;
+        unlink(node);
+        node.index      = null;
+        node.indexId    = -1;
+        numNodes--;
+    }
+
+    /**
+     * Change the index of a node after it was moved in the node array.
+     *
+     * @param node        The node
+     * @param newId       The new index of the node
+     * @see ComputeGNG#deleteNode
+     */
+    public void rename(NodeGNG node, int newId) {
+        if (node.index == this)
+            node.indexId = newId;
+    }
+
+    /**
+     * Update the cell of a node after its position has changed.
+     *
+     * @param node        The node
+     */
+    public void move(NodeGNG node) {
+        final int c = cellOf(node.x, node.y);
+        if (c != node.indexCell) {
+            unlink(node);
+            link(node, c);
+        }
+    }
+
+    /**
+     * Find the nearest and the second-nearest node of a signal.
+     * The result is written to <TT>first</TT>, <TT>second</TT>,
+     * <TT>firstSqrDist</TT> and <TT>secondSqrDist</TT>.
+     * The search visits rings of cells around the signal's cell
+     * until no unvisited cell can contain a closer node.
+     *
+     * @param sx          The x-position of the signal
+     * @param sy          The y-position of the signal
+     */
+    public void findNearest(float sx, float sy) {
+        int     i1 = -1, i2 = -1;
+        float   d1 = Float.MAX_VALUE, d2 = Float.MAX_VALUE;
+
+        final float px  = Math.max(x0, Math.min(x1, sx));
+        final float py  = Math.max(y0, Math.min(y1, sy));
+        final int cx    = col(px);
+        final int cy    = row(py);
+        final int _cols = cols;
+        final int _rows = rows;
+        final NodeGNG[] _cells = cells;
+
+        for (int r = 0; ; r++) {
+            final int iMin = cx - r;
+            final int iMax = cx + r;
+            final int jMin = cy - r;
+            final int jMax = cy + r;
+
+            for (int j = Math.max(0, jMin); j <= Math.min(_rows - 1, jMax); j++) {
+                final boolean edgeRow = (j == jMin) || (j == jMax);
+                final int step = edgeRow ? 1 : (iMax - iMin);
+                for (int i = iMin; i <= iMax; i += Math.max(1, step)) {
+                    if (i < 0 || i >= _cols)
+                        continue;
+                    for (NodeGNG n = _cells[j * _cols + i]; n != null; n = n.indexNext) {
+                        final float dx = n.x - sx;
+                        final float dy = n.y - sy;
+                        final float d  = dx * dx + dy * dy;
+                        if (d < d1) {
+                            i2 = i1;
+                            d2 = d1;
+                            i1 = n.indexId;
+                            d1 = d;
+                        } else if (d < d2) {
+                            i2 = n.indexId;
+                            d2 = d;
+                        }
+                    }
+                }
+            }
+
+            if (iMin <= 0 && jMin <= 0 && iMax >= _cols - 1 && jMax >= _rows - 1)
+                break;
+
+            // lower bound of the distance of any node in the cells outside the current ring
+            float bound = Float.MAX_VALUE;
+            if (iMin > 0)           bound = Math.min(bound, px - (x0 + iMin * cellW));
+            if (iMax < _cols - 1)   bound = Math.min(bound, (x0 + (iMax + 1) * cellW) - px);
+            if (jMin > 0)           bound = Math.min(bound, py - (y0 + jMin * cellH));
+            if (jMax < _rows - 1)   bound = Math.min(bound, (y0 + (jMax + 1) * cellH) - py);
+
+            if (i2 != -1 && d2 <= bound * bound)
+                break;
+        }
+
+        first           = i1;
+        second          = i2;
+        firstSqrDist    = d1;
+        secondSqrDist   = d2;
+    }
+
+    private int col(float x) {
+        final int i = (int) ((x - x0) / cellW);
+        return i < 0 ? 0 : (i >= cols ? cols - 1 : i);
+    }
+
+    private int row(float y) {
+        final int j = (int) ((y - y0) / cellH);
+        return j < 0 ? 0 : (j >= rows ? rows - 1 : j);
+    }
+
+    private int cellOf(float x, float y) {
+        return row(y) * cols + col(x);
+    }
+
+    private void link(NodeGNG node, int c) {
+        final NodeGNG head  = cells[c];
+        node.indexCell      = c;
+        node.indexPrev      = null;
+        node.indexNext      = head;
+        if (head != null)
+            head.indexPrev  = node;
+        cells[c]            = node;
+    }
+
+    private void unlink(NodeGNG node) {
+        final NodeGNG prev = node.indexPrev;
+        final NodeGNG next = node.indexNext;
+        if (prev != null)
+            prev.indexNext = next;
+        else
+            cells[node.indexCell] = next;
+        if (next != null)
+            next.indexPrev = prev;
+        node.indexPrev = null;
+        node.indexNext = null;
+        node.indexCell = -1;
+    }
+
+    private static void detach(NodeGNG node) {
+        node.index      = null;
+        node.indexId    = -1;
+        node.indexCell  = -1;
+        node.indexPrev  = null;
+        node.indexNext  = null;
+    }
+}
@@ -0,0 +1,374 @@
+package de.sciss.neuralgas;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a network for every combination of a grid of GNG parameters and a
+ * list of seeds, and writes one line per run to a CSV file: the seed, the
+ * settings of the sweep, the parameters, the number of nodes and edges, the
+ * number of signals, the quantization error and the time taken for learning.
+ * The runs are distributed over a fork-join pool.
+ * Each line is written as soon as its run is finished, and when the sweep is
+ * started again on the same file, the runs found in it are skipped, so an
+ * interrupted sweep can be resumed. Each line found must have the seed,
+ * settings and parameters this sweep gives to its run, otherwise the file
+ * belongs to a different sweep and is rejected.
+ * <p>
+ * The runs are numbered by seed first, then by the parameters in the order of
+ * their indices. The result of a run only depends on its seed and parameters,
+ * not on the number of threads.
+ *
+ * @author Hanns Holger Rutz
+ */
+public class SweepGNG {
+    /**
+     * The index of <TT>ComputeGNG.lambdaGNG</TT>.
+     */
+    public static final int LAMBDA      = 0;
+    /**
+     * The index of <TT>ComputeGNG.epsilonGNG</TT>.
+     */
+    public static final int EPSILON     = 1;
+    /**
+     * The index of <TT>ComputeGNG.epsilonGNG2</TT>.
+     */
+    public static final int EPSILON2    = 2;
+    /**
+     * The index of <TT>ComputeGNG.alphaGNG</TT>.
+     */
+    public static final int ALPHA       = 3;
+    /**
+     * The index of <TT>ComputeGNG.betaGNG</TT>.
+     */
+    public static final int BETA        = 4;
+    /**
+     * The index of <TT>ComputeGNG.utilityGNG</TT>.
+     */
+    public static final int UTILITY     = 5;
+
+    private static final String[] PARAM_NAMES = {
+            "lambdaGNG", "epsilonGNG", "epsilonGNG2", "alphaGNG", "betaGNG", "utilityGNG"
+    };
+
+    private static final String HEADER;
+
+    static {
+        final StringBuilder sb = new StringBuilder("run,seed,maxSignals,stopAtMaxNodes,numErrorSignals");
+        for (String name : PARAM_NAMES) sb.append(',').append(name);
+        sb.append(",nodes,edges,signals,error,millis");
+        HEADER = sb.toString();
+    }
+
+    /**
+     * Prepares the network of a run.
+     */
+    public interface Setup {
+        /**
+         * Configure a new network, for example its algorithm, distribution, size
+         *  and <TT>maxNodes</TT>. This is called before the parameters of the run
+         *  are set. If no nodes are added here, two nodes are added afterwards,
+         *  as for GNG.
+         *
+         * @param compute    The network, already seeded
+         */
+        void configure(ComputeGNG compute);
+    }
+
+    private final Setup setup;
+
+    private final float[][] values = new float[PARAM_NAMES.length][];
+
+    private long[] seeds = { 0L };
+
+    /**
+     * The number of signals after which a run stops, unless the network stops earlier.
+     * This variable can be set by the user.
+     */
+    public int maxSignals = 100000;
+
+    /**
+     * The flag for stopping a run as soon as the network has <TT>maxNodes</TT> nodes.
+     * This variable can be set by the user.
+     */
+    public boolean stopAtMaxNodesB = false;
+
+    /**
+     * The number of signals used to measure the quantization error.
+     * This variable can be set by the user.
+     */
+    public int numErrorSignals = 10000;
+
+    private Writer out;
+    private IOException writeError;
+
+    /**
+     * The constructor.
+     *
+     * @param setup      Prepares the network of each run
+     */
+    public SweepGNG(Setup setup) {
+        this.setup = setup;
+    }
+
+    /**
+     * Set the values taken by a parameter. A parameter without values keeps
+     *  the value given by the setup.
+     *
+     * @param param      The index of the parameter, e.g. <TT>LAMBDA</TT>
+     * @param v          The values, or none
+     */
+    public void setValues(int param, float... v) {
+        values[param] = (v.length == 0) ? null : v.clone();
+    }
+
+    /**
+     * Set the seeds. Each combination of parameters is run once with each seed.
+     *
+     * @param s          The seeds, at least one
+     */
+    public void setSeeds(long... s) {
+        if (s.length == 0)
+            throw new IllegalArgumentException("No seeds");
+        seeds = s.clone();
+    }
+
+    /**
+     * Returns the total number of runs.
+     */
+    public int getNumRuns() {
+        int num = seeds.length;
+        for (float[] v : values) {
+            if (v != null) num *= v.length;
+        }
+        return num;
+    }
+
+    /**
+     * Run all runs which are not yet in the file, using one thread per processor.
+     *
+     * @param csv        The file to which the results are appended
+     * @return           The number of runs done
+     * @see SweepGNG#run(File, ForkJoinPool)
+     */
+    public int run(File csv) throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return run(csv, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run all runs which are not yet in the file. If the file exists, it must have
+     *  been written by a sweep with the same columns, seeds, settings and
+     *  parameters. A line left incomplete by an interruption is removed.
+     *
+     * @param csv        The file to which the results are appended
+     * @param pool       The pool which executes the runs
+     * @return           The number of runs done
+     * @throws IOException if the file cannot be read or written, or belongs
+     *                     to a different sweep
+     */
+    public int run(File csv, ForkJoinPool pool) throws IOException {
+        final int numRuns       = getNumRuns();
+        final boolean[] done    = new boolean[numRuns];
+        final boolean exists    = csv.isFile() && readDone(csv, done);
+
+        final List<Integer> todo = new ArrayList<Integer>();
+        for (int i = 0; i < numRuns; i++) {
+            if (!done[i]) todo.add(i);
+        }
+        final int[] runs = new int[todo.size()];
+        for (int i = 0; i < runs.length; i++) runs[i] = todo.get(i);
+
+        out         = new BufferedWriter(new FileWriter(csv, exists));
+        writeError  = null;
+        try {
+            if (!exists)
+                writeLine(HEADER);
+            if (runs.length > 0)
+                pool.invoke(new RunTask(runs, 0, runs.length));
+        } finally {
+            out.close();
+            out = null;
+        }
+        if (writeError != null)
+            throw writeError;
+        return runs.length;
+    }
+
+    // marks the runs found in an existing file and cuts off an incomplete last line.
+    // each line must begin with the columns runOne writes for its run.
+    // returns false if nothing is left of the file
+    private boolean readDone(File csv, boolean[] done) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(csv, "rw");
+        try {
+            long len = raf.length();
+            while (len > 0) {
+                raf.seek(len - 1);
+                if (raf.read() == '\n') break;
+                len--;
+            }
+            raf.setLength(len);
+        } finally {
+            raf.close();
+        }
+        if (csv.length() == 0)
+            return false;
+
+        final BufferedReader r = new BufferedReader(new FileReader(csv));
+        try {
+            final String header = r.readLine();
+            if (header != null && !header.equals(HEADER))
+                throw new IOException("Not a sweep file: " + csv);
+            ComputeGNG c = null;
+            String line;
+            while ((line = r.readLine()) != null) {
+                final int i = line.indexOf(',');
+                if (i <= 0) continue;
+                final int run;
+                try {
+                    run = Integer.parseInt(line.substring(0, i));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Not a sweep file: " + csv);
+                }
+                if (run < 0 || run >= done.length)
+                    throw new IOException("Run " + run + " of " + csv + " is not part of this sweep");
+                if (c == null) {
+                    // the parameters not swept are taken from the setup
+                    c = new ComputeGNG(seeds[0]);
+                    c.logB = false;
+                    setup.configure(c);
+                }
+                setParams(c, run);
+                final String key = keyColumns(c, run);
+                if (!line.startsWith(key + ","))
+                    throw new IOException("Run " + run + " of " + csv + " does not match this sweep, expected " + key);
+                done[run] = true;
+            }
+        } finally {
+            r.close();
+        }
+        return true;
+    }
+
+    private synchronized void writeLine(String line) {
+        if (writeError != null)
+            return;
+        try {
+            out.write(line);
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            writeError = e;
+        }
+    }
+
+    /**
+     * Execute a single run.
+     *
+     * @param run        The number of the run
+     * @return           The line of the run in the CSV file
+     */
+    protected String runOne(int run) {
+        final long t0       = System.currentTimeMillis();
+        final ComputeGNG c  = new ComputeGNG(seeds[run % seeds.length]);
+        c.logB = false;
+        setup.configure(c);
+        setParams(c, run);
+        final String key    = keyColumns(c, run);
+        if (c.nNodes == 0) {
+            c.addNode(null);
+            c.addNode(null);
+        }
+
+        final ComputeGNG.Result res = new ComputeGNG.Result();
+        while (!res.stop && (c.numSignals < maxSignals) && !(stopAtMaxNodesB && c.nNodes >= c.maxNodes)) {
+            c.learn(res);
+        }
+        final long t1       = System.currentTimeMillis();
+        final double error  = c.quantizationError(numErrorSignals);
+
+        final StringBuilder sb = new StringBuilder(key);
+        sb.append(',').append(c.nNodes).append(',').append(c.nEdges).append(',').append(c.numSignals);
+        sb.append(',').append(error).append(',').append(t1 - t0);
+        return sb.toString();
+    }
+
+    // sets the swept parameters of a run
+    private void setParams(ComputeGNG c, int run) {
+        int rest = run / seeds.length;
+        for (int p = 0; p < PARAM_NAMES.length; p++) {
+            final float[] v = values[p];
+            if (v == null) continue;
+            set(c, p, v[rest % v.length]);
+            rest /= v.length;
+        }
+    }
+
+    // the columns which identify a run: its number, seed, settings and parameters
+    private String keyColumns(ComputeGNG c, int run) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(run).append(',').append(seeds[run % seeds.length]);
+        sb.append(',').append(maxSignals).append(',').append(stopAtMaxNodesB).append(',').append(numErrorSignals);
+        for (int p = 0; p < PARAM_NAMES.length; p++) sb.append(',').append(get(c, p));
+        return sb.toString();
+    }
+
+    private static void set(ComputeGNG c, int param, float value) {
+        switch (param) {
+            case LAMBDA     : c.lambdaGNG   = (int) value;  break;
+            case EPSILON    : c.epsilonGNG  = value;        break;
+            case EPSILON2   : c.epsilonGNG2 = value;        break;
+            case ALPHA      : c.alphaGNG    = value;        break;
+            case BETA       : c.setBetaGNG(value);          break;
+            case UTILITY    : c.utilityGNG  = value;        break;
+            default         : throw new IllegalArgumentException("Parameter " + param);
+        }
+    }
+
+    private static String get(ComputeGNG c, int param) {
+        switch (param) {
+            case LAMBDA     : return String.valueOf(c.lambdaGNG);
+            case EPSILON    : return String.valueOf(c.epsilonGNG);
+            case EPSILON2   : return String.valueOf(c.epsilonGNG2);
+            case ALPHA      : return String.valueOf(c.alphaGNG);
+            case BETA       : return String.valueOf(c.getBetaGNG());
+            case UTILITY    : return String.valueOf(c.utilityGNG);
+            default         : throw new IllegalArgumentException("Parameter " + param);
+        }
+    }
+
+    private final class RunTask extends RecursiveAction {
+        private final int[] runs;
+        private final int from, to;
+
+        RunTask(int[] runs, int from, int to) {
+            this.runs   = runs;
+            this.from   = from;
+            this.to     = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int mid = (from + to) >>> 1;
+                invokeAll(new RunTask(runs, from, mid), new RunTask(runs, mid, to));
+            } else {
+                writeLine(runOne(runs[from]));
+            }
+        }
+    }
+}
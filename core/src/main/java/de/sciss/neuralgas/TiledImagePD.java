@@ -0,0 +1,416 @@
+package de.sciss.neuralgas;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A distribution following the brightness of an image that is too large to
+ * be kept in memory. The image is divided into square tiles. Only the total
+ * brightness of each tile is resident, and a signal first picks a tile by its
+ * brightness, then a pixel within the tile. The pixels of a tile are read from
+ * the source when the tile is picked, and the most recently used tiles are
+ * cached. The signals of a batch are grouped by tile, so that each tile is
+ * fetched only once per batch. Both levels are sampled in constant time with
+ * the alias method.
+ *
+ * The total brightness of the tiles is obtained by reading the source once,
+ * one row of tiles at a time, unless it is given to the constructor (see
+ * <TT>getTileWeights</TT>).
+ *
+ * @author Hanns Holger Rutz
+ */
+public class TiledImagePD implements BatchPD {
+    /**
+     * A source of image data that can be read in regions.
+     */
+    public interface Source extends Closeable {
+        int getWidth();
+        int getHeight();
+
+        /**
+         * Read the brightness of a region, between 0 and 1, row by row.
+         *
+         * @param x          The left border of the region
+         * @param y          The top border of the region
+         * @param w          The width of the region
+         * @param h          The height of the region
+         * @param buf        The buffer of at least <TT>w * h</TT> values
+         */
+        void read(int x, int y, int w, int h, float[] buf) throws IOException;
+    }
+
+    /**
+     * An image file read in regions through <TT>javax.imageio</TT>. Formats
+     * which store the image in tiles or strips (e.g. TIFF) can be read
+     * without decoding the whole image.
+     */
+    public static final class ImageIOSource implements Source {
+        private final ImageInputStream  stream;
+        private final ImageReader       reader;
+        private final int               width, height;
+        private int[]                   rgb = new int[0];
+
+        public ImageIOSource(File f) throws IOException {
+            stream = ImageIO.createImageInputStream(f);
+            if (stream == null)
+                throw new IOException("Cannot open " + f);
+            final Iterator<ImageReader> it = ImageIO.getImageReaders(stream);
+            if (!it.hasNext()) {
+                stream.close();
+                throw new IOException("No image reader for " + f);
+            }
+            reader = it.next();
+            reader.setInput(stream, false, true);
+            width   = reader.getWidth (0);
+            height  = reader.getHeight(0);
+        }
+
+        public int getWidth () { return width;  }
+        public int getHeight() { return height; }
+
+        public synchronized void read(int x, int y, int w, int h, float[] buf) throws IOException {
+            final ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new java.awt.Rectangle(x, y, w, h));
+            final BufferedImage img = reader.read(0, param);
+            final int num = w * h;
+            if (rgb.length < num)
+                rgb = new int[num];
+            img.getRGB(0, 0, w, h, rgb, 0, w);
+            for (int i = 0; i < num; i++) {
+                final int c = rgb[i];
+                buf[i] = (float) ((0.2126 * ((c & 0xFF0000) >> 16) +
+                                   0.7152 * ((c & 0x00FF00) >>  8) +
+                                   0.0722 *  (c & 0x0000FF)) / 255.0);
+            }
+        }
+
+        public void close() throws IOException {
+            reader.dispose();
+            stream.close();
+        }
+    }
+
+    /**
+     * A raw file of 8-bit gray values, row by row without header,
+     *  which is read through memory mapping. The file is mapped once when
+     *  the source is opened, in chunks of whole rows of at most 2 GB each.
+     */
+    public static final class RawSource implements Source {
+        private final RandomAccessFile      raf;
+        private final int                   width, height;
+        private final int                   rowsPerChunk;
+        private final MappedByteBuffer[]    chunks;
+
+        public RawSource(File f, int width, int height) throws IOException {
+            raf = new RandomAccessFile(f, "r");
+            try {
+                if (raf.length() < (long) width * height)
+                    throw new IOException("File " + f + " is shorter than " + width + "x" + height);
+                this.width      = width;
+                this.height     = height;
+                rowsPerChunk    = Math.max(1, Integer.MAX_VALUE / Math.max(1, width));
+                final int numChunks = (height + rowsPerChunk - 1) / rowsPerChunk;
+                chunks          = new MappedByteBuffer[numChunks];
+                final FileChannel ch = raf.getChannel();
+                for (int c = 0; c < numChunks; c++) {
+                    final int y0    = c * rowsPerChunk;
+                    final int rows  = Math.min(rowsPerChunk, height - y0);
+                    chunks[c] = ch.map(FileChannel.MapMode.READ_ONLY, (long) y0 * width, (long) rows * width);
+                }
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        public int getWidth () { return width;  }
+        public int getHeight() { return height; }
+
+        public void read(int x, int y, int w, int h, float[] buf) throws IOException {
+            for (int row = 0, i = 0; row < h; row++) {
+                final int yr                = y + row;
+                final MappedByteBuffer mb   = chunks[yr / rowsPerChunk];
+                final int rowStart          = (yr % rowsPerChunk) * width + x;
+                for (int col = 0; col < w; col++, i++)
+                    buf[i] = (mb.get(rowStart + col) & 0xFF) / 255f;
+            }
+        }
+
+        public void close() throws IOException {
+            raf.close();
+        }
+    }
+
+    // the pixels of a tile with nonzero brightness
+    private static final class Tile {
+        final int[]         dots;   // pixel index y * tile width + x
+        final AliasTable    table;
+
+        Tile(int[] dots, AliasTable table) {
+            this.dots   = dots;
+            this.table  = table;
+        }
+    }
+
+    private final Source        source;
+    private final boolean       invert;
+    private final int           width, height;
+    private final int           tileSize;
+    private final int           numTilesX, numTilesY;
+    private final double[]      tileWeights;
+    private final AliasTable    tileTable;
+    private final BufferedImage preview;
+
+    // the tiles in memory, linked from the most to the least recently used
+    private final Tile[]        tiles;
+    private final int[]         lruPrev, lruNext;
+    private int                 lruFirst = -1, lruLast = -1;
+    private int                 numCached = 0;
+    private final int           maxCached;
+    private final float[]       tileBuf;
+
+    // the tiles of the signals of a batch, sorted as (tile << 32) | signal
+    private long[]              batchKeys = new long[0];
+
+    /**
+     * Constructor. The total brightness of the tiles is obtained by reading the source.
+     *
+     * @param source         The image data
+     * @param tileSize       The width and height of the tiles in pixels
+     * @param maxTiles       The maximum number of tiles kept in memory
+     * @param invert         If true, use dark instead of bright pixels
+     */
+    public TiledImagePD(Source source, int tileSize, int maxTiles, boolean invert) throws IOException {
+        this(source, tileSize, maxTiles, invert, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param source         The image data
+     * @param tileSize       The width and height of the tiles in pixels
+     * @param maxTiles       The maximum number of tiles kept in memory
+     * @param invert         If true, use dark instead of bright pixels
+     * @param tileWeights    The total brightness of each tile (row by row), as
+     *                       returned by <TT>getTileWeights</TT> for the same
+     *                       source and settings, or null to read the source
+     */
+    public TiledImagePD(Source source, int tileSize, int maxTiles, boolean invert, double[] tileWeights)
+            throws IOException {
+        this.source     = source;
+        this.invert     = invert;
+        this.tileSize   = tileSize;
+        width           = source.getWidth ();
+        height          = source.getHeight();
+        numTilesX       = (width  + tileSize - 1) / tileSize;
+        numTilesY       = (height + tileSize - 1) / tileSize;
+        final int numTiles = numTilesX * numTilesY;
+        tileBuf         = new float[tileSize * tileSize];
+
+        if (tileWeights == null) {
+            tileWeights = new double[numTiles];
+            // read one row of tiles at a time
+            float[] band = new float[0];
+            for (int ty = 0; ty < numTilesY; ty++) {
+                final int y0 = ty * tileSize;
+                final int th = Math.min(tileSize, height - y0);
+                if (band.length < width * th)
+                    band = new float[width * th];
+                source.read(0, y0, width, th, band);
+                for (int row = 0, i = 0; row < th; row++) {
+                    for (int x = 0; x < width; x++, i++) {
+                        final float v = invert ? 1f - band[i] : band[i];
+                        tileWeights[ty * numTilesX + x / tileSize] += v;
+                    }
+                }
+            }
+        } else if (tileWeights.length != numTiles) {
+            throw new IllegalArgumentException("Expected " + numTiles + " tile weights, but got " + tileWeights.length);
+        }
+        this.tileWeights = tileWeights;
+
+        final float[] w = new float[numTiles];
+        double max = 0.0;
+        for (int i = 0; i < numTiles; i++) {
+            w[i] = (float) tileWeights[i];
+            max = Math.max(max, tileWeights[i]);
+        }
+        if (max == 0.0)     // no brightness at all, use all pixels
+            Arrays.fill(w, 1f);
+        tileTable = new AliasTable(w, numTiles);
+
+        // one pixel per tile for drawing
+        preview = new BufferedImage(numTilesX, numTilesY, BufferedImage.TYPE_BYTE_GRAY);
+        for (int ty = 0; ty < numTilesY; ty++) {
+            for (int tx = 0; tx < numTilesX; tx++) {
+                final int i = ty * numTilesX + tx;
+                final int tw = Math.min(tileSize, width  - tx * tileSize);
+                final int th = Math.min(tileSize, height - ty * tileSize);
+                final double mean = tileWeights[i] / (tw * th);
+                final int v = (int) (Math.min(1.0, invert ? 1.0 - mean : mean) * 255 + 0.5);
+                preview.setRGB(tx, ty, (v << 16) | (v << 8) | v);
+            }
+        }
+
+        tiles       = new Tile[numTiles];
+        lruPrev     = new int [numTiles];
+        lruNext     = new int [numTiles];
+        maxCached   = Math.max(1, maxTiles);
+    }
+
+    /**
+     * Returns the total brightness of each tile, row by row. This can be stored
+     *  and passed to the constructor to avoid reading the whole source again.
+     */
+    public double[] getTileWeights() {
+        return tileWeights.clone();
+    }
+
+    public int getNumTiles() { return numTilesX * numTilesY; }
+
+    public int getWidth () { return width;  }
+    public int getHeight() { return height; }
+
+    /**
+     * Close the source.
+     */
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private synchronized Tile tile(int idx) {
+        Tile t = tiles[idx];
+        if (t == null) {
+            if (numCached == maxCached) {
+                // drop the least recently used tile
+                final int last = lruLast;
+                unlink(last);
+                tiles[last] = null;
+                numCached--;
+            }
+            t = readTile(idx);
+            tiles[idx] = t;
+            numCached++;
+        } else if (idx != lruFirst) {
+            unlink(idx);
+        } else {
+            return t;
+        }
+        // the tile becomes the most recently used
+        lruPrev[idx] = -1;
+        lruNext[idx] = lruFirst;
+        if (lruFirst >= 0)
+            lruPrev[lruFirst] = idx;
+        else
+            lruLast = idx;
+        lruFirst = idx;
+        return t;
+    }
+
+    private void unlink(int idx) {
+        final int prev = lruPrev[idx];
+        final int next = lruNext[idx];
+        if (prev >= 0) lruNext[prev] = next; else lruFirst = next;
+        if (next >= 0) lruPrev[next] = prev; else lruLast  = prev;
+    }
+
+    private Tile readTile(int idx) {
+        final int tx = idx % numTilesX;
+        final int ty = idx / numTilesX;
+        final int tw = Math.min(tileSize, width  - tx * tileSize);
+        final int th = Math.min(tileSize, height - ty * tileSize);
+        final int num = tw * th;
+        final float[] buf = tileBuf;
+        try {
+            source.read(tx * tileSize, ty * tileSize, tw, th, buf);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        int n = 0;
+        for (int i = 0; i < num; i++) {
+            final float v = invert ? 1f - buf[i] : buf[i];
+            if (v > 0f)
+                n++;
+        }
+        final boolean uniform = n == 0;
+        if (uniform)
+            n = num;
+        final int[]   dots = new int  [n];
+        final float[] w    = new float[n];
+        for (int i = 0, j = 0; i < num; i++) {
+            final float v = uniform ? 1f : (invert ? 1f - buf[i] : buf[i]);
+            if (v > 0f) {
+                dots[j] = i;
+                w   [j] = v;
+                j++;
+            }
+        }
+        return new Tile(dots, new AliasTable(w, n));
+    }
+
+    @Override
+    public void getSignal(ComputeGNG compute) {
+        ComputeGNG.fillSignal(this, compute);
+    }
+
+    /**
+     * Generate the signals. The tiles of all signals are drawn first. The signals
+     *  are then grouped by tile, so that each tile is fetched once per batch,
+     *  and the pixels are drawn tile by tile.
+     */
+    @Override
+    public synchronized void fill(ComputeGNG compute, float[] xs, float[] ys, int off, int len) {
+        if (batchKeys.length < len)
+            batchKeys = new long[Math.max(len, batchKeys.length << 1)];
+        final long[] keys = batchKeys;
+        for (int i = 0; i < len; i++)
+            keys[i] = ((long) tileTable.next(compute.random()) << 32) | i;
+        Arrays.sort(keys, 0, len);
+
+        int j = 0;
+        while (j < len) {
+            final int idx   = (int) (keys[j] >>> 32);
+            final Tile t    = tile(idx);
+            final int tx    = idx % numTilesX;
+            final int ty    = idx / numTilesX;
+            final int tw    = Math.min(tileSize, width - tx * tileSize);
+            final int x0    = tx * tileSize;
+            final int y0    = ty * tileSize;
+            do {
+                final int i     = off + (int) keys[j];
+                final int dot   = t.dots[t.table.next(compute.random())];
+                xs[i] = ((float) (x0 + dot % tw) * compute.panelWidth ) / width;
+                ys[i] = ((float) (y0 + dot / tw) * compute.panelHeight) / height;
+                j++;
+            } while ((j < len) && ((int) (keys[j] >>> 32) == idx));
+        }
+    }
+
+    @Override
+    public void draw(ComputeGNG compute, PanelLike panel, Graphics g, Dimension d) {
+        g.drawImage(preview, 0, 0, d.width, d.height, null);
+    }
+
+    @Override
+    public String getName() {
+        return "TiledImage";
+    }
+
+    @Override
+    public int ordinal() {
+        return -1;
+    }
+}
@@ -22,14 +22,15 @@
 package de.sciss.neuralgas;
 
 import java.awt.Dimension;
-
-import static de.sciss.neuralgas.ComputeGNG.MAX_NODES;
+import java.util.Arrays;
 
 /**
  * Compute Voronoi diagram.
  * A sweep-line algorithm is implemented (Steven Fortune, 1987).
  * It computes the Voronoi diagram/Delaunay triangulation of n sites
  * in time O(n log n) and space usage O(n).
+ * Alternatively, <TT>updateVoronoi</TT> keeps a Delaunay triangulation
+ * which is updated incrementally when nodes move.
  * Input: nodes[], Output: lines[] (global).
  * 
  */
@@ -38,28 +39,36 @@ public class Voronoi {
     ComputeGNG compute;
 
     /**
-     * The maximum number of Voronoi lines (5 * maximum number of nodes).
+     * The former maximum number of Voronoi lines (6 * maximum number of nodes).
+     *
+     * @deprecated The line arrays grow as needed.
      */
-    public final int MAX_V_LINES = 6 * MAX_NODES;
+    @Deprecated
+    public final int MAX_V_LINES = 6 * ComputeGNG.MAX_NODES;
 
     /**
      * The actual number of Voronoi lines.
      */
     public int nLines = 0;
     /**
-     * The array of the actual used lines.
+     * The array of the actual used lines. The array grows as lines are added.
      */
-    public LineFloat2D lines[] = new LineFloat2D[MAX_V_LINES];
+    public LineFloat2D lines[] = new LineFloat2D[64];
     /**
      * The array of boolean to distinguish between Voronoi and Delaunay lines.
      */
-    public boolean vd[] = new boolean[MAX_V_LINES];
+    public boolean vd[] = new boolean[64];
 
     public boolean voronoiB;
     public boolean delaunayB;
 
+    /**
+     * The triangulation of the nodes which is kept up-to-date by <TT>updateVoronoi</TT>.
+     */
+    protected final Delaunay delaunay = new Delaunay();
+
     public Voronoi(ComputeGNG compute) {
-        vSites          = new SiteVoronoi[MAX_NODES + 1];
+        vSites          = new SiteVoronoi[1];
         this.compute    = compute;
         dim             = new Dimension();
     }
@@ -67,7 +76,7 @@ public class Voronoi {
      * This array of sites is sorted by y-coordinate (2nd y-coordinate).
      * vSites[1] is the index of the bottom node.
      */
-    protected SiteVoronoi vSites[]; // = new SiteVoronoi[cGNG.MAX_NODES + 1];
+    protected SiteVoronoi vSites[];
 
     // Vars for Voronoi diagram (start).
     int siteIdx, nSites;
@@ -80,6 +89,18 @@ public class Voronoi {
 
     ListGNG list, pq;
 
+    /**
+     * The flag for using the linked lists of the original implementation as
+     * beach line and event queue. Each site and each event then costs time
+     * linear in the length of the beach line. Only useful for comparison.
+     * This variable can be set by the user.
+     */
+    public boolean listB = false;
+
+    final BeachLineVoronoi  beachLine   = new BeachLineVoronoi();
+    final EventQueueVoronoi queue       = new EventQueueVoronoi();
+    private final PointFloat2D queueMin = new PointFloat2D();
+
     HalfEdgeVoronoi EL_leftEnd, EL_rightEnd;
     // Vars for Voronoi diagram (end).
 
@@ -104,6 +125,8 @@ public class Voronoi {
         int i;
 
         // Initialize the sorted site array
+        if (vSites.length <= n)
+            vSites = new SiteVoronoi[Math.max(n + 1, vSites.length << 1)];
         final NodeGNG[] nodes = compute.nodes;
         for (i = 1; i <= n; i++) {
             NodeGNG nd      = nodes[i-1];
@@ -114,7 +137,6 @@ public class Voronoi {
             sv.refCnt       = 0;
             vSites[i]       = sv;
         }
-        compute.nNodesChangedB = false;
 
         // Build a maximum heap
         for (i = n/2; i > 0; i--)
@@ -221,6 +243,93 @@ public class Voronoi {
         return false;
     }
 
+    /**
+     * Compute Voronoi diagram incrementally.
+     * Instead of sweeping all sites again, a Delaunay triangulation of the
+     * nodes is kept, into which the nodes that have moved, been added or
+     * been removed since the last call are updated. The lines are then derived
+     * from the triangles. The conditions and the result are the same as
+     * for <TT>computeVoronoi</TT>.
+     *
+     * @see Voronoi#computeVoronoi
+     * @see Delaunay
+     */
+    public boolean updateVoronoi() {
+        nLines = 0;
+
+        final int nNodes = compute.nNodes;
+        if ((nNodes == 0) ||
+                ((nNodes != compute.maxNodes) && (compute.algorithm != Algorithm.GNG) && (compute.algorithm != Algorithm.GG)))
+            return true;
+
+        // The node index is the id in the triangulation. A node that takes over
+        // the index of a deleted one is thus moved there
+        if (xs.length < nNodes) {
+            xs      = new float[nNodes];
+            ys      = new float[nNodes];
+            edges   = new int  [nNodes * 6];
+            segs    = new float[nNodes * 12];
+        }
+        final NodeGNG[] nodes = compute.nodes;
+        for (int i = 0; i < nNodes; i++) {
+            final NodeGNG n = nodes[i];
+            xs[i] = n.x;
+            ys[i] = n.y;
+        }
+        updateLines(xs, ys, nNodes);
+        return false;
+    }
+
+    /**
+     * Compute Voronoi diagram incrementally from a snapshot of the nodes,
+     * as <TT>updateVoronoi()</TT> does from the nodes themselves.
+     *
+     * @param s          The snapshot
+     * @see Voronoi#updateVoronoi()
+     */
+    public boolean updateVoronoi(SnapshotGNG s) {
+        nLines = 0;
+
+        final int nNodes = s.nNodes;
+        if ((nNodes == 0) ||
+                ((nNodes != s.maxNodes) && (s.algorithm != Algorithm.GNG) && (s.algorithm != Algorithm.GG)))
+            return true;
+
+        if (edges.length < nNodes * 6) {
+            edges   = new int  [nNodes * 6];
+            segs    = new float[nNodes * 12];
+        }
+        updateLines(s.x, s.y, nNodes);
+        return false;
+    }
+
+    private void updateLines(float[] xs, float[] ys, int nNodes) {
+        final Delaunay dt = delaunay;
+        dt.update(xs, ys, nNodes);
+
+        if (delaunayB) {
+            final int num = dt.edges(edges);
+            for (int i = 0; i < num; i++) {
+                final int a = edges[ i << 1     ];
+                final int b = edges[(i << 1) + 1];
+                line(xs[a], ys[a], xs[b], ys[b], false);
+            }
+        }
+        if (voronoiB) {
+            final int num = dt.voronoiEdges(segs, null, 0f, 0f, dim.width, dim.height);
+            for (int i = 0; i < num; i++) {
+                final int j = i << 2;
+                line(segs[j], segs[j + 1], segs[j + 2], segs[j + 3], true);
+            }
+        }
+    }
+
+    // buffers for updateVoronoi
+    private float[] xs      = new float[0];
+    private float[] ys      = new float[0];
+    private int  [] edges   = new int  [0];
+    private float[] segs    = new float[0];
+
     /**
      * Compute Voronoi diagram (2).
      * A sweep-line algorithm is implemented (Steven Fortune, 1987).
@@ -235,17 +344,20 @@ public class Voronoi {
         HalfEdgeVoronoi lBnd, rBnd, llBnd, rrBnd, bisector;
         EdgeVoronoi e;
 
-        pq          = new ListGNG();
+        if (listB)
+            pq      = new ListGNG();
+        else
+            queue.clear();
         bottomSite  = nextSite();
         EL_initialize();
         newSite     = nextSite();
 
         while (true) {
-            if (!pq.empty())
-                newIntStar = pq.PQ_min();
+            if (!PQ_empty())
+                newIntStar = PQ_min();
 
             if ((newSite != null) &&
-                    (pq.empty() ||
+                    (PQ_empty() ||
                             (newSite.coord.y < newIntStar.y) ||
                             ((newSite.coord.y == newIntStar.y) && (newSite.coord.x < newIntStar.x))
                     )) {
@@ -268,10 +380,10 @@ public class Voronoi {
 
                 newSite = nextSite();
 
-            } else if ( !pq.empty() ) {
+            } else if ( !PQ_empty() ) {
                 // intersection is smallest
                 PQ_count--;
-                lBnd    = pq.PQ_extractMin();
+                lBnd    = PQ_extractMin();
                 llBnd   = lBnd.EL_left;
                 rBnd    = lBnd.EL_right;
                 rrBnd   = rBnd.EL_right;
@@ -409,6 +521,10 @@ public class Voronoi {
     public void line(float x1, float y1, float x2, float y2, boolean vdB) {
 //        final LineInt2D l = new LineInt2D((int) x1, (int) y1, (int) x2, (int) y2);
         final LineFloat2D l = new LineFloat2D(x1, y1, x2, y2);
+        if (nLines == lines.length) {
+            lines   = Arrays.copyOf(lines, nLines << 1);
+            vd      = Arrays.copyOf(vd   , nLines << 1);
+        }
         lines  [nLines] = l;
         vd     [nLines] = vdB;
         nLines++;
@@ -419,19 +535,45 @@ public class Voronoi {
         v.refCnt++;
         he.yStar = v.coord.y + offset;
 
-        pq.PQ_insert(he);
+        if (listB)
+            pq.PQ_insert(he);
+        else
+            queue.insert(he);
         PQ_count++;
     }
 
     public void PQ_delete(HalfEdgeVoronoi he) {
         if(he.vertex != null) {
-            pq.PQ_delete(he);
+            if (listB)
+                pq.PQ_delete(he);
+            else
+                queue.delete(he);
             PQ_count--;
             deRef(he.vertex);
             he.vertex = null;
         }
     }
 
+    public boolean PQ_empty() {
+        return listB ? pq.empty() : queue.empty();
+    }
+
+    /**
+     * Returns the position of the first event. If the lists are not used,
+     * the same point object is returned each time.
+     */
+    public PointFloat2D PQ_min() {
+        if (listB)
+            return pq.PQ_min();
+        final HalfEdgeVoronoi he = queue.min();
+        queueMin.set(he.vertex.coord.x, he.yStar);
+        return queueMin;
+    }
+
+    public HalfEdgeVoronoi PQ_extractMin() {
+        return listB ? pq.PQ_extractMin() : queue.extractMin();
+    }
+
     public float dist(SiteVoronoi s, SiteVoronoi t) {
         float dx, dy;
         dx = s.coord.x - t.coord.x;
@@ -485,6 +627,8 @@ public class Voronoi {
         henew.EL_right          = lb.EL_right;
         (lb.EL_right).EL_left   = henew;
         lb.EL_right             = henew;
+        if (!listB)
+            beachLine.insertAfter(lb == EL_leftEnd ? null : lb, henew);
     }
 
     public void deRef(SiteVoronoi v) {
@@ -547,6 +691,8 @@ public class Voronoi {
     public void EL_delete(HalfEdgeVoronoi he) {
         (he.EL_left ).EL_right = he.EL_right;
         (he.EL_right).EL_left  = he.EL_left;
+        if (!listB)
+            beachLine.remove(he);
         he.EL_edge = null;
     }
 
@@ -576,9 +722,17 @@ public class Voronoi {
         EL_rightEnd.EL_right    = null;
         list.insert(EL_leftEnd, list.head);
         list.insert(EL_rightEnd, list.last());
+        beachLine.clear();
     }
 
+    /**
+     * Returns the rightmost half-edge which the point is right of.
+     * Unless <TT>listB</TT> is set, the beach line tree is searched.
+     */
     public HalfEdgeVoronoi EL_leftBnd(PointFloat2D p) {
+        if (!listB)
+            return beachLine.leftBnd(this, p, EL_leftEnd);
+
         HalfEdgeVoronoi he;
         he = (list.first()).elem;
         // Now search linear list of half-edges for the correct one
@@ -0,0 +1,114 @@
+package de.sciss.ng_test
+
+import java.awt.Dimension
+
+import de.sciss.neuralgas.{Algorithm, ComputeGNG, PD}
+
+/** Checks that learning in mini-batches gives the same network as learning
+  * signal by signal, when the winners are the same in both cases. With
+  * `epsilonGNG` and `epsilonGNG2` at zero, no node moves while a batch is
+  * applied, so the batch only differs in the order of the floating point
+  * operations of the error and utility.
+  *
+  * With the usual parameters, GNG-U deletes a node of low utility at most once
+  * per batch instead of once per signal, and the networks are no longer the same.
+  * On `HiLoDensity`, where nodes are deleted all the time, the number of nodes
+  * and the quantization error, averaged over the second half of the runs and
+  * over several seeds, must then stay close to those of learning signal by signal.
+  */
+object MiniBatchTest {
+  def run(batch: Int, utility: Boolean): ComputeGNG = {
+    val c           = new ComputeGNG(3L)
+    c.logB          = false
+    c.algorithm     = Algorithm.GNG
+    c.pd            = PD.Ring
+    c.panelWidth    = 500
+    c.panelHeight   = 500
+    c.maxNodes      = 60
+    c.stepSize      = 500
+    c.epsilonGNG    = 0f
+    c.epsilonGNG2   = 0f
+    c.maxEdgeAge    = 100000
+    c.GNG_U_B       = utility
+    c.utilityGNG    = 1e9f
+    c.miniBatchSize = batch
+    val d = new Dimension(500, 500)
+    c.addNode(d)
+    c.addNode(d)
+    val res = new ComputeGNG.Result
+    for (_ <- 0 until 40) c.learn(res)
+    c
+  }
+
+  final case class Pruning(nodes: Double, error: Double, deleted: Int)
+
+  def runPruning(batch: Int, seed: Long): Pruning = {
+    val c           = new ComputeGNG(seed)
+    c.logB          = false
+    c.algorithm     = Algorithm.GNG
+    c.pd            = PD.HiLoDensity
+    c.panelWidth    = 500
+    c.panelHeight   = 500
+    c.maxNodes      = 1000
+    c.stepSize      = 500
+    c.GNG_U_B       = true
+    c.miniBatchSize = batch
+    c.addNode(null)
+    c.addNode(null)
+    val res = new ComputeGNG.Result
+    var nodes = 0.0
+    var error = 0.0
+    var num   = 0
+    for (i <- 0 until 200) {
+      c.learn(res)
+      if (i >= 100 && i % 10 == 0) {
+        nodes += c.nNodes
+        error += c.quantizationError(2000)
+        num   += 1
+      }
+    }
+    // all nodes beyond the two initial ones were inserted once per lambdaGNG signals
+    val deleted = 2 + c.numSignals / c.lambdaGNG - c.nNodes
+    Pruning(nodes / num, error / num, deleted)
+  }
+
+  def pruning(batch: Int): Pruning = {
+    val seeds = Seq(1L, 2L, 3L)
+    val ps    = seeds.map(runPruning(batch, _))
+    Pruning(ps.map(_.nodes).sum / seeds.size, ps.map(_.error).sum / seeds.size, ps.map(_.deleted).sum)
+  }
+
+  def main(args: Array[String]): Unit = {
+    for (utility <- Seq(false, true)) {
+      val ref = run(1, utility)
+      for (batch <- Seq(10, 50)) {
+        val c = run(batch, utility)
+        val sameStructure = c.nNodes == ref.nNodes && c.nEdges == ref.nEdges &&
+          (0 until c.nNodes).forall { i =>
+            c.nodes(i).x == ref.nodes(i).x && c.nodes(i).y == ref.nodes(i).y
+          }
+        def relDiff(a: Float, b: Float): Double = math.abs(a - b) / math.max(1e-6, math.abs(a))
+        val maxDiff = if (!sameStructure) Double.PositiveInfinity else
+          (0 until c.nNodes).map { i =>
+            val p = ref.nodes(i)
+            val q = c.nodes(i)
+            math.max(relDiff(p.error, q.error), relDiff(p.utility, q.utility))
+          } .max
+        val name = if (utility) "GNG-U" else "GNG"
+        println(f"$name batch $batch%2d: nodes ${c.nNodes}, edges ${c.nEdges}, max. relative difference $maxDiff%.2e")
+        if (maxDiff > 1e-3) sys.error(s"$name batch $batch does not match the sequential steps")
+      }
+    }
+
+    val ref = pruning(1)
+    for (batch <- Seq(1, 10, 50)) {
+      val p = if (batch == 1) ref else pruning(batch)
+      println(f"GNG-U pruning batch $batch%2d: mean nodes ${p.nodes}%.1f, mean error ${p.error}%.2f, deleted ${p.deleted}")
+      if (p.deleted == 0) sys.error(s"GNG-U batch $batch did not delete any node")
+      if (math.abs(p.nodes - ref.nodes) > 0.05 * ref.nodes)
+        sys.error(s"GNG-U batch $batch keeps too many or too few nodes")
+      if (math.abs(p.error - ref.error) > 0.05 * ref.error)
+        sys.error(s"GNG-U batch $batch has a different quantization error")
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package de.sciss.ng_test
+
+import java.io.File
+
+import de.sciss.neuralgas.{Algorithm, ComputeGNG, PD, SweepGNG}
+
+import scala.io.Source
+
+/** Runs a small parameter sweep over `lambdaGNG` and `epsilonGNG` and prints the CSV.
+  * Running it again with the same file resumes the sweep, which then has nothing left to do.
+  */
+object SweepTest {
+  def main(args: Array[String]): Unit = {
+    val f = args.headOption.fold(File.createTempFile("sweep", ".csv"))(new File(_))
+
+    val sweep = new SweepGNG(new SweepGNG.Setup {
+      def configure(c: ComputeGNG): Unit = {
+        c.algorithm = Algorithm.GNG
+        c.pd        = PD.Ring
+        c.maxNodes  = 100
+        c.stepSize  = 100
+      }
+    })
+    sweep.setValues(SweepGNG.LAMBDA , 100f, 300f)
+    sweep.setValues(SweepGNG.EPSILON, 0.05f, 0.1f)
+    sweep.setSeeds(1L, 2L, 3L)
+    sweep.maxSignals = 30000
+
+    val t0  = System.currentTimeMillis()
+    val num = sweep.run(f)
+    val t1  = System.currentTimeMillis()
+    println(s"Did $num of ${sweep.getNumRuns} runs in ${t1 - t0} ms.")
+
+    val src = Source.fromFile(f)
+    try src.getLines().foreach(println) finally src.close()
+  }
+}
@@ -0,0 +1,62 @@
+package de.sciss.ng_test
+
+import de.sciss.neuralgas.{Algorithm, ComputeGNG, NodeGNG, Voronoi}
+
+import scala.util.Random
+
+/** Measures the time of the Voronoi sweep as a function of the number of sites,
+  * comparing the linked lists of the original implementation with the beach line
+  * tree and event heap. Sites are uniformly distributed either in a square or in
+  * a thin horizontal band, where the beach line is as long as the number of sites.
+  */
+object VoronoiBenchmark {
+  def main(args: Array[String]): Unit = {
+    val sizes   = Seq(1000, 10000, 30000)
+    val rounds  = 10
+
+    println("sites\tshape\tlists [ms]\ttree+heap [ms]\tspeed-up")
+    for (band <- Seq(false, true); n <- sizes) {
+      val c     = mkCompute(n, band = band)
+      val list  = measure(c, listB = true , rounds = rounds)
+      val tree  = measure(c, listB = false, rounds = rounds)
+      val shape = if (band) "band" else "square"
+      println(f"$n\t$shape\t$list%1.2f\t$tree%1.2f\t${list / tree}%1.2f")
+    }
+  }
+
+  def mkCompute(numNodes: Int, band: Boolean): ComputeGNG = {
+    val rnd         = new Random(numNodes)
+    val c           = new ComputeGNG(0L)
+    c.ensureCapacity(numNodes)
+    c.panelWidth    = 1000
+    c.panelHeight   = 1000
+    c.algorithm     = Algorithm.GNG
+    c.maxNodes      = numNodes
+    c.nNodes        = numNodes
+    val h           = if (band) 10f else 1000f
+    for (i <- 0 until numNodes) {
+      val n   = new NodeGNG
+      n.x     = rnd.nextFloat() * 1000f
+      n.y     = rnd.nextFloat() * h
+      c.nodes(i) = n
+    }
+    c
+  }
+
+  /** Returns the best time of a number of sweeps in milliseconds. */
+  def measure(c: ComputeGNG, listB: Boolean, rounds: Int): Double = {
+    val v       = new Voronoi(c)
+    v.listB     = listB
+    v.voronoiB  = true
+    v.delaunayB = true
+    v.setSize(c.panelWidth, c.panelHeight)
+    var best    = Double.MaxValue
+    for (_ <- 0 until rounds) {
+      val t0 = System.nanoTime()
+      v.computeVoronoi()
+      val t1 = System.nanoTime()
+      best = math.min(best, (t1 - t0) / 1.0e6)
+    }
+    best
+  }
+}
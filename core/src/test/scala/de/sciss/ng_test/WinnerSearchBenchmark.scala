@@ -0,0 +1,66 @@
+package de.sciss.ng_test
+
+import java.awt.Dimension
+
+import de.sciss.neuralgas.{Algorithm, ComputeGNG, PD}
+
+/** Measures the number of signals per second processed by GNG as a function
+  * of the number of nodes, comparing linear winner search with the spatial index,
+  * and the spatial index combined with lazy decay of error and utility.
+  */
+object WinnerSearchBenchmark {
+  def main(args: Array[String]): Unit = {
+    val sizes     = Seq(100, 500, 1000, 2000, 5000, 10000)
+    val duration  = 2000L   // milliseconds per measurement
+
+    println("nodes\tlinear [sig/s]\tindexed [sig/s]\tspeed-up\tindexed+lazy [sig/s]\tspeed-up")
+    for (n <- sizes) {
+      val (numNodes, lin) = measure(n, indexed = false, lazyDecay = false, duration = duration)
+      val (_       , idx) = measure(n, indexed = true , lazyDecay = false, duration = duration)
+      val (_       , lzy) = measure(n, indexed = true , lazyDecay = true , duration = duration)
+      println(f"$numNodes\t$lin%1.0f\t$idx%1.0f\t${idx / lin}%1.2f\t$lzy%1.0f\t${lzy / lin}%1.2f")
+    }
+  }
+
+  def mkCompute(numNodes: Int, indexed: Boolean, lazyDecay: Boolean): ComputeGNG = {
+    val c             = new ComputeGNG(0L)
+    c.panelWidth      = 1000
+    c.panelHeight     = 1000
+    c.pd              = PD.Rectangle
+    c.maxNodes        = numNodes
+    c.algorithm       = Algorithm.GNG
+    c.rndInitB        = true
+    // start from a wired grid, so no node is deleted for lack of neighbors
+    val h             = math.min(100, math.sqrt(numNodes).toInt)
+    val w             = numNodes / h
+    c.initGrid(w, h, new Dimension(c.panelWidth, c.panelHeight))
+    c.noNewNodesGNGB  = true
+    c.autoStopB       = false
+    c.maxEdgeAge      = Int.MaxValue
+    c.stepSize        = 500
+    c.spatialIndexB   = indexed
+    c.lazyDecayB      = lazyDecay
+    c
+  }
+
+  /** Returns the number of nodes and the signals per second. */
+  def measure(numNodes: Int, indexed: Boolean, lazyDecay: Boolean, duration: Long): (Int, Double) = {
+    val c   = mkCompute(numNodes, indexed, lazyDecay)
+    val res = new ComputeGNG.Result
+
+    // warm-up
+    val tw = System.currentTimeMillis() + duration / 4
+    while (System.currentTimeMillis() < tw) c.learn(res)
+
+    val s0  = c.numSignals
+    val t0  = System.nanoTime()
+    val t1  = t0 + duration * 1000000L
+    var t   = t0
+    while (t < t1) {
+      c.learn(res)
+      t = System.nanoTime()
+    }
+    val signals = c.numSignals - s0
+    (c.nNodes, signals * 1.0e9 / (t - t0))
+  }
+}
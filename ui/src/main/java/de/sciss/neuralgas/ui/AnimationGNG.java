@@ -0,0 +1,192 @@
+package de.sciss.neuralgas.ui;
+
+import de.sciss.neuralgas.ComputeGNG;
+import de.sciss.neuralgas.SnapshotGNG;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Writes an animation of a learning network as a sequence of PNG images,
+ * without a window. Each call of <TT>addFrame</TT> takes a snapshot of the
+ * network and draws the background on the calling thread, which can then
+ * continue learning. Drawing the network and encoding the image happen on a
+ * pool of worker threads.
+ * <p>
+ * The number of frames in progress is limited. When the workers fall behind,
+ * <TT>addFrame</TT> waits until a frame is free, so memory stays bounded.
+ * <p>
+ * Example:
+ * <pre>
+ *   AnimationGNG anim = new AnimationGNG(compute, new RenderGNG(), dir, "frame-%05d.png");
+ *   while (...) {
+ *       compute.learn(result);
+ *       anim.addFrame();
+ *   }
+ *   anim.finish();
+ * </pre>
+ *
+ * @author Hanns Holger Rutz
+ */
+public class AnimationGNG {
+    private final ComputeGNG    compute;
+    private final RenderGNG     background;
+    private final File          dir;
+    private final String        pattern;
+    private final ForkJoinPool  pool;
+    private final int           numFramesInProgress;
+
+    private final BlockingQueue<Frame> free;
+
+    private int numFrames = 0;
+    private volatile IOException error;
+    private boolean finished = false;
+
+    private static final class Frame {
+        final SnapshotGNG   snapshot = new SnapshotGNG();
+        final RenderGNG     renderer;
+        final Dimension     size     = new Dimension();
+        BufferedImage       image;
+        File                file;
+
+        Frame(RenderGNG renderer) {
+            this.renderer = renderer;
+        }
+    }
+
+    /**
+     * Creates an animation using one worker thread per processor.
+     *
+     * @param compute      The network
+     * @param renderer     The settings of the drawing, which are copied
+     * @param dir          The directory of the images
+     * @param pattern      The file name of the images, formatted with the frame
+     *                     index, e.g. <TT>"frame-%05d.png"</TT>
+     */
+    public AnimationGNG(ComputeGNG compute, RenderGNG renderer, File dir, String pattern) {
+        this(compute, renderer, dir, pattern, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an animation.
+     *
+     * @param compute      The network
+     * @param renderer     The settings of the drawing, which are copied
+     * @param dir          The directory of the images
+     * @param pattern      The file name of the images, formatted with the frame
+     *                     index, e.g. <TT>"frame-%05d.png"</TT>
+     * @param numThreads   The number of worker threads
+     */
+    public AnimationGNG(ComputeGNG compute, RenderGNG renderer, File dir, String pattern, int numThreads) {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("numThreads " + numThreads);
+        this.compute        = compute;
+        this.background     = new RenderGNG(renderer);
+        this.dir            = dir;
+        this.pattern        = pattern;
+        this.pool           = new ForkJoinPool(numThreads);
+        numFramesInProgress = 2 * numThreads;
+        free = new ArrayBlockingQueue<Frame>(numFramesInProgress);
+        for (int i = 0; i < numFramesInProgress; i++)
+            free.add(new Frame(new RenderGNG(renderer)));
+    }
+
+    /**
+     * Returns the number of frames added so far.
+     */
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    /**
+     * Add a frame showing the current state of the network. This must be called
+     *  from the thread which calls <TT>learn</TT>, between steps. It waits if all
+     *  frames are in progress.
+     *
+     * @return             The file to which the frame is written
+     * @throws IOException if writing a previous frame failed
+     */
+    public File addFrame() throws IOException, InterruptedException {
+        if (finished)
+            throw new IllegalStateException("Animation is finished");
+        checkError();
+        final Frame f = free.take();
+        final int w = compute.panelWidth;
+        final int h = compute.panelHeight;
+        f.size.setSize(w, h);
+        if (f.image == null || f.image.getWidth() != w || f.image.getHeight() != h)
+            f.image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        compute.copySnapshot(f.snapshot);
+        final Graphics2D g = f.image.createGraphics();
+        try {
+            background.paintBackground(g, compute, f.size);
+        } finally {
+            g.dispose();
+        }
+
+        f.file = new File(dir, String.format(pattern, numFrames));
+        numFrames++;
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                render(f);
+            }
+        });
+        return f.file;
+    }
+
+    // runs on a worker thread
+    private void render(Frame f) {
+        try {
+            if (error != null)
+                return;
+            final Graphics2D g = f.image.createGraphics();
+            try {
+                f.renderer.paintNetwork(g, f.snapshot, f.size);
+            } finally {
+                g.dispose();
+            }
+            if (!ImageIO.write(f.image, "png", f.file))
+                throw new IOException("No PNG writer");
+        } catch (IOException e) {
+            if (error == null) error = e;
+        } catch (RuntimeException e) {
+            if (error == null) error = new IOException(e);
+        } finally {
+            free.add(f);
+        }
+    }
+
+    private void checkError() throws IOException {
+        final IOException e = error;
+        if (e != null)
+            throw e;
+    }
+
+    /**
+     * Wait until all frames are written and stop the worker threads.
+     *
+     * @throws IOException if writing a frame failed
+     */
+    public void finish() throws IOException, InterruptedException {
+        if (!finished) {
+            finished = true;
+            // all frames are written once they are all free again
+            final Frame[] all = new Frame[numFramesInProgress];
+            for (int i = 0; i < all.length; i++)
+                all[i] = free.take();
+            for (Frame f : all)
+                free.add(f);
+            pool.shutdown();
+        }
+        checkError();
+    }
+}
@@ -23,6 +23,7 @@ package de.sciss.neuralgas.ui;
 
 import de.sciss.neuralgas.Algorithm;
 import de.sciss.neuralgas.ComputeGNG;
+import de.sciss.neuralgas.NodeGNG;
 import de.sciss.neuralgas.PD;
 
 import java.awt.BorderLayout;
@@ -156,6 +157,8 @@ public class DemoGNG extends JApplet {
                     panel.probDistB = value;
                 } else if (cb.getText().equals(TRACES)) {
                     panel.tracesB = value;
+                    // only record traces while they are displayed
+                    compute.traceLength = value ? NodeGNG.TRACE_LEN : 0;
                 } else if (cb.getText().equals(EDGES)) {
                     panel.edgesB = value;
                 } else if (cb.getText().equals(ERROR_GRAPH)) {
@@ -267,7 +270,7 @@ public class DemoGNG extends JApplet {
         // set algorithm to use
         compute.algorithm = aNew; // is altered below in only some cases
         if (aNew.isDiscrete()){
-            compute.stepSize = stepSize_Ai[1]; //1
+            panel.setStepSize(stepSize_Ai[1]); //1
             stepSize_choice.setSelectedIndex(1);
 
             //int maxIndex = indexWithContent(maxNodes_Ai,4);
@@ -275,7 +278,7 @@ public class DemoGNG extends JApplet {
             //compute.maxNodes = maxNodes_Ai[maxIndex]; //5
             //maxNodes_choice.setSelectedIndex(maxIndex);
         } else {
-            compute.stepSize = stepSize_Ai[0]; // 50
+            panel.setStepSize(stepSize_Ai[0]); // 50
             stepSize_choice.setSelectedIndex(0);
 
             if (aNew.equals(Algorithm.GR)) {
@@ -536,11 +539,12 @@ public class DemoGNG extends JApplet {
                 }
                 // stepsize
                 else if (stepSize_choice.equals(mc)) {
-                    compute.stepSize = stepSize_Ai[stepSize_choice.getSelectedIndex()];
+                    panel.setStepSize(stepSize_Ai[stepSize_choice.getSelectedIndex()]);
                 }
                 // machine speed
                 else if (speed_choice.equals(mc)) {
                     panel.tSleep = speed_Ai[speed_choice.getSelectedIndex()];
+                    panel.freeRunB = (panel.tSleep == 0);
                 }
                 // max. nodes
                 else if (maxNodes_choice.equals(mc)) {
@@ -692,14 +696,14 @@ public class DemoGNG extends JApplet {
                 }
                 // numDiscreteSignals LBG
                 else if (numDiscreteSignalsLBG_choice.equals(mc)) {
-                    // Initialize discrete numSignals
-                    compute.initDiscreteSignals(compute.pd);
                     // Set number of discrete numSignals
                     if (compute.pd.equals(PD.DiscreteMixture)) {
                         compute.numDiscreteSignals = 500; // TODO: define constant
                     } else {
                         compute.numDiscreteSignals = numDiscreteSignalsLBG_Ai[numDiscreteSignalsLBG_choice.getSelectedIndex()];
                     }
+                    // Initialize discrete numSignals
+                    compute.initDiscreteSignals(compute.pd);
                     compute.errorBestLBG_U = Float.MAX_VALUE;
                 }
                 panel.repaint(); // added after removing the general repaint()
@@ -960,13 +964,15 @@ public class DemoGNG extends JApplet {
     /**
      * The array for the machine speed.
      *  To add or delete values to the choice, change this array and speed_As[].
+     *  Zero selects the free-running mode, in which the step size is adapted
+     *  to the frame rate.
      */
-    protected int speed_Ai[] = {10,  50,  200, 400,1000};
+    protected int speed_Ai[] = {0, 10,  50,  200, 400,1000};
     /**
      * The array for the machine speed names.
      *  To add or delete values to the choice, change this array and speed_Ai.
      */
-    protected String speed_As[] = {"maximal", "fast", "medium","slow","very slow"};
+    protected String speed_As[] = {"free-running", "maximal", "fast", "medium","slow","very slow"};
     /**
      * The array for the maximum number of nodes.
      *  To add or delete values to the choice, only this array must be changed.
@@ -1410,6 +1416,7 @@ public class DemoGNG extends JApplet {
         curcb=speed_choice = new MyComboBox("parameter to slow down the simulation via 'sleep()' calls for better observation");
         for (i = 0; i < speed_As.length; i++)
             speed_choice.addItem(speed_As[i]);
+        speed_choice.setSelectedIndex(1);
 
 //		cp_speed.add(new MyLabel("speed:", SwingConstants.RIGHT,curcb.getToolTipText()));
 //		JSlider sped = new JSlider(JSlider.HORIZONTAL,
@@ -3,6 +3,7 @@ package de.sciss.neuralgas.ui;
 import de.sciss.neuralgas.GrayImagePD;
 import de.sciss.neuralgas.ImagePD;
 import de.sciss.neuralgas.PD;
+import de.sciss.neuralgas.TiledImagePD;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -22,6 +23,7 @@ public final class Main implements Runnable, AppletStub {
     private final boolean       imgInvert;
     private final boolean       imgGray;
     private final boolean       hasImage;
+    private final PD            imgPD;
 
     private JFrame f;
     private DemoGNG applet;
@@ -35,6 +37,15 @@ public final class Main implements Runnable, AppletStub {
         hasImage    = img != null;
         imgInvert   = invert;
         imgGray     = gray;
+        imgPD       = null;
+    }
+
+    public Main(PD pd) {
+        img         = null;
+        hasImage    = false;
+        imgInvert   = false;
+        imgGray     = false;
+        imgPD       = pd;
     }
 
     public static void main(String[] args) throws IOException {
@@ -43,6 +54,7 @@ public final class Main implements Runnable, AppletStub {
         int     imageIdx    = -1;
         boolean invert      = false;
         boolean gray        = false;
+        boolean tiled       = false;
 
         for (int i = 0; i < args.length; i++) {
             final String a = args[i];
@@ -52,9 +64,17 @@ public final class Main implements Runnable, AppletStub {
                 invert = true;
             } else if (a.equals("--gray")) {
                 gray = true;
+            } else if (a.equals("--tiled")) {
+                tiled = true;
             }
         }
 
+        if (imageIdx >= 0 && tiled) {
+            final TiledImagePD.Source src = new TiledImagePD.ImageIOSource(new File(args[imageIdx]));
+            EventQueue.invokeLater(new Main(new TiledImagePD(src, 256, 256, invert)));
+            return;
+        }
+
         if (imageIdx >= 0) {
             img = ImageIO.read(new File(args[imageIdx]));
         } else {
@@ -70,7 +90,8 @@ public final class Main implements Runnable, AppletStub {
     public void run() {
         f       = new JFrame("Demo GNG");
         applet  = new DemoGNG();
-        final PD pd = hasImage ? (imgGray ? new GrayImagePD(img, imgInvert) : new ImagePD(img, imgInvert)) : PD.Rectangle;
+        final PD pd = imgPD != null ? imgPD :
+                hasImage ? (imgGray ? new GrayImagePD(img, imgInvert) : new ImagePD(img, imgInvert)) : PD.Rectangle;
         f.getContentPane().add(applet);
         f.setMinimumSize(new Dimension(768, 768));
         f.pack();
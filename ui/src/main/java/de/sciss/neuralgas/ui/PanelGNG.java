@@ -2,16 +2,15 @@ package de.sciss.neuralgas.ui;
 
 import de.sciss.neuralgas.Algorithm;
 import de.sciss.neuralgas.ComputeGNG;
-import de.sciss.neuralgas.EdgeGNG;
-import de.sciss.neuralgas.GridNodeGNG;
-import de.sciss.neuralgas.LineFloat2D;
 import de.sciss.neuralgas.NodeGNG;
 import de.sciss.neuralgas.PD;
 import de.sciss.neuralgas.PanelLike;
+import de.sciss.neuralgas.SnapshotGNG;
 import de.sciss.neuralgas.Voronoi;
 
 import javax.swing.JPanel;
 import javax.swing.JSlider;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.Color;
@@ -19,15 +18,18 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
+import java.awt.Transparency;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Vector;
 
 @SuppressWarnings("serial")
 class PanelGNG extends JPanel implements
@@ -151,6 +153,11 @@ class PanelGNG extends JPanel implements
      */
     protected boolean tracesB = false;
 
+    /**
+     * The snapshot of the network which is painted.
+     */
+    private SnapshotGNG snapshot;
+
     /**
      * The flag for displaying the error graph.
      *  This variable can be set by the user.
@@ -177,6 +184,46 @@ class PanelGNG extends JPanel implements
      */
     protected int tSleep = 10; //should be taken from the speed choice
 
+    /**
+     * The flag for the free-running mode. The compute thread learns without
+     *  sleeping, and the panel is repainted by a timer at most <TT>frameRate</TT>
+     *  times per second, from the latest snapshot. <TT>stepSize</TT> is adapted
+     *  so that one step takes about one frame.
+     *  This variable can be set by the user.
+     */
+    protected volatile boolean freeRunB = false;
+
+    /**
+     * The maximum number of frames per second in the free-running mode.
+     *  This variable can be set by the user.
+     */
+    protected volatile int frameRate = 30;
+
+    /**
+     * The number of signals per second aimed at in the free-running mode,
+     *  or zero for as many as possible.
+     *  This variable can be set by the user.
+     */
+    protected volatile int targetSignalRate = 0;
+
+    /**
+     * The largest <TT>stepSize</TT> chosen in the free-running mode.
+     */
+    protected static final int MAX_FREE_STEP_SIZE = 20000;
+
+    /**
+     * The <TT>stepSize</TT> chosen by the user. The compute thread uses it
+     *  whenever it is not in the free-running mode.
+     */
+    private volatile int requestedStepSize;
+
+    /**
+     * The smoothed time of learning one signal in the free-running mode (nanoseconds).
+     */
+    private double nanosPerSignal = 0.0;
+
+    private Timer frameTimer;
+
     /**
      * The constructor.
      *
@@ -190,6 +237,19 @@ class PanelGNG extends JPanel implements
         this.compute    = graph.compute;
         this.voro       = new Voronoi(compute);
         this.result     = new ComputeGNG.Result();
+        requestedStepSize = compute.stepSize;
+
+        final RenderGNG r   = renderer;
+        r.voro              = voro;
+        r.edgeColor         = edgeColor;
+        r.nodeColor         = nodeColor;
+        r.insertedColor     = insertedColor;
+        r.voronoiColor      = voronoiColor;
+        r.delaunayColor     = delaunayColor;
+        r.distribColor      = distribColor;
+        r.lowDistribColor   = lowDistribColor;
+        r.highDistribColor  = highDistribColor;
+        compute.snapshotB = true;
     }
 
     /**
@@ -240,6 +300,7 @@ class PanelGNG extends JPanel implements
                     // can this happen???
                     // Generate some nodes
                     final int numDiscreteSignals = compute.numDiscreteSignals;
+                    compute.validateDiscreteSignals(compute.pd);
                     int z = (int) (numDiscreteSignals * compute.random());
                     int mod = 0;
                     final float[] discreteSignalsX = compute.discreteSignalsX;
@@ -256,10 +317,12 @@ class PanelGNG extends JPanel implements
             }
 
             // Calculate the new positions
+            boolean freeRun = checkFreeRun();
+            final int steps = compute.stepSize;
+            final long t0 = System.nanoTime();
             if (!result.stop) {
-                synchronized(this) {
-                    compute.learn(result);
-                }
+                // the panel paints from snapshots, so it does not have to wait for this
+                compute.learn(result);
                 iter++;
 //                System.out.println(compute.nNodes);
 //                if (iter == 1000) {
@@ -268,7 +331,7 @@ class PanelGNG extends JPanel implements
 //                    }
 //                }
 
-                if (result.repaint) {
+                if (result.repaint && !freeRun) {
                     repaint();
                 }
                 if (result.stop) {
@@ -281,6 +344,17 @@ class PanelGNG extends JPanel implements
             if (errorGraphB && !result.stop)
                 errorGraph.graph.add(compute.valueGraph);
 
+            // the mode may have ended while learning
+            freeRun = freeRun && checkFreeRun();
+
+            // the frame timer repaints, we only wait when ahead of the target rate
+            if (freeRun && !result.stop) {
+                if (!adaptStep(steps, System.nanoTime() - t0))
+                    break;
+                continue;
+            }
+            nanosPerSignal = 0.0;
+
             if (result.stop)
                 try {
                     Thread.sleep(100);
@@ -308,6 +382,67 @@ class PanelGNG extends JPanel implements
         log("run() end");
     }
 
+    /**
+     * Set the number of signals learned per step. The compute thread applies
+     *  it before its next step. In the free-running mode it chooses the step
+     *  size itself, and this one is used again once the mode ends.
+     *
+     * @param n            The step size
+     */
+    void setStepSize(int n) {
+        requestedStepSize = n;
+    }
+
+    /**
+     * Check whether the compute thread runs in the free-running mode, and
+     *  apply the requested <TT>stepSize</TT> if it does not. Only the compute
+     *  thread calls this, so the adaptive step size cannot overwrite the
+     *  requested one after the mode has ended.
+     *
+     * @return             true if the thread runs in the free-running mode
+     */
+    private boolean checkFreeRun() {
+        final boolean freeRun = freeRunB && !teachB;
+        if (!freeRun)
+            compute.stepSize = requestedStepSize;
+        return freeRun;
+    }
+
+    /**
+     * Choose the next <TT>stepSize</TT> of the free-running mode, so that a step
+     *  takes about one frame, and wait if the learning is ahead of
+     *  <TT>targetSignalRate</TT>.
+     *
+     * @param steps        The number of signals of the last step
+     * @param nanos        The duration of the last step
+     * @return             false if the thread was interrupted
+     */
+    private boolean adaptStep(int steps, long nanos) {
+        final int fps       = Math.max(1, frameRate);
+        final int rate      = targetSignalRate;
+        final double perSig = (double) nanos / Math.max(1, steps);
+        nanosPerSignal = (nanosPerSignal == 0.0) ? perSig : 0.75 * nanosPerSignal + 0.25 * perSig;
+
+        long next = (long) (1.0e9 / fps / Math.max(1.0, nanosPerSignal));
+        if (rate > 0)
+            next = Math.min(next, rate / fps);
+        compute.stepSize = (int) Math.max(1, Math.min(MAX_FREE_STEP_SIZE, next));
+
+        if (rate > 0) {
+            final long wait = steps * 1000000000L / rate - nanos;
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        } else {
+            Thread.yield();
+        }
+        return !Thread.interrupted();
+    }
+
     /**
      * The mouse-selected node.
      */
@@ -325,10 +460,18 @@ class PanelGNG extends JPanel implements
      * The color of the 1-D SOM torus.
      */
     protected final Color torusColor = Color.cyan;
+    /**
+     * The translucent fill color of the 1-D SOM torus.
+     */
+    protected final Color torusFillColor = new Color(torusColor.getRed(), torusColor.getGreen(), torusColor.getBlue(), 80);
     /**
      * The color of SOM polygons.
      */
     protected final Color somColor = Color.yellow;
+    /**
+     * The translucent fill color of SOM polygons.
+     */
+    protected final Color somFillColor = new Color(somColor.getRed(), somColor.getGreen(), somColor.getBlue(), 80);
     /**
      * The color of the unused nodes (usage=true).
      */
@@ -386,18 +529,20 @@ class PanelGNG extends JPanel implements
      * Paint a node.
      *
      * @param g            The graphic context
-     * @param n            The node
+     * @param s            The snapshot of the network
+     * @param i            The index of the node
      */
-    public void paintNode(Graphics g, NodeGNG n) {
+    public void paintNode(Graphics g, SnapshotGNG s, int i) {
         int RADIUS = 10;
         Color col = nodeColor;
-        final Algorithm algorithm = compute.algorithm;
+        final Algorithm algorithm = s.algorithm;
+        final int flags = s.flags[i];
 
         if (teachB && (!algorithm.isDiscrete()) ) {
-            if (n.isWinner) {
+            if ((flags & SnapshotGNG.WINNER) != 0) {
                 RADIUS += 5;
                 col = winnerColor;
-            } else if (n.isSecond) {
+            } else if ((flags & SnapshotGNG.SECOND) != 0) {
                 RADIUS += 3;
                 col = secondColor;
             }
@@ -408,38 +553,91 @@ class PanelGNG extends JPanel implements
         }
 
         if (algorithm.isSOMType() && usageB){
-            if (n.tau < 1.0){
+            if (s.tau[i] < 1.0){
                 //Color c = nodeColor;
                 //col = new Color(c.getRed(),c.getGreen(),c.getBlue(),(int)(100*n.tau));
                 //col = mixColor(nodeColor,Color.black,n.tau);
                 col=unusedColor;
             }
         }
-        if (n.isMostRecentlyInserted)  {
+        if ((flags & SnapshotGNG.INSERTED) != 0)  {
             RADIUS += 2;
             col = insertedColor;
         }
 
-        if ( (algorithm.isDiscrete()) && (!n.hasMoved) ) {
+        if ( (algorithm.isDiscrete()) && ((flags & SnapshotGNG.MOVED) == 0) ) {
             RADIUS += 4;
             col = movedColor;
         }
 
-        g.setColor(col);
-        if (mapSpaceGGB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) || mapSpaceSOMB && algorithm == Algorithm.SOM) {
-            g.fillOval((int)(gx2x((int)n.x_grid) - (RADIUS/2)), (int)(gy2y((int)n.y_grid) - (RADIUS/2)), RADIUS, RADIUS);
-        } else {
-            g.fillOval((int)n.x - (RADIUS/2), (int)n.y - (RADIUS/2), RADIUS, RADIUS);
+        renderer.drawNode(g, col, RADIUS, renderer.nodeX(s, i), renderer.nodeY(s, i));
+    }
+
+    /**
+     * The drawing of the background, the edges, the Voronoi diagram or Delaunay
+     *  triangulation and the nodes. Nodes and edges are placed in the map space
+     *  if requested, and the nodes are painted by <TT>paintNode</TT>.
+     */
+    private final RenderGNG renderer = new RenderGNG() {
+        @Override
+        protected void drawPD(Graphics g, ComputeGNG c, Dimension d) {
+            PanelGNG.this.drawPD(g, d);
         }
-        g.setColor(Color.black);
-        if (mapSpaceGGB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) || mapSpaceSOMB && algorithm == Algorithm.SOM) {
-            g.drawOval((int)gx2x(n.x_grid) - (RADIUS/2), (int)gy2y(n.y_grid) - (RADIUS/2), RADIUS, RADIUS);
-        } else {
-            g.drawOval((int)n.x - (RADIUS/2), (int)n.y - (RADIUS/2), RADIUS, RADIUS);
+
+        @Override
+        protected BufferedImage createBackgroundImage(int width, int height) {
+            return (getGraphicsConfiguration() != null)
+                    ? getGraphicsConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE)
+                    : super.createBackgroundImage(width, height);
         }
 
+        @Override
+        protected void updateVoronoi(SnapshotGNG s, Dimension d) {
+            // only when the nodes have moved
+            if (nodesMovedB) {
+                voro.setSize(d);
+                voro.updateVoronoi(s);
+            }
+        }
+
+        @Override
+        protected void paintNode(Graphics2D g, SnapshotGNG s, int i) {
+            PanelGNG.this.paintNode(g, s, i);
+        }
+
+        @Override
+        protected float nodeX(SnapshotGNG s, int i) {
+            return isMapSpace(s.algorithm) ? gx2x(s.xGrid[i]) : s.x[i];
+        }
+
+        @Override
+        protected float nodeY(SnapshotGNG s, int i) {
+            return isMapSpace(s.algorithm) ? gy2y(s.yGrid[i]) : s.y[i];
+        }
+    };
+
+    // true if the network is displayed in its map space
+    private boolean isMapSpace(Algorithm algorithm) {
+        return mapSpaceGGB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) || mapSpaceSOMB && algorithm == Algorithm.SOM;
+    }
+
+    // the settings of the panel which the renderer follows
+    private void syncRenderer() {
+        final RenderGNG r   = renderer;
+        r.whiteB            = whiteB;
+        r.probDistB         = probDistB;
+        r.edgesB            = edgesB;
+        r.nodesB            = nodesB;
+        r.voronoiB          = voro.voronoiB;
+        r.delaunayB         = voro.delaunayB;
+        r.backgroundColor   = getBackground();
     }
 
+    /**
+     * The reusable path of the outer SOM edges and of the motion traces.
+     */
+    private final Path2D.Float linePath = new Path2D.Float();
+
     // repaint --> update() ---> paintComponent()
 //	/**
 //	 * Update the drawing area.
@@ -452,18 +650,18 @@ class PanelGNG extends JPanel implements
     // helper function to compute mapspace coordinates for SOM-like networks
     public int gx2x(int gx){
         Dimension d = getSize();
-        return (int) (gx *d.width*0.9f/(compute.gridWidth-1)+0.05*d.width);
+        return (int) (gx *d.width*0.9f/(snapshot.gridWidth-1)+0.05*d.width);
     }
     public int gy2y(int gy){
         Dimension d = getSize();
-        return (int) (gy *d.height*0.9f/(compute.gridHeight-1)+0.05*d.height);
+        return (int) (gy *d.height*0.9f/(snapshot.gridHeight-1)+0.05*d.height);
     }
 
     protected void drawPD(final Graphics g, final Dimension d) {
         compute.pd.draw(compute, this, g, d);
     }
 
-    public synchronized void paintComponent(Graphics g0) {
+    public void paintComponent(Graphics g0) {
         final Graphics2D g = (Graphics2D) g0;
 //        if (true) {
 //            System.out.println(compute.nNodes);
@@ -475,86 +673,66 @@ class PanelGNG extends JPanel implements
 //        prevSigs = compute.numSignals;
         Dimension d = getSize();
         int i, x, y;
-        final Algorithm algorithm = compute.algorithm;
-
-        if (whiteB)
-            g.setColor(Color.white);
-        else
-            g.setColor(getBackground());
-
-        g.fillRect(0, 0, d.width, d.height);
 
-        // recompute Delaunay/Voronoi
-        if ((voro.delaunayB || voro.voronoiB) && nodesMovedB) {
-//            nLines = 0;
-            voro.setSize(getSize());
-            voro.computeVoronoi();// TODO: analyze
+        // While learning, the snapshots come from the learning thread. Otherwise the
+        // network only changes on this thread, and we take a snapshot ourselves.
+        if (relaxer == null)
+            compute.publishSnapshot();
+        final SnapshotGNG s = compute.acquireSnapshot();
+        if (s == null) {
+            g.setColor(whiteB ? Color.white : getBackground());
+            g.fillRect(0, 0, d.width, d.height);
+            return;
         }
-        nodesMovedB = false;
+        snapshot = s;
+        final Algorithm algorithm = s.algorithm;
+
         //
-        // draw probability distribution .....
+        // draw background and probability distribution .....
         // changes need to be reflected in the distribution itself
         //
+        syncRenderer();
+        renderer.paintBackground(g, compute, d);
 
-        // Set color for distribution
-        if (!algorithm.isDiscrete())
-            g.setColor(distribColor);
-
-        if (probDistB) drawPD(g, d);
-
-        final int gridWidth     = compute.gridWidth;
-        final int gridHeight    = compute.gridHeight;
+        final int gridWidth     = s.gridWidth;
+        final int gridHeight    = s.gridHeight;
+        final float[] nx        = s.x;
+        final float[] ny        = s.y;
 
         // Draw the edges
-        if (edgesB) {
-            int x1, y1, x2, y2;
-            EdgeGNG e;
-            final int nEdges = compute.nEdges;
-            final EdgeGNG[] edges = compute.edges;
-            final NodeGNG[] nodes = compute.nodes;
-            for (i = 0 ; i < nEdges ; i++) {
-                e = edges[i];
-                if (mapSpaceGGB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) || mapSpaceSOMB && algorithm == Algorithm.SOM) {
-                    x1 = gx2x(nodes[e.from].x_grid);
-                    y1 = gy2y(nodes[e.from].y_grid);
-                    x2 = gx2x(nodes[e.to].x_grid);
-                    y2 = gy2y(nodes[e.to].y_grid);
-                } else {
-                    x1 = (int)nodes[e.from].x;
-                    y1 = (int)nodes[e.from].y;
-                    x2 = (int)nodes[e.to].x;
-                    y2 = (int)nodes[e.to].y;
-                }
-                g.setColor(edgeColor);
-                g.drawLine(x1, y1, x2, y2);
-            }
-        } else if (algorithm.isSOMType()) {
-            g.setColor(edgeColor);
+        renderer.paintEdges(g, s);
+        final Path2D.Float lp = linePath;
+        if (!edgesB && algorithm.isSOMType()) {
             // draw the outer edges, i.e. where for *both* endpoints holds:
             // gridx=0 or gridy=0 or gridx = width-1 or grid y= height-1
-            final GridNodeGNG[][] grid = compute.grid;
+            lp.reset();
             for (i = 0; i < gridWidth-1; i++) {
-                NodeGNG n1 = grid[i][0].node;
-                NodeGNG n2 = grid[i+1][0].node;
-                g.drawLine((int)n1.x, (int)n1.y, (int)n2.x, (int)n2.y);
-                n1 = grid[i][gridHeight-1].node;
-                n2 = grid[i+1][gridHeight-1].node;
-                g.drawLine((int)n1.x, (int)n1.y, (int)n2.x, (int)n2.y);
+                int n1 = s.gridNode(i, 0);
+                int n2 = s.gridNode(i+1, 0);
+                lp.moveTo((int)nx[n1], (int)ny[n1]);
+                lp.lineTo((int)nx[n2], (int)ny[n2]);
+                n1 = s.gridNode(i, gridHeight-1);
+                n2 = s.gridNode(i+1, gridHeight-1);
+                lp.moveTo((int)nx[n1], (int)ny[n1]);
+                lp.lineTo((int)nx[n2], (int)ny[n2]);
             }
             for (i = 0; i < gridHeight-1; i++) {
-                NodeGNG n1 = grid[0][i].node;
-                NodeGNG n2 = grid[0][i+1].node;
-                g.drawLine((int)n1.x, (int)n1.y, (int)n2.x, (int)n2.y);
-                n1 = grid[gridWidth-1][i].node;
-                n2 = grid[gridWidth-1][i+1].node;
-                g.drawLine((int)n1.x, (int)n1.y, (int)n2.x, (int)n2.y);
+                int n1 = s.gridNode(0, i);
+                int n2 = s.gridNode(0, i+1);
+                lp.moveTo((int)nx[n1], (int)ny[n1]);
+                lp.lineTo((int)nx[n2], (int)ny[n2]);
+                n1 = s.gridNode(gridWidth-1, i);
+                n2 = s.gridNode(gridWidth-1, i+1);
+                lp.moveTo((int)nx[n1], (int)ny[n1]);
+                lp.lineTo((int)nx[n2], (int)ny[n2]);
             }
+            g.setColor(edgeColor);
+            g.draw(lp);
         }
 
         // draw the filled polygons of fixed-dimensional networks (SOM, GG. eventually GCS)
         if (algorithm.isSOMType()){
-            Color c = somColor;
-            Color cT = new Color(c.getRed(),c.getGreen(),c.getBlue(),80);
+            g.setColor(somFillColor);
             //Color dd = Color.black;
             //Color dT = new Color(dd.getRed(),dd.getGreen(),dd.getBlue(),80);
             int j;
@@ -565,7 +743,7 @@ class PanelGNG extends JPanel implements
                 for (i = 0; i < gridWidth-1; i++) {
                     for (j = 0; j < gridHeight-1; j++) {
                         // draw polygon i,j;i+1,j;i+1,j+1;i,j+1;i,j
-                        if (mapSpaceGGB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) || mapSpaceSOMB && algorithm == Algorithm.SOM) {
+                        if (isMapSpace(algorithm)) {
                             xPoints[0]=gx2x(i);
                             xPoints[1]=gx2x(i+1);
                             xPoints[2]=gx2x(i+1);
@@ -579,84 +757,64 @@ class PanelGNG extends JPanel implements
                             yPoints[4]=gy2y(j);
 
                         } else {
-                            final GridNodeGNG[][] grid = compute.grid;
-                            xPoints[0]=(int)grid[i][j].node.x;
-                            xPoints[1]=(int)grid[i+1][j].node.x;
-                            xPoints[2]=(int)grid[i+1][j+1].node.x;
-                            xPoints[3]=(int)grid[i][j+1].node.x;
-                            xPoints[4]=(int)grid[i][j].node.x;
-
-                            yPoints[0]=(int)grid[i][j].node.y;
-                            yPoints[1]=(int)grid[i+1][j].node.y;
-                            yPoints[2]=(int)grid[i+1][j+1].node.y;
-                            yPoints[3]=(int)grid[i][j+1].node.y;
-                            yPoints[4]=(int)grid[i][j].node.y;
+                            final int n00 = s.gridNode(i  , j  );
+                            final int n10 = s.gridNode(i+1, j  );
+                            final int n11 = s.gridNode(i+1, j+1);
+                            final int n01 = s.gridNode(i  , j+1);
+                            xPoints[0]=(int)nx[n00];
+                            xPoints[1]=(int)nx[n10];
+                            xPoints[2]=(int)nx[n11];
+                            xPoints[3]=(int)nx[n01];
+                            xPoints[4]=(int)nx[n00];
+
+                            yPoints[0]=(int)ny[n00];
+                            yPoints[1]=(int)ny[n10];
+                            yPoints[2]=(int)ny[n11];
+                            yPoints[3]=(int)ny[n01];
+                            yPoints[4]=(int)ny[n00];
                         }
-                        g.setColor(cT);
                         g.fillPolygon(xPoints,yPoints,5);
                         //g.setColor(dT);
                         //g.drawPolygon(xPoints,yPoints,5);
                     }
                 }
             } else if ((algorithm == Algorithm.SOM && compute.torusSOMB) || ((algorithm == Algorithm.GG|| algorithm == Algorithm.GR) && compute.torusGGB)){
-                c = torusColor;
-                cT = new Color(c.getRed(),c.getGreen(),c.getBlue(),80);
-                g.setColor(cT);
+                g.setColor(torusFillColor);
                 Polygon p = new Polygon();
-                final GridNodeGNG[][] grid = compute.grid;
                 for (i = 0; i < gridWidth-1; i++) {
-                    p.addPoint((int)grid[i][0].node.x,(int)grid[i][0].node.y);
+                    final int n = s.gridNode(i, 0);
+                    p.addPoint((int)nx[n],(int)ny[n]);
                 }
                 g.fillPolygon(p);
             }
         }
 
-        // Draw the Voronoi or Delaunay diagram
-        if (voro.voronoiB || voro.delaunayB) {
-            LineFloat2D l;
-            final Line2D ln = new Line2D.Float();
-            final int nLines = voro.nLines;
-            for (i = 0; i < nLines; i++) {
-                l = voro.lines[i];
-                if (voro.vd[i])
-                    // voronoi
-                    g.setColor(voronoiColor);
-                else
-                    // delaunay
-                    g.setColor(delaunayColor);
-                ln.setLine(l.x1, l.y1, l.x2, l.y2);
-                g.draw(ln); // drawLine(l.x1, l.y1, l.x2, l.y2);
-            }
-        }
+        // Draw the Voronoi or Delaunay diagram, recomputed if the nodes have moved
+        renderer.paintVoronoi(g, s, d);
+        nodesMovedB = false;
 
         // Draw the nodes
-        if (nodesB) {
-            final int nNodes = compute.nNodes;
-            final NodeGNG[] nodes = compute.nodes;
-            for (i = 0; i < nNodes; i++)
-                paintNode(g, nodes[i]);
-        }
+        renderer.paintNodes(g, s);
 
         // draw the tau values
         if ((algorithm == Algorithm.GG|| algorithm == Algorithm.GR) && tauB){
             g.setColor(Color.black);
             int j;
-            final GridNodeGNG[][] grid = compute.grid;
             for (i = 0; i < gridWidth; i++) {
                 for (j = 0; j < gridHeight; j++) {
-                    GridNodeGNG xx = grid[i][j];
+                    final int xx = s.gridNode(i, j);
                     if (i==0 && j==0){
                         if (mapSpaceGGB) {
-                            g.drawString("x"+String.valueOf((int)xx.node.tau)+"x", gx2x(xx.node.x_grid), gy2y(xx.node.y_grid));
+                            g.drawString("x"+String.valueOf((int)s.tau[xx])+"x", gx2x(s.xGrid[xx]), gy2y(s.yGrid[xx]));
 
                         } else {
-                            g.drawString("x"+String.valueOf((int)xx.node.tau)+"x", (int)xx.node.x, (int)xx.node.y);
+                            g.drawString("x"+String.valueOf((int)s.tau[xx])+"x", (int)nx[xx], (int)ny[xx]);
                         }
                     } else {
                         if (mapSpaceGGB) {
-                            g.drawString(String.valueOf((int)xx.node.tau),  gx2x(xx.node.x_grid), gy2y(xx.node.y_grid));
+                            g.drawString(String.valueOf((int)s.tau[xx]),  gx2x(s.xGrid[xx]), gy2y(s.yGrid[xx]));
                         } else {
-                            g.drawString(String.valueOf((int)xx.node.tau), (int)xx.node.x, (int)xx.node.y);
+                            g.drawString(String.valueOf((int)s.tau[xx]), (int)nx[xx], (int)ny[xx]);
 
                         }
                     }
@@ -668,23 +826,20 @@ class PanelGNG extends JPanel implements
         // Draw the motion traces
         if (tracesB && !algorithm.isLBGType()){ // traces not working for LBG for some reason
             g.setColor(Color.black);
-            final int nNodes = compute.nNodes;
-            final NodeGNG[] nodes = compute.nodes;
+            final int nNodes = (s.traceLength > 0) ? s.nNodes : 0;
+            final float[] tr = s.trace;
+            lp.reset();
             for (i = 0; i < nNodes; i++) {
-                Vector<Float> tr = nodes[i].getTrace();
-                if (tr.size()<4)
-                    break;
-                int x1,y1,x2,y2;
-                x1=(int) Math.round(tr.get(0));
-                y1=(int) Math.round(tr.get(1));
-                for (int j=2;j<tr.size();j+=2){
-                    x2=(int) Math.round(tr.get(j));
-                    y2=(int) Math.round(tr.get(j+1));
-                    g.drawLine(x1, y1, x2, y2);
-                    x1=x2;
-                    y1=y2;
+                final int num = s.traceNum[i];
+                if (num < 2)
+                    continue;
+                final int off = 2 * s.traceLength * i;
+                lp.moveTo(Math.round(tr[off]), Math.round(tr[off+1]));
+                for (int j=off+2;j<off+2*num;j+=2){
+                    lp.lineTo(Math.round(tr[j]), Math.round(tr[j+1]));
                 }
             }
+            g.draw(lp);
         }
 
 
@@ -707,7 +862,7 @@ class PanelGNG extends JPanel implements
                         offset_y); offset_y += 15;
             } else {
                 g.setColor(signalColor);
-                g.fillOval((int) compute.SignalX - r/2, (int) compute.SignalY - r/2, r, r);
+                g.fillOval((int) s.signalX - r/2, (int) s.signalY - r/2, r, r);
 
                 // Draw legend
                 g.setColor(Color.black);
@@ -745,28 +900,28 @@ class PanelGNG extends JPanel implements
         }
 
         g.setColor(Color.black);
-        g.drawString("Signals: "+String.valueOf(compute.numSignals), 10, 10);
-        if (compute.maxNodes == 1)
-            g.drawString(String.valueOf(compute.nNodes) + " node",
+        g.drawString("Signals: "+String.valueOf(s.numSignals), 10, 10);
+        if (s.maxNodes == 1)
+            g.drawString(String.valueOf(s.nNodes) + " node",
                     10, d.height - 10);
         else
-            g.drawString("Nodes: "+String.valueOf(compute.nNodes),
+            g.drawString("Nodes: "+String.valueOf(s.nNodes),
                     10, d.height - 10);
 
         g.drawString("DemoGNG "+ DEMO_GNG_VERSION, d.width - 130, 10);
-        if ( compute.readyLBG_B && (algorithm.isLBGType()) ) {
+        if ( s.readyLBG_B && (algorithm.isLBGType()) ) {
             g.drawString("READY!", d.width-50, d.height-10);
         }
-        if ( compute.fineTuningB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) )
-            g.drawString(compute.fineTuningS, d.width-130, d.height-10);
+        if ( s.fineTuningB && (algorithm == Algorithm.GG|| algorithm == Algorithm.GR) )
+            g.drawString(s.fineTuningS, d.width-130, d.height-10);
 
         //
         // draw numSignals
         //
         if ( signalsB && (!algorithm.isDiscrete()) ) {
-            final float[] lastSignalsX = compute.lastSignalsX;
-            final float[] lastSignalsY = compute.lastSignalsY;
-            final int stepSize = compute.stepSize;
+            final float[] lastSignalsX = s.lastSignalsX;
+            final float[] lastSignalsY = s.lastSignalsY;
+            final int stepSize = s.numLastSignals;
             for (i = 0; i < stepSize; i++) {
                 x = (int) (lastSignalsX[i]);
                 y = (int) (lastSignalsY[i]);
@@ -780,9 +935,9 @@ class PanelGNG extends JPanel implements
         }
 
         if (algorithm.isDiscrete()) {
-            final int numDiscreteSignals    = compute.numDiscreteSignals;
             final float[] discreteSignalsX  = compute.discreteSignalsX;
             final float[] discreteSignalsY  = compute.discreteSignalsY;
+            final int numDiscreteSignals    = Math.min(compute.numDiscreteSignals, discreteSignalsX.length);
             for (i = 0; i < numDiscreteSignals; i++) {
                 x = Math.round(discreteSignalsX[i]);
                 y = Math.round(discreteSignalsY[i]);
@@ -844,6 +999,7 @@ class PanelGNG extends JPanel implements
             pick.isMouseSelected = true;
             pick.x = x;
             pick.y = y;
+            compute.nodeMoved(pick);
 
             if (compute.algorithm.isDiscrete())
                 pick.hasMoved = true;
@@ -892,6 +1048,7 @@ class PanelGNG extends JPanel implements
                 pick.y = 0;
             else if (pick.y > d.height)
                 pick.y = d.height;
+            compute.nodeMoved(pick);
 
             nodesMovedB = true;
             repaint();
@@ -936,6 +1093,7 @@ class PanelGNG extends JPanel implements
                 pick.y = 0;
             else if (pick.y > d.height)
                 pick.y = d.height;
+            compute.nodeMoved(pick);
 
             pick = null;
 
@@ -950,6 +1108,17 @@ class PanelGNG extends JPanel implements
         relaxer = new Thread(this);
         relaxer.start();
 
+        if (frameTimer == null) {
+            frameTimer = new Timer(1000 / Math.max(1, frameRate), new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    frameTimer.setDelay(1000 / Math.max(1, frameRate));
+                    if (freeRunB) repaint();
+                }
+            });
+        }
+        frameTimer.start();
+
         if ( errorGraphB  && (errorGraph != null) )
             errorGraph.setVisible(true);
     }
@@ -962,6 +1131,8 @@ class PanelGNG extends JPanel implements
             relaxer = null;
             log("set relaxer to 0");
         }
+        if (frameTimer != null)
+            frameTimer.stop();
         if ( errorGraphB  && (errorGraph != null) )
             errorGraph.setVisible(false);
     }
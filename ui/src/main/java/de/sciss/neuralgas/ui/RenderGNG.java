@@ -0,0 +1,418 @@
+package de.sciss.neuralgas.ui;
+
+import de.sciss.neuralgas.ComputeGNG;
+import de.sciss.neuralgas.LineFloat2D;
+import de.sciss.neuralgas.PD;
+import de.sciss.neuralgas.PanelLike;
+import de.sciss.neuralgas.SnapshotGNG;
+import de.sciss.neuralgas.Voronoi;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Draws a network without a window: the background with the probability
+ * distribution, the edges, the Voronoi diagram or Delaunay triangulation and
+ * the nodes of a <TT>SnapshotGNG</TT>. The drawing goes to any <TT>Graphics2D</TT>,
+ * such as the one of a <TT>BufferedImage</TT> or of a vector format.
+ * <p>
+ * Subclasses can change the position and the style of the nodes by overriding
+ * <TT>nodeX</TT>, <TT>nodeY</TT> and <TT>paintNode</TT>, as <TT>PanelGNG</TT> does.
+ * <p>
+ * A renderer keeps buffers between frames and must only be used by one thread
+ * at a time. Use the copy constructor to get a renderer with the same settings
+ * for another thread.
+ *
+ * @author Hanns Holger Rutz
+ */
+public class RenderGNG implements PanelLike {
+    /**
+     * The flag for a white background.
+     *  This variable can be set by the user.
+     */
+    public boolean whiteB = false;
+
+    /**
+     * The flag for displaying the probability distribution.
+     *  This variable can be set by the user.
+     */
+    public boolean probDistB = true;
+
+    /**
+     * The flag for displaying the edges.
+     *  This variable can be set by the user.
+     */
+    public boolean edgesB = true;
+
+    /**
+     * The flag for displaying the nodes.
+     *  This variable can be set by the user.
+     */
+    public boolean nodesB = true;
+
+    /**
+     * The flag for displaying the Voronoi diagram.
+     *  This variable can be set by the user.
+     */
+    public boolean voronoiB = false;
+
+    /**
+     * The flag for displaying the Delaunay triangulation.
+     *  This variable can be set by the user.
+     */
+    public boolean delaunayB = false;
+
+    /**
+     * The diameter of the nodes.
+     *  This variable can be set by the user.
+     */
+    public int nodeSize = 10;
+
+    /**
+     * The flag for caching the background with the probability distribution,
+     *  for the distributions which do not change while learning.
+     *  This variable can be set by the user.
+     */
+    public boolean cachePDB = true;
+
+    public Color backgroundColor    = new Color(238, 238, 238);
+    public Color distribColor       = new Color(203, 205, 252);
+    public Color lowDistribColor    = new Color(203, 205, 252);
+    public Color highDistribColor   = new Color(152, 161, 250);
+    public Color edgeColor          = Color.black;
+    public Color nodeColor          = Color.green;
+    public Color insertedColor      = Color.blue;
+    public Color voronoiColor       = Color.red;
+    public Color delaunayColor      = new Color(205, 155, 29);
+
+    /**
+     * The Voronoi diagram and Delaunay triangulation, created on first use.
+     */
+    protected Voronoi voro;
+
+    private final Path2D.Float edgePath     = new Path2D.Float();
+    private final Path2D.Float voronoiPath  = new Path2D.Float();
+    private final Path2D.Float delaunayPath = new Path2D.Float();
+
+    // the node images by color, indexed by diameter
+    private final Map<Color, BufferedImage[]> nodeSprites = new HashMap<Color, BufferedImage[]>();
+
+    private BufferedImage   pdImage;
+    private PD              pdImagePD;
+    private Color           pdImageBackground;
+    private boolean         pdImageDiscrete;
+
+    /**
+     * The constructor.
+     */
+    public RenderGNG() {
+    }
+
+    /**
+     * Creates a renderer with the same settings as another one.
+     *
+     * @param r            The renderer whose flags and colors are copied
+     */
+    public RenderGNG(RenderGNG r) {
+        whiteB              = r.whiteB;
+        probDistB           = r.probDistB;
+        edgesB              = r.edgesB;
+        nodesB              = r.nodesB;
+        voronoiB            = r.voronoiB;
+        delaunayB           = r.delaunayB;
+        nodeSize            = r.nodeSize;
+        cachePDB            = r.cachePDB;
+        backgroundColor     = r.backgroundColor;
+        distribColor        = r.distribColor;
+        lowDistribColor     = r.lowDistribColor;
+        highDistribColor    = r.highDistribColor;
+        edgeColor           = r.edgeColor;
+        nodeColor           = r.nodeColor;
+        insertedColor       = r.insertedColor;
+        voronoiColor        = r.voronoiColor;
+        delaunayColor       = r.delaunayColor;
+    }
+
+    @Override
+    public Color getBackground() {
+        return backgroundColor;
+    }
+
+    @Override
+    public boolean isWhite() {
+        return whiteB;
+    }
+
+    @Override
+    public Color getDistributionColor() {
+        return distribColor;
+    }
+
+    @Override
+    public Color getLowDistributionColor() {
+        return lowDistribColor;
+    }
+
+    @Override
+    public Color getHighDistributionColor() {
+        return highDistribColor;
+    }
+
+    /**
+     * Fill the background and draw the probability distribution. Drawing reads
+     *  the state of the distribution from the network, which is locked meanwhile,
+     *  so this waits for a running <TT>learn</TT> step. A cached background is
+     *  drawn without locking the network.
+     *
+     * @param g            The graphic context
+     * @param compute      The network whose distribution is drawn
+     * @param d            The size of the drawing area
+     */
+    public void paintBackground(Graphics2D g, ComputeGNG compute, Dimension d) {
+        final Color background  = whiteB ? Color.white : backgroundColor;
+        final PD pd             = compute.pd;
+        final boolean discrete  = compute.algorithm.isDiscrete();
+        if (!probDistB || !cachePDB || isDynamicPD(pd) || d.width <= 0 || d.height <= 0) {
+            pdImage = null;
+            synchronized (compute) {
+                drawBackground(g, compute, d, background, discrete);
+            }
+            return;
+        }
+
+        if (pdImage == null || pdImage.getWidth() != d.width || pdImage.getHeight() != d.height ||
+                pdImagePD != pd || !background.equals(pdImageBackground) || pdImageDiscrete != discrete) {
+            final BufferedImage img = createBackgroundImage(d.width, d.height);
+            final Graphics2D gi = img.createGraphics();
+            synchronized (compute) {
+                drawBackground(gi, compute, d, background, discrete);
+            }
+            gi.dispose();
+            pdImage             = img;
+            pdImagePD           = pd;
+            pdImageBackground   = background;
+            pdImageDiscrete     = discrete;
+        }
+        g.drawImage(pdImage, 0, 0, null);
+    }
+
+    // the distributions which change while learning
+    private static boolean isDynamicPD(PD pd) {
+        return pd == PD.DiscreteMixture || pd == PD.MoveJump || pd == PD.Move || pd == PD.Jump || pd == PD.RightMouseB;
+    }
+
+    private void drawBackground(Graphics2D g, ComputeGNG compute, Dimension d, Color background, boolean discrete) {
+        g.setColor(background);
+        g.fillRect(0, 0, d.width, d.height);
+        if (probDistB) {
+            if (!discrete)
+                g.setColor(distribColor);
+            drawPD(g, compute, d);
+        }
+    }
+
+    /**
+     * Draw the probability distribution in the current color.
+     *
+     * @param g            The graphic context
+     * @param compute      The network whose distribution is drawn
+     * @param d            The size of the drawing area
+     */
+    protected void drawPD(Graphics g, ComputeGNG compute, Dimension d) {
+        compute.pd.draw(compute, this, g, d);
+    }
+
+    /**
+     * Create the image which caches the background.
+     *
+     * @param width        The width of the image
+     * @param height       The height of the image
+     */
+    protected BufferedImage createBackgroundImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Draw the network on top of the background. Only the snapshot is read,
+     *  so this can run while the network continues learning.
+     *
+     * @param g            The graphic context
+     * @param s            The snapshot of the network
+     * @param d            The size of the drawing area
+     */
+    public void paintNetwork(Graphics2D g, SnapshotGNG s, Dimension d) {
+        paintEdges  (g, s);
+        paintVoronoi(g, s, d);
+        paintNodes  (g, s);
+    }
+
+    /**
+     * Draw the edges, if <TT>edgesB</TT> is set.
+     *
+     * @param g            The graphic context
+     * @param s            The snapshot of the network
+     */
+    protected void paintEdges(Graphics2D g, SnapshotGNG s) {
+        if (!edgesB)
+            return;
+        final Path2D.Float ep = edgePath;
+        ep.reset();
+        final int nEdges = s.nEdges;
+        for (int i = 0; i < nEdges; i++) {
+            final int from  = s.edgeFrom[i];
+            final int to    = s.edgeTo  [i];
+            ep.moveTo((int) nodeX(s, from), (int) nodeY(s, from));
+            ep.lineTo((int) nodeX(s, to  ), (int) nodeY(s, to  ));
+        }
+        g.setColor(edgeColor);
+        g.draw(ep);
+    }
+
+    /**
+     * Draw the Voronoi diagram and the Delaunay triangulation, if
+     *  <TT>voronoiB</TT> or <TT>delaunayB</TT> is set.
+     *
+     * @param g            The graphic context
+     * @param s            The snapshot of the network
+     * @param d            The size of the drawing area
+     */
+    protected void paintVoronoi(Graphics2D g, SnapshotGNG s, Dimension d) {
+        if (!voronoiB && !delaunayB)
+            return;
+        updateVoronoi(s, d);
+        final Path2D.Float vp = voronoiPath;
+        final Path2D.Float dp = delaunayPath;
+        vp.reset();
+        dp.reset();
+        final int nLines = voro.nLines;
+        for (int i = 0; i < nLines; i++) {
+            final LineFloat2D l = voro.lines[i];
+            final Path2D.Float p = voro.vd[i] ? vp : dp;
+            p.moveTo(l.x1, l.y1);
+            p.lineTo(l.x2, l.y2);
+        }
+        g.setColor(voronoiColor);
+        g.draw(vp);
+        g.setColor(delaunayColor);
+        g.draw(dp);
+    }
+
+    /**
+     * Compute the lines of the Voronoi diagram and the Delaunay triangulation
+     *  of the snapshot.
+     *
+     * @param s            The snapshot of the network
+     * @param d            The size of the drawing area
+     */
+    protected void updateVoronoi(SnapshotGNG s, Dimension d) {
+        if (voro == null)
+            voro = new Voronoi(null);
+        voro.voronoiB   = voronoiB;
+        voro.delaunayB  = delaunayB;
+        voro.setSize(d);
+        voro.updateVoronoi(s);
+    }
+
+    /**
+     * Draw the nodes, if <TT>nodesB</TT> is set.
+     *
+     * @param g            The graphic context
+     * @param s            The snapshot of the network
+     */
+    protected void paintNodes(Graphics2D g, SnapshotGNG s) {
+        if (!nodesB)
+            return;
+        final int nNodes = s.nNodes;
+        for (int i = 0; i < nNodes; i++)
+            paintNode(g, s, i);
+    }
+
+    /**
+     * Draw a node. Nodes which have just been inserted are drawn in
+     *  <TT>insertedColor</TT>, unless the algorithm is discrete.
+     *
+     * @param g            The graphic context
+     * @param s            The snapshot of the network
+     * @param i            The index of the node
+     */
+    protected void paintNode(Graphics2D g, SnapshotGNG s, int i) {
+        final boolean discrete = s.algorithm.isDiscrete();
+        final Color col = ((s.flags[i] & SnapshotGNG.INSERTED) != 0 && !discrete) ? insertedColor : nodeColor;
+        drawNode(g, col, nodeSize, nodeX(s, i), nodeY(s, i));
+    }
+
+    /**
+     * Draw a filled oval with a black outline, centered at the given position.
+     *
+     * @param g            The graphic context
+     * @param col          The fill color
+     * @param size         The diameter of the oval
+     * @param x            The horizontal center
+     * @param y            The vertical center
+     */
+    protected void drawNode(Graphics g, Color col, int size, float x, float y) {
+        g.drawImage(nodeSprite(col, size), (int) x - size/2, (int) y - size/2, null);
+    }
+
+    /**
+     * Returns the horizontal position at which a node is drawn.
+     *
+     * @param s            The snapshot of the network
+     * @param i            The index of the node
+     */
+    protected float nodeX(SnapshotGNG s, int i) {
+        return s.x[i];
+    }
+
+    /**
+     * Returns the vertical position at which a node is drawn.
+     *
+     * @param s            The snapshot of the network
+     * @param i            The index of the node
+     */
+    protected float nodeY(SnapshotGNG s, int i) {
+        return s.y[i];
+    }
+
+    /**
+     * Draw the background and the network.
+     *
+     * @param g            The graphic context
+     * @param compute      The network whose distribution is drawn
+     * @param s            The snapshot of the network
+     * @param d            The size of the drawing area
+     */
+    public void paint(Graphics2D g, ComputeGNG compute, SnapshotGNG s, Dimension d) {
+        paintBackground(g, compute, d);
+        paintNetwork(g, s, d);
+    }
+
+    // a filled oval with a black outline, drawn as one image
+    private BufferedImage nodeSprite(Color col, int size) {
+        BufferedImage[] bySize = nodeSprites.get(col);
+        if (bySize == null || bySize.length <= size) {
+            final BufferedImage[] old = bySize;
+            bySize = new BufferedImage[size + 8];
+            if (old != null) System.arraycopy(old, 0, bySize, 0, old.length);
+            nodeSprites.put(col, bySize);
+        }
+        BufferedImage img = bySize[size];
+        if (img == null) {
+            img = new BufferedImage(size + 1, size + 1, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D g = img.createGraphics();
+            g.setColor(col);
+            g.fillOval(0, 0, size, size);
+            g.setColor(Color.black);
+            g.drawOval(0, 0, size, size);
+            g.dispose();
+            bySize[size] = img;
+        }
+        return img;
+    }
+}
@@ -35,12 +35,16 @@
 package de.sciss.neuralgas.ui;
 
 import java.awt.*;
-import java.util.*;
 
 /**
  * Generates a graph.
  * It scales its axis automatically, so the window is always
  * filled at its maximum.
+ * <p>
+ * Each trace keeps its last <TT>CAPACITY</TT> values in a ring buffer, and
+ * only those are shown. For drawing, the values falling onto the same pixel
+ * column are reduced to their minimum and maximum, so the time taken by
+ * <TT>paint</TT> does not grow with the length of a run.
  *
  */
 public class SelGraphics extends Canvas {
@@ -56,12 +60,67 @@ public class SelGraphics extends Canvas {
    * The initial maximum value for the y-axis
    */
   final int INIT_MAX_Y = 20;
+  /**
+   * The maximum number of values kept per trace.
+   */
+  public static final int CAPACITY = 1 << 16;
+  /**
+   * The maximum number of traces kept.
+   */
+  public static final int MAX_TRACES = 8;
+
+  /**
+   * The values of one trace, the oldest of which are overwritten
+   * when the buffer is full.
+   */
+  static final class Trace {
+    double[] buf = new double[256];
+    int start = 0;    // index of the oldest value in buf
+    int size  = 0;    // number of values in buf
+    long total = 0;   // number of values ever added
+
+    void add(double value) {
+      if (size < buf.length) {
+        buf[start + size] = value;  // start is zero until the buffer is full
+        size++;
+      } else if (buf.length < CAPACITY) {
+        final double[] a = new double[Math.min(CAPACITY, buf.length << 1)];
+        System.arraycopy(buf, 0, a, 0, size);
+        buf = a;
+        buf[size++] = value;
+      } else {
+        buf[start] = value;
+        start = (start + 1) % buf.length;
+      }
+      total++;
+    }
+
+    /**
+     * Returns the i-th oldest value which is kept.
+     */
+    double get(int i) {
+      final int j = start + i;
+      return buf[j < buf.length ? j : j - buf.length];
+    }
 
-  Graphics g;
-  Vector<Vector<Double>>  data;
+    /**
+     * Returns the x-position of the oldest value which is kept.
+     */
+    long first() {
+      return total - size;
+    }
+  }
 
-  int ScaleMaxX = INIT_MAX_X;
-  int ScaleMaxY = INIT_MAX_Y;
+  // the oldest trace first
+  final Trace[] traces = new Trace[MAX_TRACES];
+  int numTraces;
+
+  long ScaleMaxX = INIT_MAX_X;
+  int  ScaleMaxY = INIT_MAX_Y;
+
+  private static final Color paleyellow = new Color(255, 250, 230);
+  private static final Color gridColor  = new Color(255, 200, 100);
+  private static final Font  font       = new Font("Dialog", Font.PLAIN, 12);
 
   /**
    * The constructor.
@@ -72,8 +131,8 @@ public class SelGraphics extends Canvas {
 
     // The initial size of the frame
     setSize(400,200);
-    data = new Vector<Vector<Double>>(1,1);
-    data.addElement( new Vector<Double>(100,20) );
+    traces[0] = new Trace();
+    numTraces = 1;
     setVisible(true);
   }
   
@@ -81,8 +140,15 @@ public class SelGraphics extends Canvas {
     paint(g);
   }
 
-  public void paintComponents(Graphics g) {
-    paint(this.getGraphics());
+  // returns the next of 1, 2, 5, 10, 20, 50, ... times base
+  private static long nextStep(long step, long base) {
+    long m = step / base;
+    long p = 1;
+    while (m >= 10) {
+      m /= 10;
+      p *= 10;
+    }
+    return base * p * (m == 1 ? 2 : m == 2 ? 5 : 10);
   }
 
   /**
@@ -90,18 +156,16 @@ public class SelGraphics extends Canvas {
    *
    * @param g	The drawing area
    */
-  public void paint(Graphics g) {
-    int i;
+  public synchronized void paint(Graphics g) {
     int lx = 30;
     int ly = 30;
     double sx,sy;
     Graphics da;
     Rectangle size;
     Rectangle Diagram;
-    Enumeration<Vector<Double>> Traces;
-    
+
     // get bounds
-    da = this.getGraphics();
+    da = g.create();
     size = this.getBounds();
     Diagram = new Rectangle(40, 5, size.width - 45, size.height - 25);
 
@@ -112,37 +176,51 @@ public class SelGraphics extends Canvas {
 
     // paint drawing area
     da.translate(Diagram.x, Diagram.y);
-    Color paleyellow = new Color(255, 250, 230);
     da.setColor(paleyellow);
     da.fillRect(0, 0, Diagram.width, Diagram.height);
     da.setColor(Color.red);
     da.drawLine(0, 0, 0, Diagram.height);
     da.drawLine(0, Diagram.height, Diagram.width, Diagram.height);
+    if (Diagram.width <= 0 || Diagram.height <= 0) {
+      da.dispose();
+      return;
+    }
 
-    sx = ((double) Diagram.width) / ScaleMaxX;
+    // the values before those kept by the newest trace are not shown
+    final long minX = traces[numTraces - 1].first();
+    final long rangeX = Math.max(1, ScaleMaxX - minX);
+    sx = ((double) Diagram.width) / rangeX;
     sy = ((double) Diagram.height) / ScaleMaxY;
 
     // draw grids
-    da.setFont( new Font("Dialog", Font.PLAIN, 12) );
+    da.setFont(font);
     
-    da.setColor( new Color(255, 200, 100) );
+    da.setColor(gridColor);
 
+    // the labels of large values need more space
+    final FontMetrics fm = da.getFontMetrics();
+    final int labelW = Math.max(30, fm.stringWidth(Long.toString(ScaleMaxX)) + 10);
+    long stepX = 5;
+    while (sx * stepX < labelW) stepX = nextStep(stepX, 5);
     int x;
-    for (i = 1; i < (ScaleMaxX/5); i++) {
-      x = (int)(sx * i * 5);
+    for (long xi = (minX / stepX + 1) * stepX; xi < ScaleMaxX; xi += stepX) {
+      x = (int)(sx * (xi - minX));
 
       if (x > lx)	{
+        final String label = Long.toString(xi);
         da.setColor(Color.orange);
         da.drawLine(x, 0, x, Diagram.height);
         da.setColor(Color.red);
-        da.drawString(Integer.toString(i * 5), x - 10, Diagram.height + 15);
-        lx = x + 30;
+        da.drawString(label, x - Math.max(10, fm.stringWidth(label) / 2), Diagram.height + 15);
+        lx = x + labelW;
       }
     }
 
+    long stepY = 10;
+    while (sy * stepY < 30) stepY = nextStep(stepY, 10);
     int y;
-    for (i = 1; i < (ScaleMaxY/10); i++) {
-      y = (int)(sy * i * 10);
+    for (long yi = stepY; yi < ScaleMaxY; yi += stepY) {
+      y = (int)(sy * yi);
 
       if ( y > ly ) {
         int ry = Diagram.height - y;
@@ -150,41 +228,51 @@ public class SelGraphics extends Canvas {
         da.setColor(Color.orange);
         da.drawLine(0, ry, Diagram.width, ry);
         da.setColor(Color.red);
-        da.drawString(Integer.toString(i * 10), -35, ry + 5);
+        da.drawString(Long.toString(yi), -35, ry + 5);
         ly = y + 30;
       }
     }
 
     // paint traces
-    Traces = data.elements();
-    Double cur;
-    while ( Traces.hasMoreElements() ) {
-      Enumeration<Double> Current_Trace = null;
-
-      try {
-        Current_Trace=Traces.nextElement().elements();
-      }	catch( NoSuchElementException e ) {}
-
-      if ( Traces.hasMoreElements() )
+    for (int t = 0; t < numTraces; t++) {
+      if (t < numTraces - 1)
         da.setColor(Color.magenta);
       else
         da.setColor(Color.black);
+      paintTrace(da, traces[t], minX, sx, sy, Diagram.height);
+    }
+    da.dispose();
+  }
 
-      if (Current_Trace != null) {
-        int nx, ny, ox = -1, oy = -1;
-
-        for (i = 0; Current_Trace.hasMoreElements(); i++) {
-          cur = (Double)(Current_Trace.nextElement());
-          nx = (int)(sx * i);
-          ny = Diagram.height - (int)(cur.doubleValue() * sy);
-          if (oy > 0)
-            da.drawLine(ox, oy, nx, ny);
-          ox = nx;
-          oy = ny;
-        }
+  /**
+   * Draws a trace. The values of each pixel column are drawn as one vertical line
+   * from their minimum to their maximum, which is joined to the last value of the
+   * previous column.
+   */
+  private void paintTrace(Graphics da, Trace tr, long minX, double sx, double sy, int height) {
+    final int n = tr.size;
+    final long first = tr.first();
+    int i = (int) Math.max(0, minX - first);
+    int ox = -1, oy = -1;
+    while (i < n) {
+      final int col = (int)(sx * (first + i - minX));
+      double v = tr.get(i);
+      double min = v, max = v;
+      final int firstY = height - (int)(v * sy);
+      i++;
+      while (i < n && (int)(sx * (first + i - minX)) == col) {
+        v = tr.get(i);
+        if (v < min) min = v;
+        if (v > max) max = v;
+        i++;
       }
+      if (oy >= 0)
+        da.drawLine(ox, oy, col, firstY);
+      if (max > min)
+        da.drawLine(col, height - (int)(min * sy), col, height - (int)(max * sy));
+      ox = col;
+      oy = height - (int)(v * sy);
     }
-    
   }
     
   /**
@@ -192,60 +280,43 @@ public class SelGraphics extends Canvas {
    *
    * @param value            The new value for the graph
    */
-  public void add(double value) {
-    // add the value to the storage vector
-    data.lastElement().addElement( new Double(value) );
+  public synchronized void add(double value) {
+    final Trace tr = traces[numTraces - 1];
+    tr.add(value);
 
     if ( value > ScaleMaxY) {
       ScaleMaxY = (int)(1.05 * value);
-      paint(this.getGraphics());
     }
 
-    if (data.lastElement().size() > ScaleMaxX) {
-      ScaleMaxX = data.lastElement().size() + 20;
-      paint(this.getGraphics());
+    if (tr.total > ScaleMaxX) {
+      ScaleMaxX = tr.total + Math.max(20, tr.size / 20);
     }
 
-    // paint its value in the diagram
-
-    int anz = data.lastElement().size() - 1;
-    if (anz > 0) {
-      Graphics da = this.getGraphics();
-      Rectangle size = this.getBounds();
-      Rectangle Diagram = new Rectangle(40, 5, size.width - 45,
-                                        size.height - 25);
-      da.translate(Diagram.x, Diagram.y);
-      da.setColor(Color.black);
-      double sx = ((double) Diagram.width) / ScaleMaxX;
-      double sy = ((double) Diagram.height) / ScaleMaxY;
-      Double lastValue = (Double)
-        (double)(data.lastElement().elementAt(anz - 1).intValue());
-      int ox = (int)(sx * (anz - 1));
-      int oy = Diagram.height - (int)(sy * lastValue.doubleValue());
-      int nx = (int)(sx * anz);
-      int ny = Diagram.height - (int)(sy * value);
-
-      da.drawLine(ox, oy, nx, ny);
-    }
+    repaint();
   }  
 
   /**
    * Initialize the graph.
    */
-  public void startNewTrace() {
-    data.addElement(new Vector<Double>(100, 20));
-    paint(this.getGraphics());
+  public synchronized void startNewTrace() {
+    if (numTraces == MAX_TRACES) {
+      System.arraycopy(traces, 1, traces, 0, MAX_TRACES - 1);
+      numTraces--;
+    }
+    traces[numTraces++] = new Trace();
+    repaint();
   }
 
   /*
    * Clear the graph.
    */
-  public void clear() {
+  public synchronized void clear() {
     ScaleMaxX = INIT_MAX_X;
     ScaleMaxY = INIT_MAX_Y;
-    data = new Vector<Vector<Double>>(1, 1);
-    data.addElement( new Vector<Double>(100, 20) );
-    paint(this.getGraphics());
+    for (int i = 0; i < MAX_TRACES; i++) traces[i] = null;
+    traces[0] = new Trace();
+    numTraces = 1;
+    repaint();
   }
 
 }
@@ -0,0 +1,40 @@
+package de.sciss.neuralgas.ui
+
+import java.io.File
+
+import de.sciss.neuralgas.ComputeGNG.Result
+import de.sciss.neuralgas.{Algorithm, ComputeGNG, PD}
+
+/** Writes the growth of a GNG network as a PNG sequence, without a window.
+  * The first argument is the output directory.
+  */
+object AnimationTest {
+  def main(args: Array[String]): Unit = {
+    val dir = args.headOption.fold(new File(sys.props("java.io.tmpdir"), "gng-anim"))(new File(_))
+    dir.mkdirs()
+
+    val compute             = new ComputeGNG(0L)
+    compute.algorithm       = Algorithm.GNG
+    compute.pd              = PD.LargeSpirals
+    compute.panelWidth      = 640
+    compute.panelHeight     = 480
+    compute.maxNodes        = 500
+    compute.stepSize        = 200
+    compute.addNode(null)
+    compute.addNode(null)
+
+    val renderer            = new RenderGNG
+    renderer.delaunayB      = true
+    val anim                = new AnimationGNG(compute, renderer, dir, "frame-%05d.png")
+
+    val res = new Result
+    val t0  = System.currentTimeMillis()
+    while (!res.stop && anim.getNumFrames < 1000) {
+      compute.learn(res)
+      anim.addFrame()
+    }
+    anim.finish()
+    val t1  = System.currentTimeMillis()
+    println(s"Wrote ${anim.getNumFrames} frames to $dir in ${t1 - t0} ms.")
+  }
+}